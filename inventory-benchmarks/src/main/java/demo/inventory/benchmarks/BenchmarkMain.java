@@ -0,0 +1,32 @@
+package demo.inventory.benchmarks;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs JMH with the given command line options, writing results as JSON to
+ * 'jmh-result-[timestamp].json' unless a result file or format is given.
+ *
+ * To compare two runs, see {@link ResultsDiff}.
+ */
+public class BenchmarkMain {
+
+  public static void main(String[] args) throws Exception {
+
+    CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+
+    ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLineOptions);
+    if (!commandLineOptions.getResultFormat().hasValue())
+      options.resultFormat(ResultFormatType.JSON);
+    if (!commandLineOptions.getResult().hasValue())
+      options.result("jmh-result-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".json");
+
+    new Runner(options.build()).run();
+  }
+}
@@ -0,0 +1,107 @@
+package demo.inventory.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import demo.inventory.service.IInventoryService;
+import demo.inventory.setup.VirtualThreads;
+
+/**
+ * A burst of 'clients' concurrent requests, each a keyset page read, optionally after a
+ * wait of 'ioMillis' as for a call to another service. The score is the time for the whole
+ * burst to complete, so throughput is 'clients' divided by the score.
+ *
+ * 'platform' runs requests on 200 platform threads, Tomcat's default request pool, and
+ * 'virtual' on a virtual thread each, with 'inventory.virtual-threads.enabled' bounding
+ * database connections. 'virtual' requires JDK 21 or later.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ConcurrentClientsBenchmark {
+
+  private static final int PLATFORM_THREADS = 200;
+
+  private static final int PAGE_SIZE = 20;
+
+  @Param({"1000", "10000"})
+  public int clients;
+
+  @Param({"platform", "virtual"})
+  public String threads;
+
+  @Param({"0", "10"})
+  public int ioMillis;
+
+  private ConfigurableApplicationContext context;
+
+  private IInventoryService inventoryService;
+
+  private ExecutorService executor;
+
+  private List<Long> itemIds;
+
+  @Setup
+  public void setup() {
+    boolean virtual = threads.equals("virtual");
+    context = ServiceContext.start("inventory.virtual-threads.enabled=" + virtual);
+    inventoryService = context.getBean(IInventoryService.class);
+    itemIds = ServiceContext.createItems(inventoryService, 25000);
+    executor = virtual
+        ? VirtualThreads.newThreadPerTaskExecutor("bench-virtual-")
+        : Executors.newFixedThreadPool(PLATFORM_THREADS);
+  }
+
+  @TearDown
+  public void tearDown() {
+    executor.shutdownNow();
+    context.close();
+  }
+
+  @Benchmark
+  public int burst() {
+    List<CompletableFuture<Integer>> requests = new ArrayList<>(clients);
+    for (int i = 0; i < clients; i++)
+      requests.add(CompletableFuture.supplyAsync(this::request, executor));
+
+    int items = 0;
+    for (CompletableFuture<Integer> request : requests)
+      items += request.join();
+    return items;
+  }
+
+  private int request() {
+    if (ioMillis > 0) {
+      try {
+        Thread.sleep(ioMillis);
+      }
+      catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    long afterItemId = itemIds.get(ThreadLocalRandom.current().nextInt(itemIds.size() - PAGE_SIZE));
+    return inventoryService.getInventoryAfter(afterItemId, PAGE_SIZE).getNumberOfElements();
+  }
+}
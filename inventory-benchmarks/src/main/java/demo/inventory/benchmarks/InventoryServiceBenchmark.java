@@ -0,0 +1,101 @@
+package demo.inventory.benchmarks;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+
+import demo.inventory.api.message.OrderCompletedNotice;
+import demo.inventory.api.model.InventoryItemModel;
+import demo.inventory.service.AppliedOrders;
+import demo.inventory.service.IInventoryService;
+
+/**
+ * Service read and update paths, on H2: item lookup (through the item cache), offset and
+ * keyset paging at increasing depth, item update, and a single order applied, as by the order listener.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InventoryServiceBenchmark {
+
+  private static final int PAGE_SIZE = 20;
+
+  @Param({"0", "100", "1000"})
+  public int pageNumber;
+
+  private ConfigurableApplicationContext context;
+
+  private IInventoryService inventoryService;
+
+  private List<Long> itemIds;
+
+  private long afterItemId;
+
+  private InventoryItemModel item;
+
+  private final AtomicLong orderIds = new AtomicLong();
+
+  @Setup
+  public void setup() {
+    context = ServiceContext.start();
+    inventoryService = context.getBean(IInventoryService.class);
+    itemIds = ServiceContext.createItems(inventoryService, 25000);
+
+    // The keyset equivalent of the requested page
+    afterItemId = pageNumber == 0 ? 0 : itemIds.get(pageNumber * PAGE_SIZE - 1);
+    item = inventoryService.getInventoryItem(itemIds.get(0)).get();
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public Optional<InventoryItemModel> getInventoryItem() {
+    return inventoryService.getInventoryItem(item.getId());
+  }
+
+  @Benchmark
+  public Page<InventoryItemModel> getInventoryPage() {
+    return inventoryService.getInventory(PageRequest.of(pageNumber, PAGE_SIZE));
+  }
+
+  @Benchmark
+  public Slice<InventoryItemModel> getInventoryAfter() {
+    return inventoryService.getInventoryAfter(afterItemId, PAGE_SIZE);
+  }
+
+  @Benchmark
+  public void updateInventoryItem() {
+    inventoryService.updateInventoryItem(item);
+  }
+
+  @Benchmark
+  public AppliedOrders applyOrder() {
+    OrderCompletedNotice order = new OrderCompletedNotice("bench-" + orderIds.incrementAndGet(), item.getId(), 1);
+    return inventoryService.applyOrders(Collections.singletonMap("order:" + order.getOrderId(), order));
+  }
+}
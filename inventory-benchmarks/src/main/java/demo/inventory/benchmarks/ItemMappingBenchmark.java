@@ -0,0 +1,74 @@
+package demo.inventory.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import demo.inventory.api.model.InventoryItemModel;
+import demo.inventory.persistence.InventoryItem;
+import demo.inventory.service.InventoryItemMapper;
+
+/**
+ * Entity to model mapping: the service's accessor-based mapper, against ModelMapper as
+ * formerly used (a new mapper per call) and as a shared instance.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ItemMappingBenchmark {
+
+  private final InventoryItemMapper itemMapper = new InventoryItemMapper();
+
+  private final ModelMapper sharedModelMapper = new ModelMapper();
+
+  private InventoryItem entity;
+
+  private InventoryItemModel model;
+
+  @Setup
+  public void setup() {
+    model = new InventoryItemModel(
+        "Thinkpad", 
+        "Laptop computer", 
+        new BigDecimal("1525.50"), 
+        "Thinkpad laptop", 
+        "tp450.jpg", 
+        7);
+    model.setId(13401);
+    entity = itemMapper.toEntity(model);
+  }
+
+  @Benchmark
+  public InventoryItemModel toModel() {
+    return itemMapper.toModel(entity);
+  }
+
+  @Benchmark
+  public InventoryItem toEntity() {
+    return itemMapper.toEntity(model);
+  }
+
+  @Benchmark
+  public InventoryItemModel toModelNewModelMapper() {
+    return new ModelMapper().map(entity, InventoryItemModel.class);
+  }
+
+  @Benchmark
+  public InventoryItemModel toModelSharedModelMapper() {
+    return sharedModelMapper.map(entity, InventoryItemModel.class);
+  }
+}
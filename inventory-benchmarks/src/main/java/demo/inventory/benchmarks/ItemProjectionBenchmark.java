@@ -0,0 +1,89 @@
+package demo.inventory.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import demo.inventory.api.model.InventoryItemModel;
+import demo.inventory.api.model.InventoryItemSummary;
+import demo.inventory.service.IInventoryService;
+
+/**
+ * A page of full items against a page of item summaries (the 'fields=' projection), with
+ * descriptions at the column's length, on H2: the query, and the query plus JSON write.
+ * The JSON size of each page is printed on setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ItemProjectionBenchmark {
+
+  private static final int PAGE_SIZE = 20;
+
+  private static final int DESCRIPTION_LENGTH = 3000;
+
+  private static final PageRequest PAGE_REQUEST = PageRequest.of(1, PAGE_SIZE, Sort.by("id"));
+
+  private ConfigurableApplicationContext context;
+
+  private IInventoryService inventoryService;
+
+  private ObjectMapper objectMapper;
+
+  @Setup
+  public void setup() throws JsonProcessingException {
+    context = ServiceContext.start();
+    inventoryService = context.getBean(IInventoryService.class);
+    objectMapper = context.getBean(ObjectMapper.class);
+    ServiceContext.createItems(inventoryService, 5000, DESCRIPTION_LENGTH);
+
+    System.out.println("JSON bytes per page of " + PAGE_SIZE
+        + ": items " + writeItemsPage().length
+        + ", summaries " + writeSummariesPage().length);
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public Page<InventoryItemModel> getItemsPage() {
+    return inventoryService.getInventory(PAGE_REQUEST);
+  }
+
+  @Benchmark
+  public Page<InventoryItemSummary> getSummariesPage() {
+    return inventoryService.getInventorySummaries(PAGE_REQUEST);
+  }
+
+  @Benchmark
+  public byte[] writeItemsPage() throws JsonProcessingException {
+    return objectMapper.writeValueAsBytes(inventoryService.getInventory(PAGE_REQUEST));
+  }
+
+  @Benchmark
+  public byte[] writeSummariesPage() throws JsonProcessingException {
+    return objectMapper.writeValueAsBytes(inventoryService.getInventorySummaries(PAGE_REQUEST));
+  }
+}
@@ -0,0 +1,109 @@
+package demo.inventory.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import demo.inventory.api.model.InventoryItemModel;
+import demo.inventory.persistence.InventoryItem;
+import demo.inventory.persistence.InventoryRepo;
+import demo.inventory.service.IInventoryService;
+
+/**
+ * Search by name substring through the in-memory name index, against the 'like' query it
+ * replaces, and search by price bound through the price index, over a million items on H2.
+ * Names combine a few common words with the item number; the queries are a rare name, a
+ * common word, and a two character fragment, which the index checks against every name.
+ *
+ * Setup inserts all the items, which takes a few minutes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ItemSearchBenchmark {
+
+  private static final String[] KINDS = { "Electric", "Manual", "Portable", "Desktop", "Industrial", "Compact" };
+
+  private static final String[] THINGS = { "Tabulator", "Scale", "Typewriter", "Meat Chopper", "Time Clock",
+      "Card Punch", "Sorter", "Calculator" };
+
+  private static final PageRequest PAGE_REQUEST = PageRequest.of(0, 20, Sort.by("id"));
+
+  @Param({ "1000000" })
+  private int itemCount;
+
+  @Param({ "typewriter 424242", "chopper", "ca" })
+  private String query;
+
+  private final BigDecimal maxPrice = new BigDecimal("5.00");
+
+  private ConfigurableApplicationContext context;
+
+  private IInventoryService inventoryService;
+
+  private InventoryRepo itemsRepo;
+
+  @Setup
+  public void setup() {
+    context = ServiceContext.start();
+    inventoryService = context.getBean(IInventoryService.class);
+    itemsRepo = context.getBean(InventoryRepo.class);
+
+    List<InventoryItemModel> items = new ArrayList<>(1000);
+    for (int i = 0; i < itemCount; i++) {
+      String name = KINDS[i % KINDS.length] + " " + THINGS[(i / KINDS.length) % THINGS.length] + " " + i;
+      items.add(new InventoryItemModel(name, "Generated item " + i, BigDecimal.valueOf(100 + i % 9900, 2),
+          name, "item.jpg", 1000));
+      if (items.size() == 1000 || i == itemCount - 1) {
+        inventoryService.createInventoryItems(items);
+        items.clear();
+      }
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public Page<InventoryItemModel> searchNameIndexed() {
+    return inventoryService.searchInventory(query, null, PAGE_REQUEST);
+  }
+
+  @Benchmark
+  public Page<InventoryItem> searchNameLike() {
+    return itemsRepo.findByNameContainingIgnoreCase(query, PAGE_REQUEST);
+  }
+
+  @Benchmark
+  public Page<InventoryItemModel> searchNameAndPriceIndexed() {
+    return inventoryService.searchInventory(query, maxPrice, PAGE_REQUEST);
+  }
+
+  @Benchmark
+  public Page<InventoryItemModel> searchPrice() {
+    return inventoryService.searchInventory(null, maxPrice, PAGE_REQUEST);
+  }
+}
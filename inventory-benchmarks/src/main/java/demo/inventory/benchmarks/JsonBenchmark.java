@@ -0,0 +1,109 @@
+package demo.inventory.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import demo.inventory.api.message.InventoryUpdatedNotice;
+import demo.inventory.api.message.OrderCompletedNotice;
+import demo.inventory.api.model.InventoryItemModel;
+
+/**
+ * Jackson serialization of the message and REST payloads, with readers and writers
+ * prepared once per type, as Spring's converters and Kafka's JsonSerializer do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonBenchmark {
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  private ObjectWriter orderWriter;
+  private ObjectReader orderReader;
+  private ObjectWriter updatedWriter;
+  private ObjectReader updatedReader;
+  private ObjectWriter itemWriter;
+  private ObjectReader itemReader;
+
+  private OrderCompletedNotice order;
+  private InventoryUpdatedNotice updated;
+  private InventoryItemModel item;
+
+  private byte[] orderJson;
+  private byte[] updatedJson;
+  private byte[] itemJson;
+
+  @Setup
+  public void setup() throws JsonProcessingException {
+    orderWriter = objectMapper.writerFor(OrderCompletedNotice.class);
+    orderReader = objectMapper.readerFor(OrderCompletedNotice.class);
+    updatedWriter = objectMapper.writerFor(InventoryUpdatedNotice.class);
+    updatedReader = objectMapper.readerFor(InventoryUpdatedNotice.class);
+    itemWriter = objectMapper.writerFor(InventoryItemModel.class);
+    itemReader = objectMapper.readerFor(InventoryItemModel.class);
+
+    order = new OrderCompletedNotice("5f0c2a9e-6b1d-4c47-9f3e-1c2d3e4f5a6b", 13401, 2);
+    updated = new InventoryUpdatedNotice(13401, 998);
+    item = new InventoryItemModel(
+        "Thinkpad", 
+        "Laptop computer", 
+        new BigDecimal("1525.50"), 
+        "Thinkpad laptop", 
+        "tp450.jpg", 
+        7);
+    item.setId(13401);
+
+    orderJson = orderWriter.writeValueAsBytes(order);
+    updatedJson = updatedWriter.writeValueAsBytes(updated);
+    itemJson = itemWriter.writeValueAsBytes(item);
+  }
+
+  @Benchmark
+  public byte[] writeOrderCompletedNotice() throws JsonProcessingException {
+    return orderWriter.writeValueAsBytes(order);
+  }
+
+  @Benchmark
+  public OrderCompletedNotice readOrderCompletedNotice() throws Exception {
+    return orderReader.readValue(orderJson);
+  }
+
+  @Benchmark
+  public byte[] writeInventoryUpdatedNotice() throws JsonProcessingException {
+    return updatedWriter.writeValueAsBytes(updated);
+  }
+
+  @Benchmark
+  public InventoryUpdatedNotice readInventoryUpdatedNotice() throws Exception {
+    return updatedReader.readValue(updatedJson);
+  }
+
+  @Benchmark
+  public byte[] writeInventoryItemModel() throws JsonProcessingException {
+    return itemWriter.writeValueAsBytes(item);
+  }
+
+  @Benchmark
+  public InventoryItemModel readInventoryItemModel() throws Exception {
+    return itemReader.readValue(itemJson);
+  }
+}
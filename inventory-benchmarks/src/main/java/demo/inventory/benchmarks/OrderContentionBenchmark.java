@@ -0,0 +1,117 @@
+package demo.inventory.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import demo.inventory.api.message.OrderCompletedNotice;
+import demo.inventory.api.messaging.StripedExecutor;
+import demo.inventory.api.model.InventoryItemModel;
+import demo.inventory.service.AppliedOrders;
+import demo.inventory.service.IInventoryService;
+
+/**
+ * Concurrent orders over a Zipf-skewed item distribution, so that the most popular items
+ * take most orders, as they do in production. With 'stripes' of zero, each benchmark
+ * thread applies its orders directly and threads contend for hot rows; otherwise, orders
+ * are handed to a {@link StripedExecutor} by item id, as the batch listener does.
+ *
+ * 'writeBehind' applies the orders for the 10 most popular items in memory (see
+ * 'inventory.write-behind'), against the per-order database update. The most popular
+ * items are those with the lowest ids: the sample items, loaded first into the new
+ * database of each fork.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class OrderContentionBenchmark {
+
+  // Items added to the sample items
+  private static final int ITEM_COUNT = 1000;
+
+  private static final int HOT_ITEM_COUNT = 10;
+
+  @Param({"0", "4"})
+  public int stripes;
+
+  @Param({"1.1"})
+  public double skew;
+
+  @Param({"false", "true"})
+  public boolean writeBehind;
+
+  private ConfigurableApplicationContext context;
+
+  private IInventoryService inventoryService;
+
+  private StripedExecutor stripedExecutor;
+
+  private ZipfGenerator zipf;
+
+  private List<Long> itemIds;
+
+  private final AtomicLong orderIds = new AtomicLong();
+
+  @Setup
+  public void setup() {
+    List<Long> hotItemIds = LongStream.rangeClosed(1, HOT_ITEM_COUNT).boxed().collect(Collectors.toList());
+    context = ServiceContext.start(
+        "inventory.write-behind.enabled=" + writeBehind,
+        "inventory.write-behind.items=" + hotItemIds.stream().map(String::valueOf).collect(Collectors.joining(",")));
+    inventoryService = context.getBean(IInventoryService.class);
+    ServiceContext.createItems(inventoryService, ITEM_COUNT);
+
+    // Rank items by id
+    itemIds = new ArrayList<>();
+    inventoryService.exportInventory(item -> itemIds.add(item.getId()));
+    if (!itemIds.subList(0, HOT_ITEM_COUNT).equals(hotItemIds))
+      throw new IllegalStateException("Expected a new database, with items numbered from 1: " + itemIds.subList(0, HOT_ITEM_COUNT));
+
+    // Enough stock that no order is rejected
+    for (long itemId : hotItemIds) {
+      InventoryItemModel item = inventoryService.getInventoryItem(itemId).get();
+      item.setStock(Integer.MAX_VALUE);
+      inventoryService.updateInventoryItem(item);
+    }
+    stripedExecutor = new StripedExecutor(stripes, "bench-stripe-");
+    zipf = new ZipfGenerator(itemIds.size(), skew);
+  }
+
+  @TearDown
+  public void tearDown() {
+    stripedExecutor.close();
+    context.close();
+  }
+
+  @Benchmark
+  public AppliedOrders applyOrder() {
+    long itemId = itemIds.get(zipf.next());
+    OrderCompletedNotice order = new OrderCompletedNotice("bench-" + orderIds.incrementAndGet(), itemId, 1);
+    return stripedExecutor.submit(itemId, 
+        () -> inventoryService.applyOrders(Collections.singletonMap("order:" + order.getOrderId(), order)))
+        .join();
+  }
+}
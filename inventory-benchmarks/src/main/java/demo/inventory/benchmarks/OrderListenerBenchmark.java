@@ -0,0 +1,102 @@
+package demo.inventory.benchmarks;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+
+import demo.inventory.api.message.OrderCompletedNotice;
+import demo.inventory.api.messaging.OrderCompletionListener;
+import demo.inventory.service.AppliedOrders;
+import demo.inventory.service.IInventoryService;
+
+/**
+ * Order handling, on H2: the per-record listener's handleOrderCompleted (processed order
+ * check and record, stock update, internal event, reply), and the same orders applied a
+ * batch at a time, as by the batch listener. Both report time per order.
+ *
+ * Every order has a new order id, so none is ignored as a redelivery.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderListenerBenchmark {
+
+  private static final int BATCH_SIZE = 100;
+
+  private ConfigurableApplicationContext context;
+
+  private IInventoryService inventoryService;
+
+  private OrderCompletionListener listener;
+
+  private List<Long> itemIds;
+
+  private final AtomicLong orderIds = new AtomicLong();
+
+  private MessageHeaders headers;
+
+  @Setup
+  public void setup() {
+    context = ServiceContext.start();
+    inventoryService = context.getBean(IInventoryService.class);
+    listener = context.getBean(OrderCompletionListener.class);
+    itemIds = ServiceContext.createItems(inventoryService, 1000);
+
+    Map<String, Object> headerValues = new HashMap<>();
+    headerValues.put(KafkaHeaders.RECEIVED_TOPIC, "orders");
+    headerValues.put(KafkaHeaders.RECEIVED_PARTITION_ID, 0);
+    headerValues.put(KafkaHeaders.OFFSET, 0L);
+    headerValues.put(KafkaHeaders.RECEIVED_TIMESTAMP, 0L);
+    headers = new MessageHeaders(headerValues);
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public Message<?> handleOrderCompleted() {
+    return listener.handleOrderCompleted(nextOrder(), headers, () -> {});
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public AppliedOrders applyOrdersBatch() {
+    Map<String, OrderCompletedNotice> ordersByMessageKey = new LinkedHashMap<>();
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      OrderCompletedNotice order = nextOrder();
+      ordersByMessageKey.put("order:" + order.getOrderId(), order);
+    }
+    return inventoryService.applyOrders(ordersByMessageKey);
+  }
+
+  private OrderCompletedNotice nextOrder() {
+    long itemId = itemIds.get(ThreadLocalRandom.current().nextInt(itemIds.size()));
+    return new OrderCompletedNotice("bench-" + orderIds.incrementAndGet(), itemId, 1);
+  }
+}
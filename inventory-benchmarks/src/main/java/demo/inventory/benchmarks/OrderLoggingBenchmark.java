@@ -0,0 +1,144 @@
+package demo.inventory.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.FileAppender;
+import demo.inventory.api.message.OrderCompletedNotice;
+import demo.inventory.api.messaging.OrderCompletionListener;
+import demo.inventory.service.IInventoryService;
+import net.logstash.logback.encoder.LogstashEncoder;
+
+/**
+ * The per-record listener's handleOrderCompleted, on H2, with the listener logging as JSON
+ * to a file: 'sync' logs every order on the calling thread, 'async' every order through
+ * an AsyncAppender as configured in logback-spring.xml, and 'sampled' one in a hundred
+ * orders through the AsyncAppender, as in production. 'off' logs nothing, for reference.
+ *
+ * As in production, the AsyncAppender drops INFO events while its queue is nearly full,
+ * so the bytes logged are printed on teardown.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(2)
+@Fork(1)
+public class OrderLoggingBenchmark {
+
+  @Param({"off", "sync", "async", "sampled"})
+  public String logging;
+
+  private ConfigurableApplicationContext context;
+
+  private OrderCompletionListener listener;
+
+  private List<Long> itemIds;
+
+  private final AtomicLong orderIds = new AtomicLong();
+
+  private MessageHeaders headers;
+
+  private Logger listenerLogger;
+
+  private Appender<ILoggingEvent> appender;
+
+  private File logFile;
+
+  @Setup
+  public void setup() throws IOException {
+    context = ServiceContext.start("events.api.orders.log-sample-rate=" + (logging.equals("sampled") ? "0.01" : "1"));
+    IInventoryService inventoryService = context.getBean(IInventoryService.class);
+    listener = context.getBean(OrderCompletionListener.class);
+    itemIds = ServiceContext.createItems(inventoryService, 1000);
+
+    Map<String, Object> headerValues = new HashMap<>();
+    headerValues.put(KafkaHeaders.RECEIVED_TOPIC, "orders");
+    headerValues.put(KafkaHeaders.RECEIVED_PARTITION_ID, 0);
+    headerValues.put(KafkaHeaders.OFFSET, 0L);
+    headerValues.put(KafkaHeaders.RECEIVED_TIMESTAMP, 0L);
+    headers = new MessageHeaders(headerValues);
+
+    LoggerContext loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+    listenerLogger = loggerContext.getLogger(OrderCompletionListener.class);
+    if (logging.equals("off")) {
+      listenerLogger.setLevel(Level.WARN);
+      return;
+    }
+
+    logFile = File.createTempFile("order-logging-", ".log");
+    LogstashEncoder encoder = new LogstashEncoder();
+    encoder.setContext(loggerContext);
+    encoder.start();
+    FileAppender<ILoggingEvent> fileAppender = new FileAppender<>();
+    fileAppender.setContext(loggerContext);
+    fileAppender.setFile(logFile.getPath());
+    fileAppender.setEncoder(encoder);
+    fileAppender.start();
+    appender = fileAppender;
+
+    if (!logging.equals("sync")) {
+      AsyncAppender asyncAppender = new AsyncAppender();
+      asyncAppender.setContext(loggerContext);
+      asyncAppender.setQueueSize(8192);
+      asyncAppender.setIncludeCallerData(false);
+      asyncAppender.addAppender(fileAppender);
+      asyncAppender.start();
+      appender = asyncAppender;
+    }
+
+    listenerLogger.setLevel(Level.INFO);
+    listenerLogger.setAdditive(false);
+    listenerLogger.addAppender(appender);
+  }
+
+  @TearDown
+  public void tearDown() {
+    if (appender != null) {
+      listenerLogger.detachAppender(appender);
+      appender.stop();
+      System.out.println("Logged " + logFile.length() + " bytes");
+      logFile.delete();
+    }
+    context.close();
+  }
+
+  @Benchmark
+  public Message<?> handleOrderCompleted() {
+    long itemId = itemIds.get(ThreadLocalRandom.current().nextInt(itemIds.size()));
+    OrderCompletedNotice order = new OrderCompletedNotice("bench-" + orderIds.incrementAndGet(), itemId, 1);
+    return listener.handleOrderCompleted(order, headers, () -> {});
+  }
+}
@@ -0,0 +1,110 @@
+package demo.inventory.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+
+import demo.inventory.api.model.InventoryItemModel;
+import demo.inventory.api.model.ItemsPage;
+
+/**
+ * A listing page of 20 items, with descriptions of 'descriptionLength', written as JSON in
+ * the Spring Data page form against the compact ItemsPage envelope, with and without
+ * Afterburner, and then gzip compressed as by the server. The bytes of each form, before
+ * and after compression, are printed on setup.
+ *
+ * Descriptions are random words, so compress less well than repeated text would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PageEnvelopeBenchmark {
+
+  private static final int PAGE_SIZE = 20;
+
+  private static final String[] WORDS = { "brass", "cabinet", "crank", "dial", "enamel", "gauge", "lever",
+      "mahogany", "nickel", "plate", "register", "scale", "spring", "tabulator", "weight", "wheel" };
+
+  @Param({"page", "compact"})
+  public String envelope;
+
+  @Param({"false", "true"})
+  public boolean afterburner;
+
+  @Param({"0", "3000"})
+  public int descriptionLength;
+
+  private ObjectWriter writer;
+
+  private Object page;
+
+  @Setup
+  public void setup() throws IOException {
+    ObjectMapper objectMapper = new ObjectMapper();
+    if (afterburner)
+      objectMapper.registerModule(new AfterburnerModule());
+    writer = objectMapper.writer();
+
+    List<InventoryItemModel> items = new ArrayList<>(PAGE_SIZE);
+    for (int i = 0; i < PAGE_SIZE; i++) {
+      InventoryItemModel item = new InventoryItemModel("Item " + i, description(descriptionLength),
+          new BigDecimal("9.99"), "Item " + i, "item.jpg", 1000);
+      item.setId(1000 + i);
+      items.add(item);
+    }
+    page = envelope.equals("compact")
+        ? new ItemsPage<>(items, 1000L + PAGE_SIZE - 1, "http://localhost:8080/demo/inventory/item?after=1019&size=20&envelope=compact", null)
+        : new PageImpl<>(items, PageRequest.of(50, PAGE_SIZE, Sort.by("id")), 25000);
+
+    System.out.println("JSON bytes per page of " + PAGE_SIZE + " (" + envelope + "): "
+        + writeJson().length + ", gzip " + writeGzipJson().length);
+  }
+
+  @Benchmark
+  public byte[] writeJson() throws IOException {
+    return writer.writeValueAsBytes(page);
+  }
+
+  @Benchmark
+  public byte[] writeGzipJson() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(16384);
+    try (GZIPOutputStream gzip = new GZIPOutputStream(bytes, 8192)) {
+      writer.writeValue(gzip, page);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static String description(int length) {
+    StringBuilder description = new StringBuilder(length + 16);
+    while (description.length() < length)
+      description.append(WORDS[ThreadLocalRandom.current().nextInt(WORDS.length)]).append(' ');
+    return description.substring(0, length);
+  }
+}
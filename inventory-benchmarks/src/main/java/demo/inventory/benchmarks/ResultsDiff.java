@@ -0,0 +1,60 @@
+package demo.inventory.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compare two JMH JSON result files, printing the change in score of each benchmark found
+ * in both, e.g.:
+ * 
+ *   java -cp benchmarks.jar demo.inventory.benchmarks.ResultsDiff before.json after.json
+ * 
+ * A change is flagged when the two scores' error intervals do not overlap.
+ */
+public class ResultsDiff {
+
+  public static void main(String[] args) throws IOException {
+
+    if (args.length != 2) {
+      System.err.println("Usage: ResultsDiff <baseline.json> <result.json>");
+      System.exit(1);
+    }
+
+    Map<String, JsonNode> baseline = read(new File(args[0]));
+    Map<String, JsonNode> result = read(new File(args[1]));
+
+    System.out.println(String.format("%-90s %14s %14s %9s", "Benchmark", "Baseline", "Result", "Change"));
+    for (Map.Entry<String, JsonNode> entry : result.entrySet()) {
+      JsonNode before = baseline.get(entry.getKey());
+      if (before == null)
+        continue;
+      JsonNode after = entry.getValue();
+
+      double beforeScore = before.path("score").asDouble();
+      double afterScore = after.path("score").asDouble();
+      double change = (afterScore - beforeScore) / beforeScore * 100;
+      boolean significant = Math.abs(afterScore - beforeScore) 
+          > before.path("scoreError").asDouble() + after.path("scoreError").asDouble();
+
+      System.out.println(String.format("%-90s %14.3f %14.3f %+8.1f%% %s %s",
+          entry.getKey(), beforeScore, afterScore, change, after.path("scoreUnit").asText(), significant ? "*" : ""));
+    }
+  }
+
+  /*
+   * @return the primary metric of each benchmark, keyed by name and parameters
+   */
+  private static Map<String, JsonNode> read(File file) throws IOException {
+    Map<String, JsonNode> metrics = new LinkedHashMap<>();
+    for (JsonNode run : new ObjectMapper().readTree(file)) {
+      String name = run.path("benchmark").asText() + run.path("params").toString();
+      metrics.put(name, run.path("primaryMetric"));
+    }
+    return metrics;
+  }
+}
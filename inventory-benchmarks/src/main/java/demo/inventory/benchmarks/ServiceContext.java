@@ -0,0 +1,83 @@
+package demo.inventory.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import demo.inventory.Main;
+import demo.inventory.api.model.InventoryItemModel;
+import demo.inventory.service.IInventoryService;
+
+/**
+ * Starts the inventory service in-process, with the 'test' profile (sample items loaded on
+ * startup) and the 'benchmark' profile (H2, no Kafka, no web server).
+ */
+final class ServiceContext {
+
+  private ServiceContext() {
+  }
+
+  /**
+   * @param properties additional "name=value" properties
+   */
+  static ConfigurableApplicationContext start(String... properties) {
+    return new SpringApplicationBuilder(Main.class)
+        .profiles("test", "benchmark")
+        .properties(properties)
+        .run();
+  }
+
+  /**
+   * @param profile an additional profile, such as 'fast-start'
+   * @param properties additional "name=value" properties
+   */
+  static ConfigurableApplicationContext startWithProfile(String profile, String... properties) {
+    return new SpringApplicationBuilder(Main.class)
+        .profiles("test", "benchmark", profile)
+        .properties(properties)
+        .run();
+  }
+
+  /**
+   * Add generated items to inventory, so that the item count does not flatter a query.
+   * 
+   * @return the new item ids, in ascending order
+   */
+  static List<Long> createItems(IInventoryService inventoryService, int count) {
+    return createItems(inventoryService, count, 0);
+  }
+
+  /**
+   * Add generated items to inventory, with descriptions padded to the given length.
+   * 
+   * @return the new item ids, in ascending order
+   */
+  static List<Long> createItems(IInventoryService inventoryService, int count, int descriptionLength) {
+    List<InventoryItemModel> items = new ArrayList<>(count);
+    for (int i = 0; i < count; i++)
+      items.add(new InventoryItemModel(
+          "Item " + i, 
+          pad("Generated item " + i, descriptionLength), 
+          new BigDecimal("9.99"), 
+          "Item " + i, 
+          "item.jpg", 
+          1000000));
+    
+    List<Long> ids = new ArrayList<>(count);
+    for (int from = 0; from < count; from += 1000)
+      ids.addAll(inventoryService.createInventoryItems(items.subList(from, Math.min(from + 1000, count))));
+    return ids;
+  }
+
+  private static String pad(String text, int length) {
+    if (text.length() >= length)
+      return text;
+    StringBuilder padded = new StringBuilder(length + 16).append(text);
+    while (padded.length() < length)
+      padded.append(" lorem ipsum");
+    return padded.substring(0, length);
+  }
+}
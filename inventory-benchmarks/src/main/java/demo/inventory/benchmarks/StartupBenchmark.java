@@ -0,0 +1,56 @@
+package demo.inventory.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import demo.inventory.StartupPhases;
+
+/**
+ * A cold start of the service, to ready, in a new JVM each time, with the default profile
+ * and with the 'fast-start' profile (lazy beans, Hibernate bootstrapped in the background).
+ * The time taken by each startup phase is printed on teardown. The 'jvm' phase includes
+ * JMH's own startup, so is not printed.
+ *
+ * Sample data is loaded on startup, as in the 'test' profile.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class StartupBenchmark {
+
+  @Param({"default", "fast-start"})
+  public String profile;
+
+  private ConfigurableApplicationContext context;
+
+  @Benchmark
+  public ConfigurableApplicationContext start() {
+    context = profile.equals("default") ? ServiceContext.start() : ServiceContext.startWithProfile(profile);
+    return context;
+  }
+
+  @TearDown(Level.Iteration)
+  public void tearDown() {
+    Map<String, Long> phases = context.getBean(StartupPhases.class).getPhases();
+    phases.remove("jvm");
+    System.out.println("Startup phases (ms): " + phases);
+    context.close();
+  }
+}
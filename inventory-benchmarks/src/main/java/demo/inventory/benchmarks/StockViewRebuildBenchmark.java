@@ -0,0 +1,74 @@
+package demo.inventory.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import demo.inventory.api.message.InventoryUpdatedNotice;
+import demo.inventory.service.StockView;
+
+/**
+ * Rebuild of the stock view from a compacted stock snapshot topic of a million items: each
+ * record's key and value deserialized as the StockSnapshotTopic consumer does, and applied
+ * to a new view. The records are held in memory, serialized as the service publishes
+ * them, so the time excludes fetching them from the broker.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class StockViewRebuildBenchmark {
+
+  private static final String TOPIC = "inventory-stock";
+
+  @Param({ "1000000" })
+  private int itemCount;
+
+  private byte[][] keys;
+
+  private byte[][] values;
+
+  private final Deserializer<String> keyDeserializer = new StringDeserializer();
+
+  private final Deserializer<InventoryUpdatedNotice> valueDeserializer =
+      new ErrorHandlingDeserializer<>(new JsonDeserializer<>(InventoryUpdatedNotice.class, false));
+
+  @Setup
+  public void setup() {
+    keys = new byte[itemCount][];
+    values = new byte[itemCount][];
+    try (JsonSerializer<InventoryUpdatedNotice> serializer = new JsonSerializer<>()) {
+      for (int i = 0; i < itemCount; i++) {
+        keys[i] = String.valueOf(i + 1).getBytes(StandardCharsets.UTF_8);
+        values[i] = serializer.serialize(TOPIC, new InventoryUpdatedNotice(i + 1, i % 1000));
+      }
+    }
+  }
+
+  @Benchmark
+  public StockView rebuild() {
+    StockView stockView = new StockView(true);
+    for (int i = 0; i < itemCount; i++)
+      stockView.apply(keyDeserializer.deserialize(TOPIC, keys[i]), valueDeserializer.deserialize(TOPIC, values[i]));
+    stockView.markReady();
+    return stockView;
+  }
+}
@@ -0,0 +1,29 @@
+package demo.inventory.benchmarks;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Draws ranks 0..n-1 with probability proportional to 1/(rank+1)^s, so that a few low ranks
+ * take most draws, as the most popular items take most orders.
+ */
+final class ZipfGenerator {
+
+  private final double[] cumulative;
+
+  ZipfGenerator(int n, double s) {
+    cumulative = new double[n];
+    double sum = 0;
+    for (int rank = 0; rank < n; rank++) {
+      sum += 1.0 / Math.pow(rank + 1, s);
+      cumulative[rank] = sum;
+    }
+    for (int rank = 0; rank < n; rank++)
+      cumulative[rank] /= sum;
+  }
+
+  int next() {
+    int rank = Arrays.binarySearch(cumulative, ThreadLocalRandom.current().nextDouble());
+    return Math.min(rank >= 0 ? rank : -rank - 1, cumulative.length - 1);
+  }
+}
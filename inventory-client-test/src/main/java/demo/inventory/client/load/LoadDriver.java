@@ -0,0 +1,170 @@
+package demo.inventory.client.load;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import demo.inventory.api.model.InventoryItemModel;
+
+/**
+ * Drives sustained, open-loop load against a running inventory-service, and reports
+ * latency percentiles and throughput for each request type:
+ *
+ *   reads   GET  /demo/inventory/item/{id}, over all items present at start
+ *   creates POST /demo/inventory/item
+ *   orders  POST /demo/util/order, an order of one unit of a random item ('dev' profile)
+ *
+ * Settings are system properties:
+ *
+ *   serverUri       http://localhost:8080
+ *   reads.rate      requests per second, 0 to skip (default 200)
+ *   creates.rate    (default 10)
+ *   orders.rate     (default 100)
+ *   duration        seconds of measured load (default 60)
+ *   warmup          seconds of load before measuring (default 10)
+ *   workers         concurrent requests at most (default 64)
+ *   reportDir       (default target/load-reports)
+ *
+ * Every 'interval' seconds (default 10) a line per request type is logged. At the end,
+ * a summary and the full latency distribution of each request type (HdrHistogram .hgrm
+ * format, for plotting) are written to the report directory. The summary includes the
+ * service's peak heap and threads over their level before load (see ServerSampler).
+ */
+public class LoadDriver {
+  private static final Logger log = LoggerFactory.getLogger(LoadDriver.class);
+
+  private static final String resourcePath = "/demo/inventory/item";
+  private static final String orderPath = "/demo/util/order";
+  private static final int pageSize = 1000;
+
+  public static void main(String[] args) throws Exception {
+
+    String serverUri = System.getProperty("serverUri", "http://localhost:8080");
+    int duration = Integer.getInteger("duration", 60);
+    int warmup = Integer.getInteger("warmup", 10);
+    int interval = Integer.getInteger("interval", 10);
+    int workerCount = Integer.getInteger("workers", 64);
+    File reportDir = new File(System.getProperty("reportDir", "target/load-reports"));
+
+    SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+    requestFactory.setConnectTimeout(5000);
+    requestFactory.setReadTimeout(30000);
+    RestTemplate restTemplate = new RestTemplate(requestFactory);
+
+    // Keep-alive connections are pooled per worker thread by the JDK
+    System.setProperty("http.maxConnections", String.valueOf(workerCount));
+
+    List<Long> itemIds = loadItemIds(restTemplate, serverUri);
+    if (itemIds.isEmpty())
+      throw new IllegalStateException("No items found at " + serverUri + resourcePath);
+    log.info(String.format("Driving load against %s, over %d items", serverUri, itemIds.size()));
+
+    List<LoadScenario> scenarios = Arrays.asList(
+        new LoadScenario("reads", rate("reads.rate", 200), () ->
+            restTemplate.getForObject(serverUri + resourcePath + "/" + randomItem(itemIds), String.class)),
+        new LoadScenario("creates", rate("creates.rate", 10), () ->
+            restTemplate.postForLocation(serverUri + resourcePath, newItem())),
+        new LoadScenario("orders", rate("orders.rate", 100), () ->
+            restTemplate.postForLocation(serverUri + orderPath + "?itemId=" + randomItem(itemIds) + "&count=1", null)));
+
+    ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(scenarios.size() + 1);
+    ExecutorService workers = Executors.newFixedThreadPool(workerCount);
+
+    ServerSampler sampler = new ServerSampler(restTemplate, serverUri);
+    sampler.start(scheduler);
+    scenarios.forEach(scenario -> scenario.start(scheduler, workers));
+
+    log.info(String.format("Warming up for %d seconds", warmup));
+    TimeUnit.SECONDS.sleep(warmup);
+    scenarios.forEach(LoadScenario::reset);
+    LoadReport report = new LoadReport(scenarios);
+
+    for (int elapsed = 0; elapsed < duration; elapsed += interval) {
+      TimeUnit.SECONDS.sleep(Math.min(interval, duration - elapsed));
+      report.logInterval(log);
+    }
+
+    scenarios.forEach(LoadScenario::stop);
+    sampler.stop();
+    scheduler.shutdown();
+    workers.shutdownNow();
+
+    writeReport(report, sampler, workerCount, reportDir, serverUri, duration);
+  }
+
+  private static void writeReport(LoadReport report, ServerSampler sampler, int connections, File reportDir,
+      String serverUri, int duration) throws IOException {
+    reportDir.mkdirs();
+    String timestamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+
+    File summary = new File(reportDir, "load-report-" + timestamp + ".txt");
+    try (PrintStream out = new PrintStream(summary, "UTF-8")) {
+      out.println("Load against " + serverUri + " for " + duration + " seconds, at " + timestamp);
+      report.printSummary(out);
+      sampler.printSummary(out, connections);
+    }
+    report.printSummary(System.out);
+    sampler.printSummary(System.out, connections);
+
+    for (LoadScenario scenario : report.getScenarios())
+      try (PrintStream out = new PrintStream(new File(reportDir, "load-report-" + timestamp + "-" + scenario.getName() + ".hgrm"), "UTF-8")) {
+        scenario.total().outputPercentileDistribution(out, 1000000.0);  // in millis
+      }
+
+    log.info("Wrote report: " + summary);
+  }
+
+  /*
+   * Walk the keyset pages of item ids, 'pageSize' at a time, to the last.
+   */
+  private static List<Long> loadItemIds(RestTemplate restTemplate, String serverUri) {
+    List<Long> itemIds = new ArrayList<>();
+    long after = 0;
+    JsonNode slice;
+    do {
+      slice = restTemplate.getForObject(serverUri + resourcePath + "?after=" + after + "&size=" + pageSize + "&fields=id",
+          JsonNode.class);
+      slice.path("content").forEach(item -> itemIds.add(item.path("id").asLong()));
+      if (!itemIds.isEmpty())
+        after = itemIds.get(itemIds.size() - 1);
+    }
+    while (slice.path("content").size() > 0 && !slice.path("last").asBoolean(true));
+    return itemIds;
+  }
+
+  private static double rate(String name, double defaultRate) {
+    return Double.parseDouble(System.getProperty(name, String.valueOf(defaultRate)));
+  }
+
+  private static long randomItem(List<Long> itemIds) {
+    return itemIds.get(ThreadLocalRandom.current().nextInt(itemIds.size()));
+  }
+
+  private static InventoryItemModel newItem() {
+    return new InventoryItemModel(
+        "Load test item", 
+        "Created by the load driver", 
+        new BigDecimal("9.99"), 
+        "Load test item", 
+        "item.jpg", 
+        1000);
+  }
+}
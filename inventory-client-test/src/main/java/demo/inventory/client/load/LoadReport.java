@@ -0,0 +1,70 @@
+package demo.inventory.client.load;
+
+import java.io.PrintStream;
+import java.util.List;
+
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+
+/**
+ * Latency percentiles (in millis) and throughput of each load scenario, per interval and
+ * for the whole measured period.
+ */
+class LoadReport {
+
+  private static final double NANOS_PER_MILLI = 1000000.0;
+
+  private final List<LoadScenario> scenarios;
+
+  private final long startNanos = System.nanoTime();
+
+  private long intervalStartNanos = startNanos;
+
+  LoadReport(List<LoadScenario> scenarios) {
+    this.scenarios = scenarios;
+  }
+
+  List<LoadScenario> getScenarios() {
+    return scenarios;
+  }
+
+  void logInterval(Logger log) {
+    long now = System.nanoTime();
+    double seconds = (now - intervalStartNanos) / 1e9;
+    intervalStartNanos = now;
+
+    for (LoadScenario scenario : scenarios) {
+      Histogram interval = scenario.interval();
+      log.info(String.format("%-8s %8.1f/s  p50 %8.2f  p99 %8.2f  max %8.2f ms  errors %d",
+          scenario.getName(), interval.getTotalCount() / seconds,
+          millis(interval.getValueAtPercentile(50)),
+          millis(interval.getValueAtPercentile(99)),
+          millis(interval.getMaxValue()),
+          scenario.getErrors()));
+    }
+  }
+
+  void printSummary(PrintStream out) {
+    double seconds = (intervalStartNanos - startNanos) / 1e9;
+
+    out.println(String.format("%-8s %10s %10s %10s %10s %10s %10s %10s %10s %8s",
+        "request", "target/s", "actual/s", "p50", "p90", "p99", "p99.9", "max", "count", "errors"));
+    for (LoadScenario scenario : scenarios) {
+      Histogram total = scenario.total();
+      out.println(String.format("%-8s %10.1f %10.1f %10.2f %10.2f %10.2f %10.2f %10.2f %10d %8d",
+          scenario.getName(), scenario.getRatePerSecond(), total.getTotalCount() / seconds,
+          millis(total.getValueAtPercentile(50)),
+          millis(total.getValueAtPercentile(90)),
+          millis(total.getValueAtPercentile(99)),
+          millis(total.getValueAtPercentile(99.9)),
+          millis(total.getMaxValue()),
+          total.getTotalCount(),
+          scenario.getErrors()));
+    }
+    out.println("(latency in millis, from each request's scheduled start)");
+  }
+
+  private static double millis(long nanos) {
+    return nanos / NANOS_PER_MILLI;
+  }
+}
@@ -0,0 +1,119 @@
+package demo.inventory.client.load;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * A request type driven at a fixed rate, regardless of how quickly responses arrive
+ * (an open loop). Each request has an intended start time on the schedule, and its latency
+ * is measured from that time, not from when a worker became free to send it. Time spent
+ * queued behind slow requests is therefore counted, rather than hidden by a client that
+ * slows down with the server.
+ */
+class LoadScenario {
+
+  private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+  private final String name;
+
+  private final double ratePerSecond;
+
+  private final Runnable request;
+
+  private final Recorder recorder = new Recorder(HIGHEST_TRACKABLE_NANOS, 3);
+
+  private final Histogram total = new Histogram(HIGHEST_TRACKABLE_NANOS, 3);
+
+  private final AtomicLong errors = new AtomicLong();
+
+  private ScheduledFuture<?> schedule;
+
+  /**
+   * @param request sends one request, and throws on an error response
+   */
+  LoadScenario(String name, double ratePerSecond, Runnable request) {
+    this.name = name;
+    this.ratePerSecond = ratePerSecond;
+    this.request = request;
+  }
+
+  String getName() {
+    return name;
+  }
+
+  double getRatePerSecond() {
+    return ratePerSecond;
+  }
+
+  long getErrors() {
+    return errors.get();
+  }
+
+  /**
+   * Start issuing requests at the scenario rate, each on one of the given workers.
+   */
+  void start(ScheduledExecutorService scheduler, ExecutorService workers) {
+    if (ratePerSecond <= 0)
+      return;
+
+    final long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+    final long startNanos = System.nanoTime();
+    final AtomicLong count = new AtomicLong();
+
+    // Tick at most every millisecond, issuing every request due since the last tick
+    long tickNanos = Math.max(intervalNanos, TimeUnit.MILLISECONDS.toNanos(1));
+    schedule = scheduler.scheduleAtFixedRate(() -> {
+      long now = System.nanoTime();
+      long due = (now - startNanos) / intervalNanos;
+      for (long i = count.get(); i < due; i = count.incrementAndGet()) {
+        long intendedNanos = startNanos + i * intervalNanos;
+        workers.execute(() -> send(intendedNanos));
+      }
+    }, 0, tickNanos, TimeUnit.NANOSECONDS);
+  }
+
+  void stop() {
+    if (schedule != null)
+      schedule.cancel(false);
+  }
+
+  /**
+   * Discard everything recorded so far, such as during warm up.
+   */
+  void reset() {
+    recorder.reset();
+    total.reset();
+    errors.set(0);
+  }
+
+  /**
+   * @return the latencies recorded since the last call, also added to the total
+   */
+  Histogram interval() {
+    Histogram interval = recorder.getIntervalHistogram();
+    total.add(interval);
+    return interval;
+  }
+
+  Histogram total() {
+    return total;
+  }
+
+  private void send(long intendedNanos) {
+    try {
+      request.run();
+    }
+    catch (RuntimeException ex) {
+      errors.incrementAndGet();
+    }
+    finally {
+      recorder.recordValue(Math.min(System.nanoTime() - intendedNanos, HIGHEST_TRACKABLE_NANOS));
+    }
+  }
+}
@@ -0,0 +1,94 @@
+package demo.inventory.client.load;
+
+import java.io.PrintStream;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Samples the heap used and the live threads of the service under load, from its
+ * actuator metrics endpoint, to compare what each concurrent connection costs the
+ * servlet and 'reactive' stacks. The baseline is sampled before load starts.
+ */
+class ServerSampler {
+
+  private static final String metricsPath = "/demo/actuator/metrics/";
+
+  private final RestTemplate restTemplate;
+
+  private final String serverUri;
+
+  private double baselineHeap;
+
+  private double baselineThreads;
+
+  private double peakHeap;
+
+  private double peakThreads;
+
+  private ScheduledFuture<?> schedule;
+
+  ServerSampler(RestTemplate restTemplate, String serverUri) {
+    this.restTemplate = restTemplate;
+    this.serverUri = serverUri;
+  }
+
+  /**
+   * Sample the baseline, then sample every second until stopped.
+   */
+  void start(ScheduledExecutorService scheduler) {
+    baselineHeap = heapUsed();
+    baselineThreads = liveThreads();
+    schedule = scheduler.scheduleAtFixedRate(this::sample, 1, 1, TimeUnit.SECONDS);
+  }
+
+  void stop() {
+    if (schedule != null)
+      schedule.cancel(false);
+  }
+
+  /**
+   * Print peak heap and threads over the baseline, in total and per connection.
+   */
+  synchronized void printSummary(PrintStream out, int connections) {
+    if (peakHeap == 0) {
+      out.println("(no server metrics at " + serverUri + metricsPath + ")");
+      return;
+    }
+    double heapMB = (peakHeap - baselineHeap) / (1024 * 1024);
+    double threads = peakThreads - baselineThreads;
+    out.println(String.format("server   heap +%.1f MB (%.1f KB per connection), threads +%.0f (%.2f per connection), at %d connections",
+        heapMB, heapMB * 1024 / connections, threads, threads / connections, connections));
+  }
+
+  private synchronized void sample() {
+    peakHeap = Math.max(peakHeap, heapUsed());
+    peakThreads = Math.max(peakThreads, liveThreads());
+  }
+
+  private double heapUsed() {
+    return metric("jvm.memory.used?tag=area:heap");
+  }
+
+  private double liveThreads() {
+    return metric("jvm.threads.live");
+  }
+
+  /*
+   * The value of a metric, or 0 if the service does not expose metrics
+   */
+  private double metric(String name) {
+    try {
+      JsonNode metric = restTemplate.getForObject(serverUri + metricsPath + name, JsonNode.class);
+      return metric.path("measurements").path(0).path("value").asDouble();
+    }
+    catch (RestClientException ex) {
+      return 0;
+    }
+  }
+}
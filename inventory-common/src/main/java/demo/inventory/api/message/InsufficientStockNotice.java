@@ -0,0 +1,54 @@
+/*
+ *   Copyright 2019 IBM Corporation.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package demo.inventory.api.message;
+
+/**
+ * Reply to an order that was not applied, because it would take the item's stock below
+ * zero.
+ */
+public class InsufficientStockNotice {
+    long itemId;
+    long currentStockUnits;
+
+    public InsufficientStockNotice() {
+    }
+
+    public InsufficientStockNotice(long itemId, long currentStockUnits) {
+        this.itemId = itemId;
+        this.currentStockUnits = currentStockUnits;
+    }
+
+    public long getItemId() {
+        return itemId;
+    }
+
+    public void setItemId(long itemId) {
+        this.itemId = itemId;
+    }
+
+    public long getCurrentStockUnits() {
+        return currentStockUnits;
+    }
+
+    public void setCurrentStockUnits(long currentStockUnits) {
+        this.currentStockUnits = currentStockUnits;
+    }
+
+    @Override
+    public String toString() {
+      return "InsufficientStockNotice [itemId=" + itemId + ", currentStockUnits=" + currentStockUnits + "]";
+    }
+}
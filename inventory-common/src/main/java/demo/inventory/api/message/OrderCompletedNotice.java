@@ -3,9 +3,13 @@ package demo.inventory.api.message;
 /**
  * This class models a request to order a specified quantity of a specified
  * item from inventory.
+ * 
+ * The optional order id identifies the order across redelivery of the notice.
  */
 public class OrderCompletedNotice {
 
+    String orderId;
+
     long itemId;
 
     int count;
@@ -18,6 +22,20 @@ public class OrderCompletedNotice {
         this.count = count;
     }
 
+    public OrderCompletedNotice(String orderId, long itemId, int count) {
+        this.orderId = orderId;
+        this.itemId = itemId;
+        this.count = count;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(String orderId) {
+        this.orderId = orderId;
+    }
+
     public long getItemId() {
         return itemId;
     }
@@ -36,7 +54,7 @@ public class OrderCompletedNotice {
 
     @Override
     public String toString() {
-      return "OrderCompletedNotice [itemId=" + itemId + ", count=" + count + "]";
+      return "OrderCompletedNotice [orderId=" + orderId + ", itemId=" + itemId + ", count=" + count + "]";
     }
 
 }
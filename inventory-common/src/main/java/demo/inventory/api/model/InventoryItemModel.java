@@ -21,6 +21,9 @@ public class InventoryItemModel {
 
     private int stock;
 
+    // Version of the persisted item; null when unknown
+    private Long version;
+
     public InventoryItemModel() {
     }
 
@@ -93,13 +96,22 @@ public class InventoryItemModel {
         this.stock = value;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
       return "InventoryItemModel [id=" + id 
           + ", name=" + name 
           + ", description=" + description 
           + ", price=" + price
-          + ", stock=" + stock + "]";
+          + ", stock=" + stock 
+          + ", version=" + version + "]";
     }
 
     @Override
@@ -113,6 +125,7 @@ public class InventoryItemModel {
       result = prime * result + ((name == null) ? 0 : name.hashCode());
       result = prime * result + ((price == null) ? 0 : price.hashCode());
       result = prime * result + stock;
+      result = prime * result + ((version == null) ? 0 : version.hashCode());
       return result;
     }
 
@@ -159,6 +172,12 @@ public class InventoryItemModel {
         return false;
       if (stock != other.stock)
         return false;
+      if (version == null) {
+        if (other.version != null)
+          return false;
+      }
+      else if (!version.equals(other.version))
+        return false;
       return true;
     }
 }
\ No newline at end of file
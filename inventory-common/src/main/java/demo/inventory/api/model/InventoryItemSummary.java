@@ -0,0 +1,125 @@
+package demo.inventory.api.model;
+
+import java.math.BigDecimal;
+
+/**
+ * The fields of an inventory item shown in a list view: the item without its description,
+ * image alt text and version.
+ */
+public class InventoryItemSummary {
+
+    private long id;
+
+    private String name;
+
+    private BigDecimal price;
+
+    private String img;
+
+    private int stock;
+
+    public InventoryItemSummary() {
+    }
+
+    public InventoryItemSummary(long id, String name, BigDecimal price, String img, int stock) {
+        this.id = id;
+        this.name = name;
+        this.price = price;
+        this.img = img;
+        this.stock = stock;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long value) {
+        this.id = value;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String value) {
+        this.name = value;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public void setPrice(BigDecimal value) {
+        this.price = value;
+    }
+
+    public String getImg() {
+        return img;
+    }
+
+    public void setImg(String img) {
+        this.img = img;
+    }
+
+    public int getStock() {
+        return stock;
+    }
+
+    public void setStock(int value) {
+        this.stock = value;
+    }
+
+    @Override
+    public String toString() {
+      return "InventoryItemSummary [id=" + id
+          + ", name=" + name
+          + ", price=" + price
+          + ", stock=" + stock + "]";
+    }
+
+    @Override
+    public int hashCode() {
+      final int prime = 31;
+      int result = 1;
+      result = prime * result + (int) (id ^ (id >>> 32));
+      result = prime * result + ((img == null) ? 0 : img.hashCode());
+      result = prime * result + ((name == null) ? 0 : name.hashCode());
+      result = prime * result + ((price == null) ? 0 : price.hashCode());
+      result = prime * result + stock;
+      return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj)
+        return true;
+      if (obj == null)
+        return false;
+      if (getClass() != obj.getClass())
+        return false;
+      InventoryItemSummary other = (InventoryItemSummary) obj;
+      if (id != other.id)
+        return false;
+      if (img == null) {
+        if (other.img != null)
+          return false;
+      }
+      else if (!img.equals(other.img))
+        return false;
+      if (name == null) {
+        if (other.name != null)
+          return false;
+      }
+      else if (!name.equals(other.name))
+        return false;
+      if (price == null) {
+        if (other.price != null)
+          return false;
+      }
+      else if (!price.equals(other.price))
+        return false;
+      if (stock != other.stock)
+        return false;
+      return true;
+    }
+}
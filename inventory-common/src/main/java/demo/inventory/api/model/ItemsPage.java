@@ -0,0 +1,72 @@
+package demo.inventory.api.model;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * A compact page of items: the items, and, if there are more, a 'cursor' (the id of the
+ * last item, for the 'after' parameter) and a 'next' page link. 'total' is the count of
+ * all items, if requested. Absent values are omitted.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ItemsPage<T> {
+
+    private List<T> items;
+
+    private Long cursor;
+
+    private String next;
+
+    private Long total;
+
+    public ItemsPage() {
+    }
+
+    public ItemsPage(List<T> items, Long cursor, String next, Long total) {
+        this.items = items;
+        this.cursor = cursor;
+        this.next = next;
+        this.total = total;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+
+    public Long getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(Long cursor) {
+        this.cursor = cursor;
+    }
+
+    public String getNext() {
+        return next;
+    }
+
+    public void setNext(String next) {
+        this.next = next;
+    }
+
+    public Long getTotal() {
+        return total;
+    }
+
+    public void setTotal(Long total) {
+        this.total = total;
+    }
+
+    @Override
+    public String toString() {
+      return "ItemsPage [items=" + (items == null ? 0 : items.size())
+          + ", cursor=" + cursor
+          + ", next=" + next
+          + ", total=" + total + "]";
+    }
+}
@@ -9,5 +9,52 @@ create table items (
   description varchar(1800) not null,
   price decimal(8,2) not null,
   img_alt varchar(75),
-  img varchar(50) not null
+  img varchar(50) not null,
+  version bigint not null default 0
+);
+
+-- Search by name prefix and by price range (see InventoryItem)
+create index items_name_idx on items (name);
+create index items_price_idx on items (price);
+
+-- Alternative 'items' table for use with META-INF/orm-pooled-ids.xml, where ids are
+-- allocated by the application from a sequence, in blocks of 50.
+--
+-- create sequence items_seq as int start with 13401 increment by 50;
+--
+-- create table items (
+--   id int not null primary key,
+--   stock int not null,
+--   name varchar(100) not null,
+--   description varchar(1800) not null,
+--   price decimal(8,2) not null,
+--   img_alt varchar(75),
+--   img varchar(50) not null,
+--   version bigint not null default 0
+-- );
+
+-- To add the optimistic lock version to an existing 'items' table:
+--
+-- alter table items add column version bigint not null default 0;
+
+-- Record of order notifications applied to 'items', used to ignore redelivery.
+create table processed_orders (
+  message_key varchar(128) not null primary key,
+  processed_at timestamp not null
+);
+
+-- Outbox of 'inventory' notices, written with the stock change and published in id order.
+create table notice_outbox (
+  id bigint not null generated always as identity primary key,
+  item_id bigint not null,
+  notice_type varchar(64) not null,
+  payload varchar(1024) not null,
+  created_at timestamp not null
+);
+
+-- Lease naming the one instance that relays 'notice_outbox'; a single row, id 1.
+create table outbox_relay_lease (
+  id integer not null primary key,
+  owner varchar(128) not null,
+  expires_at timestamp not null
 );
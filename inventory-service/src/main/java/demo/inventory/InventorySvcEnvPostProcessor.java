@@ -13,6 +13,7 @@ public class InventorySvcEnvPostProcessor implements EnvironmentPostProcessor {
 
     private static final String SECRETS_ENABLED_PROPERTY = "spring.cloud.kubernetes.secrets.enabled";
     private static final String SECRETS_PATHS_PROPERTY = "spring.cloud.kubernetes.secrets.paths";
+    private static final String REPLICA_ENABLED_PROPERTY = "inventory.replica.enabled";
 
     /**
      * Print out key config properties that may be used during Spring init
@@ -25,7 +26,8 @@ public class InventorySvcEnvPostProcessor implements EnvironmentPostProcessor {
 
         String[] plist = {
                 SECRETS_ENABLED_PROPERTY,
-                SECRETS_PATHS_PROPERTY
+                SECRETS_PATHS_PROPERTY,
+                REPLICA_ENABLED_PROPERTY
         };
 
         for (String pname : plist)
@@ -0,0 +1,105 @@
+package demo.inventory;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationContextInitializedEvent;
+import org.springframework.boot.context.event.ApplicationPreparedEvent;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.boot.context.event.ApplicationStartingEvent;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.Ordered;
+
+/**
+ * Records the time taken by each phase of startup, from the application events, for the
+ * 'startup' actuator endpoint (see StartupEndpoint):
+ *
+ * - jvm: from JVM start to SpringApplication.run,
+ * - environment: configuration files, the Spring Cloud bootstrap context (Kubernetes
+ *   secrets), context creation and initializers,
+ * - context: loading of bean definitions,
+ * - refresh: bean creation, Hibernate and Kafka setup, and web server start,
+ * - ready: ApplicationStartedEvent listeners (sample data loading) and runners.
+ *
+ * Registered in META-INF/spring.factories, so that it sees the events published before the
+ * context exists, and added to the context as the 'startupPhases' bean.
+ *
+ * If 'inventory.startup.exit-when-ready' is true, the application exits once ready, as for
+ * a class data sharing training run.
+ */
+public class StartupPhases implements ApplicationListener<ApplicationEvent>, Ordered {
+
+    static final Logger logger = LoggerFactory.getLogger(StartupPhases.class);
+
+    private final long jvmStartTime = ManagementFactory.getRuntimeMXBean().getStartTime();
+
+    private final Map<String, Long> phaseEndTimes = new LinkedHashMap<>();
+
+    private ConfigurableApplicationContext context;
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationEvent event) {
+        if (event instanceof ApplicationStartingEvent) {
+            end("jvm");
+        }
+        else if (event instanceof ApplicationContextInitializedEvent) {
+            end("environment");
+        }
+        else if (event instanceof ApplicationPreparedEvent) {
+            end("context");
+            context = ((ApplicationPreparedEvent) event).getApplicationContext();
+            context.getBeanFactory().registerSingleton("startupPhases", this);
+        }
+        // events of a child context are published to its parent's listeners too
+        else if (event instanceof ApplicationStartedEvent && ((ApplicationStartedEvent) event).getApplicationContext() == context) {
+            end("refresh");
+        }
+        else if (event instanceof ApplicationReadyEvent && ((ApplicationReadyEvent) event).getApplicationContext() == context) {
+            end("ready");
+            logger.info("Started in {}ms: {}", getTotal(), getPhases());
+            if (context.getEnvironment().getProperty("inventory.startup.exit-when-ready", Boolean.class, false)) {
+                logger.info("Exiting once ready (inventory.startup.exit-when-ready)");
+                System.exit(SpringApplication.exit(context));
+            }
+        }
+    }
+
+    private synchronized void end(String phase) {
+        phaseEndTimes.put(phase, System.currentTimeMillis());
+    }
+
+    /**
+     * @return the millis taken by each phase ended so far, in order
+     */
+    public synchronized Map<String, Long> getPhases() {
+        Map<String, Long> phases = new LinkedHashMap<>();
+        long start = jvmStartTime;
+        for (Map.Entry<String, Long> phaseEnd : phaseEndTimes.entrySet()) {
+            phases.put(phaseEnd.getKey(), phaseEnd.getValue() - start);
+            start = phaseEnd.getValue();
+        }
+        return phases;
+    }
+
+    /**
+     * @return the millis from JVM start to the end of the last phase ended so far
+     */
+    public synchronized long getTotal() {
+        long end = jvmStartTime;
+        for (long phaseEnd : phaseEndTimes.values())
+            end = phaseEnd;
+        return end - jvmStartTime;
+    }
+}
@@ -0,0 +1,32 @@
+package demo.inventory.api.messaging;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Event that is fired when an item is created, updated or deleted through the inventory
+ * service, once the change is committed.
+ */
+public final class ItemStockChangedEvent extends ApplicationEvent {
+
+  private static final long serialVersionUID = 1L;
+
+  private long itemId;
+  private Long currentStockUnits;
+
+  public ItemStockChangedEvent(Object source, long itemId, Long currentStockUnits) {
+    super(source);
+    this.itemId = itemId;
+    this.currentStockUnits = currentStockUnits;
+  }
+
+  public long getItemId() {
+    return itemId;
+  }
+  /**
+   * @return the item's stock, or null if the item was deleted
+   */
+  public Long getCurrentStockUnits() {
+    return currentStockUnits;
+  }
+
+}
@@ -0,0 +1,35 @@
+package demo.inventory.api.messaging;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Selects every Nth of a stream of events for logging, for a given sample rate: 1 logs
+ * every event, 0.01 one in a hundred, and 0 none. Selection is by count rather than at
+ * random, so it costs one atomic increment.
+ */
+public final class LogSampler {
+
+  private final long interval;
+
+  private final AtomicLong count = new AtomicLong();
+
+  public LogSampler(double rate) {
+    if (rate < 0 || rate > 1)
+      throw new IllegalArgumentException("Sample rate must be from 0 to 1: " + rate);
+    this.interval = rate == 0 ? 0 : Math.round(1 / rate);
+  }
+
+  /**
+   * @return the count of events per event sampled, or 0 if none are sampled
+   */
+  public long getInterval() {
+    return interval;
+  }
+
+  /**
+   * @return whether to log this event
+   */
+  public boolean sample() {
+    return interval != 0 && count.getAndIncrement() % interval == 0;
+  }
+}
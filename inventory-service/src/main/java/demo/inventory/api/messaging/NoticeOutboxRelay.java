@@ -0,0 +1,188 @@
+package demo.inventory.api.messaging;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.concurrent.ListenableFuture;
+
+import demo.inventory.persistence.OutboxNotice;
+import demo.inventory.service.NoticeOutbox;
+import demo.inventory.service.OrderMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+
+/**
+ * Publishes the notices written to the {@link NoticeOutbox} to the 'inventory' topic.
+ *
+ * Each pass reads a batch of the oldest notices, sends them keyed by item id, and waits
+ * for the broker to acknowledge them. Notices are removed from the outbox only once
+ * acknowledged, up to the first failed send; the rest are sent again on the next pass,
+ * in the same order. Delivery is therefore at least once, and the notices for an item
+ * arrive in the order written.
+ *
+ * Every service instance runs a relay, but only the holder of the relay lease (see
+ * NoticeOutbox) relays; the others check the lease each pass, and take it over once it
+ * lapses, after 'events.api.inventory.outbox.lease'. The holder renews it before each
+ * batch, so the notices for an item are never sent by two instances at once. A relay that
+ * stops after sending a batch but before removing it leaves the batch to be sent again;
+ * consumers of 'inventory' notices should expect duplicates.
+ *
+ * Notices are sent by the relay's own producer, which batches and compresses them (see
+ * 'events.api.inventory.outbox.producer'), so that other sends are not delayed by lingering.
+ *
+ * Metrics:
+ *   inventory.outbox.lag          age of the oldest unsent notice, at the last pass
+ *   inventory.outbox.batch.size   notices read per pass
+ *   inventory.outbox.sent         notices acknowledged
+ *
+ * Each send is also timed as the 'reply' stage of {@link OrderMetrics}.
+ */
+@Component
+@ConditionalOnProperty(name = "events.api.inventory.outbox.enabled", havingValue = "true")
+public class NoticeOutboxRelay {
+    private Logger logger = LoggerFactory.getLogger(NoticeOutboxRelay.class);
+
+    @Value(value = "${events.api.inventory.topic}")
+    private String inventoryTopicName;
+
+    @Value(value = "${events.api.inventory.outbox.batch-size}")
+    private int batchSize;
+
+    @Value(value = "${events.api.inventory.outbox.send-timeout}")
+    private Duration sendTimeout;
+
+    @Value(value = "${events.api.inventory.outbox.lease}")
+    private Duration lease;
+
+    private final String leaseOwner = UUID.randomUUID().toString();
+
+    private final NoticeOutbox noticeOutbox;
+
+    private final DefaultKafkaProducerFactory<String, Object> producerFactory;
+
+    private final KafkaOperations<String, Object> kafkaOperations;
+
+    private final AtomicLong lagMillis = new AtomicLong();
+
+    private final DistributionSummary batchSizes;
+
+    private final Counter sentNotices;
+
+    private final OrderMetrics orderMetrics;
+
+    public NoticeOutboxRelay(NoticeOutbox noticeOutbox, KafkaProperties kafkaProperties,
+            @Value("${events.api.inventory.outbox.producer.linger-ms}") int lingerMs,
+            @Value("${events.api.inventory.outbox.producer.batch-size}") int producerBatchSize,
+            @Value("${events.api.inventory.outbox.producer.compression-type}") String compressionType,
+            OrderMetrics orderMetrics, MeterRegistry meterRegistry) {
+        this.noticeOutbox = noticeOutbox;
+        this.orderMetrics = orderMetrics;
+
+        Map<String, Object> producerProps = kafkaProperties.buildProducerProperties();
+        producerProps.put(ProducerConfig.CLIENT_ID_CONFIG, producerProps.getOrDefault(ProducerConfig.CLIENT_ID_CONFIG, "inventory-service") + "-outbox");
+        producerProps.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        producerProps.put(ProducerConfig.BATCH_SIZE_CONFIG, producerBatchSize);
+        producerProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType);
+        producerProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);  // keep per-partition order across retries
+        this.producerFactory = new DefaultKafkaProducerFactory<>(producerProps);
+        this.kafkaOperations = new KafkaTemplate<>(producerFactory);
+
+        TimeGauge.builder("inventory.outbox.lag", lagMillis, TimeUnit.MILLISECONDS, AtomicLong::doubleValue)
+            .description("Age of the oldest unsent notice in the outbox")
+            .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("inventory.outbox.batch.size")
+            .description("Notices read from the outbox per relay pass")
+            .register(meterRegistry);
+        this.sentNotices = Counter.builder("inventory.outbox.sent")
+            .description("Notices sent from the outbox and acknowledged")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Drain the outbox, a batch at a time, until it is empty or a send fails.
+     */
+    @Scheduled(fixedDelayString = "${events.api.inventory.outbox.poll-interval}")
+    public void relay() {
+        int sent;
+        do {
+            if (!noticeOutbox.acquireLease(leaseOwner, lease))
+                return;
+            sent = relayBatch();
+        }
+        while (sent == batchSize);
+    }
+
+    @PreDestroy
+    public void close() {
+        noticeOutbox.releaseLease(leaseOwner);
+        producerFactory.destroy();
+    }
+
+    /*
+     * @return the count of notices sent and removed from the outbox
+     */
+    int relayBatch() {
+
+        List<OutboxNotice> outboxNotices = noticeOutbox.peek(batchSize);
+        batchSizes.record(outboxNotices.size());
+
+        if (outboxNotices.isEmpty()) {
+            lagMillis.set(0);
+            return 0;
+        }
+        lagMillis.set(Duration.between(outboxNotices.get(0).getCreatedAt(), Instant.now()).toMillis());
+
+        List<ListenableFuture<SendResult<String, Object>>> results = new ArrayList<>(outboxNotices.size());
+        for (OutboxNotice outboxNotice : outboxNotices)
+            results.add(orderMetrics.getReplyTimer().record(() -> kafkaOperations.send(inventoryTopicName,
+                String.valueOf(outboxNotice.getItemId()), noticeOutbox.toNotice(outboxNotice))));
+
+        // Sends are accumulated by the producer; push them out as one batch
+        kafkaOperations.flush();
+
+        // Remove the acknowledged notices, up to the first failure
+        List<Long> sentIds = new ArrayList<>(outboxNotices.size());
+        try {
+            for (int i = 0; i < results.size(); i++) {
+                results.get(i).get(sendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+                sentIds.add(outboxNotices.get(i).getId());
+            }
+        }
+        catch (ExecutionException | TimeoutException ex) {
+            logger.error("Unable to send " + outboxNotices.get(sentIds.size()) + " due to : " + ex.getMessage());
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        noticeOutbox.remove(sentIds);
+        sentNotices.increment(sentIds.size());
+
+        logger.debug("Sent {} of {} notices from the outbox", sentIds.size(), outboxNotices.size());
+        return sentIds.size();
+    }
+}
@@ -0,0 +1,230 @@
+package demo.inventory.api.messaging;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Service;
+
+import demo.inventory.api.message.InsufficientStockNotice;
+import demo.inventory.api.message.InvalidOrderNotice;
+import demo.inventory.api.message.InventoryUpdatedNotice;
+import demo.inventory.api.message.OrderCompletedNotice;
+import demo.inventory.service.AppliedOrders;
+import demo.inventory.service.IInventoryService;
+import demo.inventory.service.OrderMetrics;
+import demo.inventory.setup.BatchListenerConfiguration;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * This is a batching alternative to the {@link OrderCompletionListener}, enabled with
+ * 'events.api.orders.batch.enabled'.
+ *
+ * Each poll of 'orders' notifications is aggregated into a count of units per item, and
+ * applied to inventory as a single set-based update within one transaction. As with the
+ * per-record listener, redelivered notifications are ignored. Replies are
+ * then sent for each item in the batch, and the producer is flushed once per batch. When
+ * 'events.api.inventory.outbox.enabled' is true, replies are instead written to the notice
+ * outbox with the stock changes, and sent by the {@link NoticeOutboxRelay}.
+ *
+ * Note that a reply is sent per item rather than per order notification, carrying the
+ * stock level after all orders in the batch for that item were applied. Replies are keyed
+ * by item id.
+ *
+ * With 'events.api.orders.stripes' greater than zero, the orders of a batch are split by
+ * item id across that many worker threads (see {@link StripedExecutor}), each applying its
+ * share in its own transaction. An item is always handled by the same worker, so its
+ * updates are applied in order and never contend for the item's row lock with another
+ * worker, while unrelated items are updated in parallel. The batch completes, and its
+ * offsets are committed, once every worker has finished its share. If a worker fails,
+ * replies are still sent for the shares of the others before the batch fails.
+ *
+ * Each batch is timed by the outcome of its orders (see {@link OrderMetrics#outcomeOf}), and
+ * each reply counted, in {@link OrderMetrics}. The lag
+ * of every record in the batch is recorded once its replies are flushed.
+ *
+ * The batch is acknowledged once its stock changes are written; for write-behind items
+ * (see 'inventory.write-behind') this is after the next flush.
+ */
+@Service
+@ConditionalOnProperty(name = "events.api.orders.batch.enabled", havingValue = "true")
+public class OrderBatchListener {
+    private Logger logger = LoggerFactory.getLogger(OrderBatchListener.class);
+
+    @Autowired
+    protected ApplicationEventPublisher eventPublisher;
+
+    @Value(value = "${events.api.inventory.topic}")
+    private String inventoryTopicName;
+
+    @Value(value = "${events.api.inventory.outbox.enabled}")
+    private boolean outboxEnabled;
+
+    private final IInventoryService inventoryService;
+
+    private final KafkaOperations<String, Object> kafkaOperations;
+
+    private final StripedExecutor stripedExecutor;
+
+    private final OrderMetrics orderMetrics;
+
+    public OrderBatchListener(IInventoryService inventoryService, KafkaOperations<String, Object> kafkaOperations,
+            OrderMetrics orderMetrics, @Value(value = "${events.api.orders.stripes}") int stripes) {
+        this.inventoryService = inventoryService;
+        this.kafkaOperations = kafkaOperations;
+        this.orderMetrics = orderMetrics;
+        this.stripedExecutor = new StripedExecutor(stripes, "order-stripe-");
+    }
+
+    @PreDestroy
+    public void close() {
+        stripedExecutor.close();
+    }
+
+    @KafkaListener(
+        topics = {"${events.api.orders.topic}"},
+        concurrency = "${events.api.orders.listeners}",
+        containerFactory = BatchListenerConfiguration.BATCH_LISTENER_CONTAINER_FACTORY)
+    public void handleOrdersCompleted(List<ConsumerRecord<String, Object>> records, Acknowledgment acknowledgment) {
+        Timer.Sample sample = orderMetrics.startHandling();
+        try {
+            orderMetrics.handled(sample, applyOrders(records, acknowledgment));
+        }
+        catch (RuntimeException ex) {
+            orderMetrics.handled(sample, OrderMetrics.ERROR);
+            throw ex;
+        }
+    }
+
+    /*
+     * @return the outcome of the batch, for OrderMetrics
+     */
+    private String applyOrders(List<ConsumerRecord<String, Object>> records, Acknowledgment acknowledgment) {
+        logger.debug("Received batch of {} records", records.size());
+
+        // Key each notice by its identity, so that redelivered notices are recognized, and
+        // split the notices by the stripe of their item
+        Map<Integer, Map<String, OrderCompletedNotice>> ordersByStripe = new LinkedHashMap<>();
+        for (ConsumerRecord<String, Object> record : records) {
+            if (record.value() instanceof OrderCompletedNotice) {
+                OrderCompletedNotice orderNotice = (OrderCompletedNotice) record.value();
+                ordersByStripe
+                    .computeIfAbsent(stripedExecutor.stripeOf(orderNotice.getItemId()), stripe -> new LinkedHashMap<>())
+                    .put(OrderMessageKeys.messageKey(orderNotice,
+                        record.topic(), record.partition(), record.offset(), record.timestamp()), orderNotice);
+            }
+            else {
+                logger.info("Received unknown : {}", record.value());
+            }
+        }
+
+        if (ordersByStripe.isEmpty()) {
+            inventoryService.whenDurable(acknowledgment::acknowledge);
+            return OrderMetrics.INVALID;
+        }
+
+        List<CompletableFuture<AppliedOrders>> results = new ArrayList<>(ordersByStripe.size());
+        ordersByStripe.forEach((stripe, ordersByMessageKey) -> results.add(
+            stripedExecutor.submitToStripe(stripe, () -> inventoryService.applyOrders(ordersByMessageKey))));
+
+        // Reply for every stripe that committed, even when another failed: its orders are
+        // ignored as duplicates when the batch is redelivered, and not replied to again
+        AppliedOrders batchOrders = null;
+        RuntimeException failure = null;
+        for (CompletableFuture<AppliedOrders> result : results) {
+            AppliedOrders appliedOrders;
+            try {
+                appliedOrders = result.join();
+            }
+            catch (CompletionException ex) {
+                RuntimeException cause = ex.getCause() instanceof RuntimeException ? (RuntimeException) ex.getCause() : ex;
+                if (failure == null)
+                    failure = cause;
+                else
+                    failure.addSuppressed(cause);
+                continue;
+            }
+            reply(appliedOrders);
+            batchOrders = batchOrders == null ? appliedOrders : AppliedOrders.combine(batchOrders, appliedOrders);
+        }
+
+        // Replies are accumulated by the producer; push them out as one batch
+        kafkaOperations.flush();
+
+        if (failure != null)
+            throw failure;
+
+        for (ConsumerRecord<String, Object> record : records)
+            orderMetrics.lag(record.timestamp());
+
+        inventoryService.whenDurable(acknowledgment::acknowledge);
+
+        logger.debug("Updated inventory from {} records, on {} stripes", records.size(), results.size());
+        return OrderMetrics.outcomeOf(batchOrders);
+    }
+
+    private void reply(AppliedOrders appliedOrders) {
+
+        if (!appliedOrders.getDuplicateMessageKeys().isEmpty())
+            logger.info("Ignoring {} redelivered notices", appliedOrders.getDuplicateMessageKeys().size());
+
+        appliedOrders.getStockByItemId().forEach((itemId, currentStockUnits) -> {
+
+            // Internal notification
+            getEventPublisher().publishEvent(new InventoryUpdatedEvent(this.getClass(), itemId, currentStockUnits));
+
+            orderMetrics.notice(OrderMetrics.UPDATED);
+            send(itemId, new InventoryUpdatedNotice(itemId, currentStockUnits));
+        });
+
+        for (Long itemId : appliedOrders.getInvalidItemIds()) {
+            logger.warn("Received OrderCompletedNotice for item that does not exist! [item={}]", itemId);
+
+            // Internal notification
+            getEventPublisher().publishEvent(new InvalidInventoryItemEvent(this.getClass(), itemId));
+
+            orderMetrics.notice(OrderMetrics.INVALID);
+            send(itemId, new InvalidOrderNotice(itemId));
+        }
+
+        appliedOrders.getRejectedStockByItemId().forEach((itemId, availableStockUnits) -> {
+            logger.warn("Rejected OrderCompletedNotice for insufficient stock [item={}, stock={}]", itemId, availableStockUnits);
+
+            // Nothing changed, so there is nothing for the outbox to make atomic; reply directly
+            orderMetrics.notice(OrderMetrics.REJECTED);
+            InsufficientStockNotice notice = new InsufficientStockNotice(itemId, availableStockUnits);
+            orderMetrics.getReplyTimer().record(() ->
+                kafkaOperations.send(inventoryTopicName, String.valueOf(itemId), notice).addCallback(
+                    result -> {},
+                    ex -> logger.error("Unable to send " + notice + " due to : " + ex.getMessage())));
+        });
+    }
+
+    private void send(long itemId, Object notice) {
+        if (outboxEnabled)
+            return;
+        orderMetrics.getReplyTimer().record(() ->
+            kafkaOperations.send(inventoryTopicName, String.valueOf(itemId), notice).addCallback(
+                result -> {},
+                ex -> logger.error("Unable to send " + notice + " due to : " + ex.getMessage())));
+    }
+
+    private ApplicationEventPublisher getEventPublisher() {
+      return eventPublisher;
+    }
+}
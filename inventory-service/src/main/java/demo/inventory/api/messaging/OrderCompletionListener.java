@@ -1,30 +1,58 @@
 package demo.inventory.api.messaging;
 
-import java.util.Map.Entry;
-import java.util.Optional;
+import java.util.Collections;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.kafka.annotation.KafkaHandler;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageHeaders;
 import org.springframework.messaging.handler.annotation.SendTo;
+import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.stereotype.Service;
 
+import demo.inventory.api.message.InsufficientStockNotice;
 import demo.inventory.api.message.InvalidOrderNotice;
 import demo.inventory.api.message.InventoryUpdatedNotice;
 import demo.inventory.api.message.OrderCompletedNotice;
-import demo.inventory.api.model.InventoryItemModel;
+import demo.inventory.service.AppliedOrders;
 import demo.inventory.service.IInventoryService;
+import demo.inventory.service.OrderMetrics;
+import io.micrometer.core.instrument.Timer;
 
 /**
  * This is a Kafka 'orders' notification listener. An order notification includes an inventory
  * item ID and a count of items to remove from inventory. In this example, removing from
  * inventory is implemented by decrementing the persisted count of items in inventory.
+ * 
+ * A notification that is redelivered, by order id or by record offset, is ignored. Replies
+ * are keyed by item id, so that all replies for an item land on one partition, in order.
+ * 
+ * When 'events.api.inventory.outbox.enabled' is true, no reply is returned; the reply is
+ * written to the notice outbox along with the stock change, and sent by the
+ * {@link NoticeOutboxRelay}.
+ * 
+ * Each record is acknowledged once its stock change is written; for write-behind items
+ * (see 'inventory.write-behind') this is after the next flush, not on return.
+ * 
+ * Each call is timed by outcome, and each reply counted and its lag from the record
+ * timestamp recorded, in {@link OrderMetrics}.
+ * 
+ * Orders are logged at INFO for a sample of 'events.api.orders.log-sample-rate' of
+ * records, and all with their headers at DEBUG.
+ * 
+ * This per-record listener is replaced by the {@link OrderBatchListener} when 
+ * 'events.api.orders.batch.enabled' is true.
  */
 @Service
+@ConditionalOnProperty(name = "events.api.orders.batch.enabled", havingValue = "false", matchIfMissing = true)
 @KafkaListener(topics = {"${events.api.orders.topic}"}, concurrency = "${events.api.orders.listeners}")
 public class OrderCompletionListener {
     private Logger logger = LoggerFactory.getLogger(OrderCompletionListener.class);
@@ -32,36 +60,86 @@ public class OrderCompletionListener {
     @Autowired
     protected ApplicationEventPublisher eventPublisher;
 
+    @Value(value = "${events.api.inventory.outbox.enabled}")
+    private boolean outboxEnabled;
+
 
     private final IInventoryService inventoryService;
 
-    public OrderCompletionListener(IInventoryService inventoryService) {
+    private final OrderMetrics orderMetrics;
+
+    private final LogSampler logSampler;
+
+    public OrderCompletionListener(IInventoryService inventoryService, OrderMetrics orderMetrics,
+        @Value(value = "${events.api.orders.log-sample-rate}") double logSampleRate) {
         this.inventoryService = inventoryService;
+        this.orderMetrics = orderMetrics;
+        this.logSampler = new LogSampler(logSampleRate);
     }
 
     @KafkaHandler
     @SendTo("${events.api.inventory.topic}")
-    public Object handleOrderCompleted(OrderCompletedNotice orderNotice, MessageHeaders headers) {
-        logger.info("Received : " + orderNotice + headers.entrySet().stream()
-          .map( entry -> "\n  with header: "+entry.getKey()+" -> "+entry.getValue())
-          .collect(StringBuilder::new, StringBuilder::append, StringBuilder::append));
+    public Message<?> handleOrderCompleted(OrderCompletedNotice orderNotice, MessageHeaders headers, Acknowledgment acknowledgment) {
+        Timer.Sample sample = orderMetrics.startHandling();
+        try {
+            return applyOrder(orderNotice, headers, acknowledgment, sample);
+        }
+        catch (RuntimeException ex) {
+            orderMetrics.handled(sample, OrderMetrics.ERROR);
+            throw ex;
+        }
+    }
+
+    private Message<?> applyOrder(OrderCompletedNotice orderNotice, MessageHeaders headers, Acknowledgment acknowledgment, Timer.Sample sample) {
+        boolean sampled = logSampler.sample();
+        if (logger.isDebugEnabled())
+          logger.debug("Received : {} with headers: {}", orderNotice, headers);
+        else if (sampled)
+          logger.info("Received : {} (1 in {})", orderNotice, logSampler.getInterval());
+
+        Long recordTimestamp = headers.get(KafkaHeaders.RECEIVED_TIMESTAMP, Long.class);
+        String messageKey = OrderMessageKeys.messageKey(orderNotice,
+            headers.get(KafkaHeaders.RECEIVED_TOPIC, String.class),
+            headers.get(KafkaHeaders.RECEIVED_PARTITION_ID, Integer.class),
+            headers.get(KafkaHeaders.OFFSET, Long.class),
+            recordTimestamp);
+
+        AppliedOrders appliedOrders = inventoryService.applyOrders(Collections.singletonMap(messageKey, orderNotice));
+        inventoryService.whenDurable(acknowledgment::acknowledge);
+
+        if (!appliedOrders.getDuplicateMessageKeys().isEmpty()) {
+          logger.info("Ignoring redelivered OrderCompletedNotice [key={}]", messageKey);
+          orderMetrics.handled(sample, OrderMetrics.DUPLICATE);
+
+          // No reply; one was sent when the notice was first applied
+          return null;
+        }
 
         long itemId = orderNotice.getItemId();
-        Optional<InventoryItemModel> optional = inventoryService.getInventoryItem(itemId);
-        if (optional.isPresent()) {
-          logger.info("Found inventory item: " + itemId);
-
-          InventoryItemModel inventoryItem = optional.get();
-          inventoryItem.setStock(inventoryItem.getStock() - orderNotice.getCount());
-          inventoryService.updateInventoryItem(inventoryItem);
-          int currentStockUnits = inventoryItem.getStock();
-          
-          logger.info("Updated inventory for item: " + itemId + ", new stock: " + currentStockUnits);
+        Integer currentStockUnits = appliedOrders.getStockByItemId().get(itemId);
+        if (currentStockUnits != null) {
+          if (sampled)
+            logger.info("Updated inventory for item: {}, new stock: {}", itemId, currentStockUnits);
 
           // Internal notification
           getEventPublisher().publishEvent(new InventoryUpdatedEvent(this.getClass(), itemId, currentStockUnits));
           
-          return new InventoryUpdatedNotice(itemId, currentStockUnits);
+          orderMetrics.handled(sample, OrderMetrics.UPDATED);
+          return reply(itemId, new InventoryUpdatedNotice(itemId, currentStockUnits), OrderMetrics.UPDATED, recordTimestamp);
+        }
+
+        Integer availableStockUnits = appliedOrders.getRejectedStockByItemId().get(itemId);
+        if (availableStockUnits != null) {
+          logger.warn("Rejected OrderCompletedNotice for insufficient stock [item={}, stock={}]", itemId, availableStockUnits);
+
+          orderMetrics.handled(sample, OrderMetrics.REJECTED);
+          orderMetrics.notice(OrderMetrics.REJECTED);
+          orderMetrics.lag(recordTimestamp);
+
+          // Nothing changed, so there is nothing for the outbox to make atomic; reply directly
+          return MessageBuilder.withPayload(new InsufficientStockNotice(itemId, availableStockUnits))
+              .setHeader(KafkaHeaders.MESSAGE_KEY, String.valueOf(itemId))
+              .build();
         }
 
         logger.warn("Received OrderCompletedNotice for item that does not exist! [item={}]", itemId);
@@ -69,12 +147,29 @@ public class OrderCompletionListener {
         // Internal notification
         getEventPublisher().publishEvent(new InvalidInventoryItemEvent(this.getClass(), itemId));
         
-        return new InvalidOrderNotice(itemId);
+        orderMetrics.handled(sample, OrderMetrics.INVALID);
+        return reply(itemId, new InvalidOrderNotice(itemId), OrderMetrics.INVALID, recordTimestamp);
+    }
+
+    /*
+     * The container sends the reply as soon as it is returned, so its lag is recorded here.
+     * With the outbox enabled, this is the lag to the reply being written to the outbox;
+     * 'inventory.outbox.lag' covers the remainder.
+     */
+    private Message<?> reply(long itemId, Object notice, String type, Long recordTimestamp) {
+        orderMetrics.notice(type);
+        orderMetrics.lag(recordTimestamp);
+        if (outboxEnabled)
+          return null;
+        return MessageBuilder.withPayload(notice)
+            .setHeader(KafkaHeaders.MESSAGE_KEY, String.valueOf(itemId))
+            .build();
     }
 
     @KafkaHandler(isDefault = true)
-    public void unknown(Object object) {
-        logger.info("Received unknown : " + object);
+    public void unknown(Object object, Acknowledgment acknowledgment) {
+        logger.info("Received unknown : {}", object);
+        inventoryService.whenDurable(acknowledgment::acknowledge);
     }
 
     private ApplicationEventPublisher getEventPublisher() {
@@ -0,0 +1,21 @@
+package demo.inventory.api.messaging;
+
+import demo.inventory.api.message.OrderCompletedNotice;
+
+/**
+ * Identity of an order notification, for recognizing redelivery. This is the order id
+ * when the producer supplies one, or otherwise the coordinates of the Kafka record. The
+ * record timestamp is included with its coordinates, so that offsets reused by a
+ * recreated topic are not mistaken for redelivery.
+ */
+final class OrderMessageKeys {
+
+  private OrderMessageKeys() {
+  }
+
+  static String messageKey(OrderCompletedNotice orderNotice, String topic, int partition, long offset, long timestamp) {
+    if (orderNotice.getOrderId() != null && !orderNotice.getOrderId().isEmpty())
+      return "order:" + orderNotice.getOrderId();
+    return topic + "-" + partition + "@" + offset + "/" + timestamp;
+  }
+}
@@ -0,0 +1,229 @@
+package demo.inventory.api.messaging;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.stereotype.Component;
+
+import demo.inventory.api.message.InventoryUpdatedNotice;
+import demo.inventory.service.StockView;
+
+/**
+ * Maintains the stock snapshot topic, 'events.api.stock.topic', and the {@link StockView}
+ * built from it.
+ *
+ * The topic is log-compacted and keyed by item id, so that it keeps at least the latest
+ * {@link InventoryUpdatedNotice} of each item. Every change of stock made by this instance -
+ * an order applied, or an item created, updated or deleted - is published to it, a deleted
+ * item as a tombstone (a null value).
+ *
+ * At startup, a consumer outside any group is assigned every partition of the topic and
+ * reads it from the beginning into the view; once it has reached the offsets that were
+ * the end of the topic when it started, the view is ready. The consumer then goes on
+ * following the topic, for the changes made by every instance. Should it fail, the view
+ * is rebuilt from the beginning.
+ *
+ * Snapshots sent by different instances for the same item may arrive out of order, since
+ * each is sent after its own transaction; the view is then corrected by the item's next
+ * change.
+ */
+@Component
+@ConditionalOnProperty(name = "events.api.stock.enabled", havingValue = "true")
+public class StockSnapshotTopic implements SmartLifecycle {
+    private Logger logger = LoggerFactory.getLogger(StockSnapshotTopic.class);
+
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+
+    private static final long RETRY_INTERVAL_MILLIS = 1000;
+
+    private final String stockTopicName;
+
+    private final KafkaOperations<String, Object> kafkaOperations;
+
+    private final KafkaProperties kafkaProperties;
+
+    private final StockView stockView;
+
+    private volatile boolean running;
+
+    private volatile Consumer<String, InventoryUpdatedNotice> consumer;
+
+    private Thread follower;
+
+    public StockSnapshotTopic(@Value("${events.api.stock.topic}") String stockTopicName,
+            KafkaOperations<String, Object> kafkaOperations, KafkaProperties kafkaProperties, StockView stockView) {
+        this.stockTopicName = stockTopicName;
+        this.kafkaOperations = kafkaOperations;
+        this.kafkaProperties = kafkaProperties;
+        this.stockView = stockView;
+    }
+
+    @EventListener
+    public void handleInventoryUpdated(InventoryUpdatedEvent evt) {
+        publish(evt.getItemId(), evt.getCurrentStockUnits());
+    }
+
+    @EventListener
+    public void handleInvalidInventoryItem(InvalidInventoryItemEvent evt) {
+        publish(evt.getItemId(), null);
+    }
+
+    @EventListener
+    public void handleItemStockChanged(ItemStockChangedEvent evt) {
+        publish(evt.getItemId(), evt.getCurrentStockUnits());
+    }
+
+    private void publish(long itemId, Long currentStockUnits) {
+        InventoryUpdatedNotice notice = currentStockUnits == null ? null
+            : new InventoryUpdatedNotice(itemId, currentStockUnits);
+        kafkaOperations.send(stockTopicName, String.valueOf(itemId), notice).addCallback(
+            result -> {},
+            ex -> logger.error("Unable to send stock snapshot of item " + itemId + " due to : " + ex.getMessage()));
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        follower = new Thread(this::follow, "stock-view");
+        follower.setDaemon(true);
+        follower.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        Consumer<String, InventoryUpdatedNotice> current = consumer;
+        if (current != null)
+            current.wakeup();
+        try {
+            follower.join(POLL_TIMEOUT.toMillis() * 4);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void follow() {
+        while (running) {
+            try (Consumer<String, InventoryUpdatedNotice> consumer = createConsumer()) {
+                this.consumer = consumer;
+                rebuildAndFollow(consumer);
+            }
+            catch (WakeupException e) {
+                // stopping
+            }
+            catch (RuntimeException e) {
+                logger.error("Stock view consumer failed; rebuilding", e);
+                sleep(RETRY_INTERVAL_MILLIS);
+            }
+            finally {
+                this.consumer = null;
+            }
+        }
+    }
+
+    private void rebuildAndFollow(Consumer<String, InventoryUpdatedNotice> consumer) {
+        stockView.reset();
+        long startNanos = System.nanoTime();
+
+        List<TopicPartition> partitions = awaitPartitions(consumer);
+        consumer.assign(partitions);
+        consumer.seekToBeginning(partitions);
+        Map<TopicPartition, Long> endOffsets = consumer.endOffsets(partitions);
+
+        long records = 0;
+        while (running) {
+            ConsumerRecords<String, InventoryUpdatedNotice> polled = consumer.poll(POLL_TIMEOUT);
+            for (ConsumerRecord<String, InventoryUpdatedNotice> record : polled)
+                stockView.apply(record.key(), record.value());
+
+            if (!stockView.isReady()) {
+                records += polled.count();
+                if (reachedEnd(consumer, endOffsets)) {
+                    stockView.markReady();
+                    logger.info("Stock view rebuilt from " + records + " snapshots, " + stockView.size() + " items, in "
+                        + (System.nanoTime() - startNanos) / 1000000 + "ms");
+                }
+            }
+        }
+    }
+
+    /*
+     * The topic may not exist yet, if nothing has been published to it
+     */
+    private List<TopicPartition> awaitPartitions(Consumer<String, InventoryUpdatedNotice> consumer) {
+        while (true) {
+            List<PartitionInfo> infos = consumer.partitionsFor(stockTopicName);
+            if (infos != null && !infos.isEmpty()) {
+                List<TopicPartition> partitions = new ArrayList<>(infos.size());
+                for (PartitionInfo info : infos)
+                    partitions.add(new TopicPartition(info.topic(), info.partition()));
+                return partitions;
+            }
+            logger.info("Waiting for stock snapshot topic " + stockTopicName);
+            sleep(RETRY_INTERVAL_MILLIS);
+            if (!running)
+                throw new WakeupException();
+        }
+    }
+
+    private static boolean reachedEnd(Consumer<?, ?> consumer, Map<TopicPartition, Long> endOffsets) {
+        Collection<TopicPartition> partitions = endOffsets.keySet();
+        for (TopicPartition partition : partitions)
+            if (consumer.position(partition) < endOffsets.get(partition))
+                return false;
+        return true;
+    }
+
+    /*
+     * Not in a group, nor committing offsets: every instance reads the whole topic. Type
+     * headers are ignored, and a value that cannot be read is taken as a tombstone, so that
+     * the item is read from the database.
+     */
+    private Consumer<String, InventoryUpdatedNotice> createConsumer() {
+        Map<String, Object> props = kafkaProperties.buildConsumerProperties();
+        props.remove(ConsumerConfig.GROUP_ID_CONFIG);
+        props.put(ConsumerConfig.CLIENT_ID_CONFIG, props.getOrDefault(ConsumerConfig.CLIENT_ID_CONFIG, "inventory-service") + "-stock-view");
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 10000);  // fewer polls for the rebuild
+        return new DefaultKafkaConsumerFactory<String, InventoryUpdatedNotice>(props, new StringDeserializer(),
+            new ErrorHandlingDeserializer<>(new JsonDeserializer<>(InventoryUpdatedNotice.class, false)))
+            .createConsumer();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package demo.inventory.api.messaging;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs tasks on a fixed set of single-threaded workers ("stripes"), choosing the worker by
+ * a task key. Tasks with the same key run one at a time, in submission order; tasks with
+ * keys on different stripes run in parallel.
+ *
+ * With zero stripes, tasks run inline on the submitting thread.
+ */
+public final class StripedExecutor implements AutoCloseable {
+
+  private final ExecutorService[] stripes;
+
+  public StripedExecutor(int stripeCount, String threadNamePrefix) {
+    this.stripes = new ExecutorService[stripeCount];
+    for (int i = 0; i < stripeCount; i++) {
+      String threadName = threadNamePrefix + i;
+      stripes[i] = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, threadName);
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+  }
+
+  /**
+   * @return the count of workers; zero when tasks run inline
+   */
+  public int getStripeCount() {
+    return stripes.length;
+  }
+
+  /**
+   * @return the stripe that tasks with this key run on
+   */
+  public int stripeOf(long key) {
+    return stripes.length == 0 ? 0 : Math.floorMod(mix(key), stripes.length);
+  }
+
+  public <T> CompletableFuture<T> submit(long key, Callable<T> task) {
+    return submitToStripe(stripeOf(key), task);
+  }
+
+  /**
+   * Run a task on an indicated stripe, as for tasks with keys on that stripe.
+   */
+  public <T> CompletableFuture<T> submitToStripe(int stripe, Callable<T> task) {
+    CompletableFuture<T> result = new CompletableFuture<>();
+    if (stripes.length == 0)
+      run(task, result);
+    else
+      stripes[stripe].execute(() -> run(task, result));
+    return result;
+  }
+
+  @Override
+  public void close() {
+    for (ExecutorService stripe : stripes)
+      stripe.shutdown();
+    try {
+      for (ExecutorService stripe : stripes)
+        stripe.awaitTermination(30, TimeUnit.SECONDS);
+    }
+    catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static <T> void run(Callable<T> task, CompletableFuture<T> result) {
+    try {
+      result.complete(task.call());
+    }
+    catch (Exception ex) {
+      result.completeExceptionally(ex);
+    }
+  }
+
+  /*
+   * Spread sequential ids across stripes (murmur3 finalizer)
+   */
+  private static int mix(long key) {
+    key ^= key >>> 33;
+    key *= 0xff51afd7ed558ccdL;
+    key ^= key >>> 33;
+    key *= 0xc4ceb93fe1a85386L;
+    key ^= key >>> 33;
+    return (int) key;
+  }
+}
@@ -0,0 +1,80 @@
+package demo.inventory.api.messaging;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.beans.BeanUtils;
+import org.springframework.util.ClassUtils;
+
+import demo.inventory.service.OrderMetrics;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Record value deserializer that times a delegate deserializer, as the 'deserialize' stage
+ * of {@link OrderMetrics}.
+ *
+ * Kafka creates the deserializer itself, so the timer is registered with the global
+ * registry, to which Spring Boot adds the application's registries. The delegate class
+ * is given by consumer property 'timed.deserializer.delegate.class', and is configured
+ * with the same consumer properties.
+ */
+public class TimedDeserializer<T> implements Deserializer<T> {
+
+  public static final String DELEGATE_CLASS = "timed.deserializer.delegate.class";
+
+  private Deserializer<T> delegate;
+
+  private Timer timer;
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void configure(Map<String, ?> configs, boolean isKey) {
+    Object delegateClass = configs.get(DELEGATE_CLASS);
+    if (delegateClass == null)
+      throw new KafkaException("Missing consumer property: " + DELEGATE_CLASS);
+
+    try {
+      Class<?> clazz = delegateClass instanceof Class
+          ? (Class<?>) delegateClass
+          : ClassUtils.forName(delegateClass.toString(), ClassUtils.getDefaultClassLoader());
+      this.delegate = (Deserializer<T>) BeanUtils.instantiateClass(clazz);
+    }
+    catch (ClassNotFoundException | LinkageError ex) {
+      throw new KafkaException("Unable to load deserializer: " + delegateClass, ex);
+    }
+    this.delegate.configure(configs, isKey);
+    this.timer = OrderMetrics.stageTimer("deserialize", Metrics.globalRegistry);
+  }
+
+  @Override
+  public T deserialize(String topic, byte[] data) {
+    long startNanos = System.nanoTime();
+    try {
+      return delegate.deserialize(topic, data);
+    }
+    finally {
+      timer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  @Override
+  public T deserialize(String topic, Headers headers, byte[] data) {
+    long startNanos = System.nanoTime();
+    try {
+      return delegate.deserialize(topic, headers, data);
+    }
+    finally {
+      timer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  @Override
+  public void close() {
+    if (delegate != null)
+      delegate.close();
+  }
+}
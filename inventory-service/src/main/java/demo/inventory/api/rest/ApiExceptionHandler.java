@@ -1,6 +1,8 @@
 package demo.inventory.api.rest;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -10,6 +12,8 @@ import javax.validation.ConstraintViolationException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -17,9 +21,12 @@ import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
 import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.server.ResponseStatusException;
 
 import demo.inventory.api.model.ApiError;
+import demo.inventory.service.InvalidItemsException;
 
 /*
  * Handle exceptions for all REST endpoints within the application.
@@ -61,6 +68,40 @@ public class ApiExceptionHandler {
   }
   
   
+  /*
+   * Handle validation failure of a request body on the 'reactive' profile, as
+   * MethodArgumentNotValidException.
+   */
+  @ExceptionHandler(value = WebExchangeBindException.class)
+  public ResponseEntity<ApiError> handleClientError(WebExchangeBindException ex) {
+    
+    log.warn(ex.getMessage());
+    
+    FieldError f = ex.getBindingResult().getFieldError();
+    String msg = f == null ? ex.getReason() : String.format("\"%1$s\" %2$s",f.getField(), f.getDefaultMessage());
+    
+    return ResponseEntity
+        .status(HttpStatus.BAD_REQUEST)
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(new ApiError(HttpStatus.BAD_REQUEST.value(), msg, "no detail available"));    
+  }
+  
+  /*
+   * Handle other request errors raised by WebFlux, such as a missing or unreadable
+   * parameter, with their own status.
+   */
+  @ExceptionHandler(value = ResponseStatusException.class)
+  public ResponseEntity<ApiError> handleClientError(ResponseStatusException ex) {
+    
+    log.warn(ex.getMessage());
+    
+    return ResponseEntity
+        .status(ex.getStatus())
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(new ApiError(ex.getStatus().value(), ex.getReason(), "no detail available"));    
+  }
+  
+  
   @ExceptionHandler(value = ConstraintViolationException.class)
   public ResponseEntity<ApiError> handleClientError(ConstraintViolationException ex) {
     
@@ -77,6 +118,56 @@ public class ApiExceptionHandler {
         .body(new ApiError(HttpStatus.BAD_REQUEST.value(), msg, "no detail available"));    
   }
   
+  /*
+   * Handle validation failure of a bulk request, with an ApiError for each constraint
+   * violation. The errorDetailMessage identifies the position of the item in the request.
+   */
+  @ExceptionHandler(value = InvalidItemsException.class)
+  public ResponseEntity<List<ApiError>> handleClientError(InvalidItemsException ex) {
+    
+    log.warn(ex.getMessage());
+    
+    List<ApiError> errors = new ArrayList<>();
+    ex.getViolationsByIndex().forEach((index, violations) -> 
+      violations.forEach(v -> errors.add(new ApiError(
+          HttpStatus.BAD_REQUEST.value(), 
+          String.format("\"%1$s\" %2$s", v.getPropertyPath(), v.getMessage()), 
+          "item["+index+"]"))));
+    
+    return ResponseEntity
+        .status(HttpStatus.BAD_REQUEST)
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(errors);    
+  }
+  
+  /*
+   * Handle a delete of an item that does not exist.
+   */
+  @ExceptionHandler(value = EmptyResultDataAccessException.class)
+  public ResponseEntity<ApiError> handleNotFound(EmptyResultDataAccessException ex) {
+    
+    log.warn(ex.getMessage());
+    
+    return ResponseEntity
+        .status(HttpStatus.NOT_FOUND)
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(new ApiError(HttpStatus.NOT_FOUND.value(), ex.getMessage(), "no detail available"));
+  }
+  
+  /*
+   * Handle an update of an item that has changed since the client read it.
+   */
+  @ExceptionHandler(value = OptimisticLockingFailureException.class)
+  public ResponseEntity<ApiError> handleConflict(OptimisticLockingFailureException ex) {
+    
+    log.warn(ex.getMessage());
+    
+    return ResponseEntity
+        .status(HttpStatus.CONFLICT)
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(new ApiError(HttpStatus.CONFLICT.value(), ex.getMessage(), "no detail available"));
+  }
+  
   /*
    * Handle any other Exception. Assume this is not intentional, and
    * log an exception stack trace.
@@ -3,7 +3,16 @@ package demo.inventory.api.rest;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.zip.GZIPOutputStream;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -12,31 +21,57 @@ import javax.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.hateoas.IanaLinkRelations;
 import org.springframework.hateoas.Link;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+
+import demo.inventory.api.message.InventoryUpdatedNotice;
 import demo.inventory.api.model.InventoryItemModel;
+import demo.inventory.api.model.InventoryItemSummary;
+import demo.inventory.api.model.ItemsPage;
 import demo.inventory.service.IInventoryService;
+import demo.inventory.service.InventoryServiceImpl;
+import demo.inventory.service.StockView;
 
 /**
  * REST Controller providing endpoints for access to the Inventory of items.
+ * 
+ * Items, and pages of items, are returned with an ETag. A GET with a matching 
+ * If-None-Match header is answered 304 Not Modified, having read only item versions, or 
+ * for summaries the summaries alone. An update with an If-Match header is only made if 
+ * the item's current ETag matches.
  */
+@Profile("!reactive")
 @RestController("inventoryController")
 @RequestMapping(value = "/inventory")
 public class InventoryController {
@@ -45,37 +80,59 @@ public class InventoryController {
     
     private static final String resourcePath = "/item";
 
+    protected static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+
+    protected static final String NDJSON_VALUE = "application/x-ndjson";
+
     // Suitable for the configured test dataset size
     protected static final int DEFAULT_PAGE_SIZE = 6;
     
     @Value(value = "${events.api.orders.topic}")
     private String topicName;
 
+    @Value(value = "${inventory.bulk.max-items}")
+    private int bulkMaxItems;
+
     private IInventoryService inventoryService;
 
+    private StockView stockView;
+
+    // one JSON document per line, for export
+    private ObjectWriter ndjsonItemWriter;
+
 
     // constructor
-    public InventoryController(IInventoryService inventoryService) {
+    public InventoryController(IInventoryService inventoryService, StockView stockView, ObjectMapper objectMapper) {
       this.inventoryService = inventoryService;
+      this.stockView = stockView;
+      this.ndjsonItemWriter = objectMapper
+          .writerFor(InventoryItemModel.class)
+          .withRootValueSeparator("\n")
+          .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
     }
     
 
     /**
-     * @return a page of items in inventory
+     * @return a page of items in inventory, in id order, as summaries if 'fields' are all
+     *   summary fields (see {@link ItemFields})
      */
     @GetMapping(path=resourcePath, params={"page","size"})
     @ResponseBody
-    public Page<InventoryItemModel> getInventory(@RequestParam Integer page, @RequestParam Integer size, HttpServletResponse response) {
+    public Page<?> getInventory(@RequestParam Integer page, @RequestParam Integer size, 
+        @RequestParam(required = false) String fields, HttpServletResponse response, WebRequest webRequest) {
       
-      Page<InventoryItemModel> itemsPage = inventoryService
-          .getInventory(PageRequest.of(page, size));
+      boolean summary = fields != null && ItemFields.isSummary(fields);
+      
+      Page<?> itemsPage = pageIfModified(PageRequest.of(page, size, Sort.by("id")), summary, "page", webRequest);
+      if( itemsPage == null )
+        return null;
       
       if( itemsPage.hasNext() ) { 
 
         Pageable nextPage = itemsPage.nextPageable();
         
         Link nextLink = linkTo(methodOn(InventoryController.class)
-            .getInventory(nextPage.getPageNumber(), nextPage.getPageSize(), response))
+            .getInventory(nextPage.getPageNumber(), nextPage.getPageSize(), fields, response, null))
               .withRel(IanaLinkRelations.NEXT_VALUE);
         
         response.addHeader(HttpHeaders.LINK, nextLink.toString());
@@ -86,31 +143,320 @@ public class InventoryController {
 
     
     /**
-     * @return all items in inventory
+     * Keyset pagination: the next page is identified by the id of the last item seen, 
+     * rather than by page number. The total item count is only computed on request, and 
+     * is then returned in the X-Total-Count header.
+     * 
+     * @return a page of items in inventory, following the item with id 'after', as 
+     *   summaries if 'fields' are all summary fields
+     */
+    @GetMapping(path=resourcePath, params={"after","size"})
+    @ResponseBody
+    public Slice<?> getInventoryAfter(@RequestParam Long after, @RequestParam Integer size, 
+        @RequestParam(defaultValue = "false") Boolean total, @RequestParam(required = false) String fields, 
+        HttpServletResponse response) {
+      
+      Slice<?> itemsSlice;
+      long lastItemId;
+      if( fields != null && ItemFields.isSummary(fields) ) {
+        Slice<InventoryItemSummary> summaries = inventoryService.getInventorySummariesAfter(after, size);
+        lastItemId = summaries.hasContent() ? summaries.getContent().get(summaries.getNumberOfElements()-1).getId() : after;
+        itemsSlice = summaries;
+      }
+      else {
+        Slice<InventoryItemModel> items = inventoryService.getInventoryAfter(after, size);
+        lastItemId = items.hasContent() ? items.getContent().get(items.getNumberOfElements()-1).getId() : after;
+        itemsSlice = items;
+      }
+      
+      if( itemsSlice.hasNext() ) { 
+
+        Link nextLink = linkTo(methodOn(InventoryController.class)
+            .getInventoryAfter(lastItemId, size, total, fields, response))
+              .withRel(IanaLinkRelations.NEXT_VALUE);
+        
+        response.addHeader(HttpHeaders.LINK, nextLink.toString());
+      }
+      
+      if( total )
+        response.addHeader(TOTAL_COUNT_HEADER, String.valueOf(inventoryService.countInventory()));
+
+      return itemsSlice; 
+    }
+
+    
+    /**
+     * A numbered page of items in a compact {@link ItemsPage} envelope, rather than as a 
+     * Spring Data page with its pageable and sort metadata. The total count is included.
+     */
+    @GetMapping(path=resourcePath, params={"page","size","envelope=compact"})
+    @ResponseBody
+    public ItemsPage<?> getCompactInventory(@RequestParam Integer page, @RequestParam Integer size, 
+        @RequestParam String envelope, @RequestParam(required = false) String fields, WebRequest webRequest) {
+      
+      boolean summary = fields != null && ItemFields.isSummary(fields);
+      
+      Page<?> itemsPage = pageIfModified(PageRequest.of(page, size, Sort.by("id")), summary, envelope, webRequest);
+      if( itemsPage == null )
+        return null;
+      
+      String next = !itemsPage.hasNext() ? null : linkTo(methodOn(InventoryController.class)
+          .getCompactInventory(page + 1, size, envelope, fields, null)).toUri().toString();
+      
+      return compactPage(itemsPage, next, itemsPage.getTotalElements());
+    }
+
+    
+    /**
+     * Keyset pagination, as {@link #getInventoryAfter}, in a compact {@link ItemsPage} 
+     * envelope. The total count is included if 'total' is true.
+     */
+    @GetMapping(path=resourcePath, params={"after","size","envelope=compact"})
+    @ResponseBody
+    public ItemsPage<?> getCompactInventoryAfter(@RequestParam Long after, @RequestParam Integer size, 
+        @RequestParam String envelope, @RequestParam(defaultValue = "false") Boolean total, 
+        @RequestParam(required = false) String fields) {
+      
+      Slice<?> itemsSlice = fields != null && ItemFields.isSummary(fields)
+          ? inventoryService.getInventorySummariesAfter(after, size)
+          : inventoryService.getInventoryAfter(after, size);
+      
+      String next = !itemsSlice.hasNext() ? null : linkTo(methodOn(InventoryController.class)
+          .getCompactInventoryAfter(lastItemId(itemsSlice), size, envelope, total, fields)).toUri().toString();
+      
+      return compactPage(itemsSlice, next, total ? inventoryService.countInventory() : null);
+    }
+
+    
+    /**
+     * @return the first page of items in inventory, in id order, as summaries if 'fields'
+     *   are all summary fields
      */
     @GetMapping(resourcePath)
     @ResponseBody
-    public Page<InventoryItemModel> getInventory() {
+    public Page<?> getInventory(@RequestParam(required = false) String fields, WebRequest webRequest) {
+
+      boolean summary = fields != null && ItemFields.isSummary(fields);
+      
+      return pageIfModified(PageRequest.of(0, DEFAULT_PAGE_SIZE, Sort.by("id")), summary, "page", webRequest);
+    }
+
+    
+    /*
+     * Whether an Accept-Encoding header accepts gzip: named, or else matched by '*', with a 
+     * q-value other than 0, e.g. not 'gzip;q=0'
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+      if( acceptEncoding == null )
+        return false;
+      
+      Boolean wildcard = null;
+      for( String coding : acceptEncoding.split(",") ) {
+        String[] params = coding.split(";");
+        String name = params[0].trim();
+        boolean accepted = true;
+        for( int i = 1; i < params.length; i++ ) {
+          String param = params[i].trim();
+          if( param.startsWith("q=") || param.startsWith("Q=") ) {
+            try {
+              accepted = Double.parseDouble(param.substring(2).trim()) > 0;
+            }
+            catch (NumberFormatException e) {
+              accepted = false;
+            }
+          }
+        }
+        if( name.equalsIgnoreCase("gzip") || name.equalsIgnoreCase("x-gzip") )
+          return accepted;
+        if( name.equals("*") )
+          wildcard = accepted;
+      }
+      return wildcard != null && wildcard;
+    }
+
+    
+    /*
+     * The ETag of a page is set, and checked against If-None-Match, before it is returned.
+     * A client with a tag for the page of items is answered having read only the item 
+     * versions; otherwise the tag is derived from the page read. The same page in another 
+     * representation, as summaries or in another envelope, has another tag.
+     * 
+     * @return a page of items, or of summaries, or null if the client's copy is current
+     */
+    private Page<?> pageIfModified(PageRequest pageRequest, boolean summary, String envelope, WebRequest webRequest) {
+      
+      String representation = envelope + (summary ? ".summary-" : ".item-");
+      
+      if( summary ) {
+        Page<InventoryItemSummary> summaries = inventoryService.getInventorySummaries(pageRequest);
+        return webRequest.checkNotModified(representation + InventoryServiceImpl.summaryPageTag(summaries)) ? null : summaries;
+      }
+      
+      if( webRequest.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+          && webRequest.checkNotModified(representation + inventoryService.getInventoryTag(pageRequest)) )
+        return null;
+      
+      Page<InventoryItemModel> items = inventoryService.getInventory(pageRequest);
+      
+      // sets the ETag, unless already set by the check above
+      webRequest.checkNotModified(representation + InventoryServiceImpl.pageTag(items));
+      return items;
+    }
+
+    
+    /**
+     * Search inventory by name, matched as a substring ignoring case, and by maximum 
+     * price. At least one of 'name' and 'maxPrice' is required.
+     * 
+     * @return a page of matching items, in id order
+     */
+    @GetMapping(resourcePath+"/search")
+    @ResponseBody
+    public Page<InventoryItemModel> searchInventory(@RequestParam(required = false) String name, 
+        @RequestParam(required = false) BigDecimal maxPrice, @RequestParam(defaultValue = "0") Integer page, 
+        @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) Integer size, HttpServletResponse response) {
+      
+      if( (name == null || name.isEmpty()) && maxPrice == null )
+        throw new HttpClientErrorException(HttpStatus.BAD_REQUEST, "Search requires a name or maxPrice");
+      
+      Page<InventoryItemModel> itemsPage = inventoryService.searchInventory(name, maxPrice, PageRequest.of(page, size, Sort.by("id")));
+      
+      if( itemsPage.hasNext() ) { 
+
+        Pageable nextPage = itemsPage.nextPageable();
+        
+        Link nextLink = linkTo(methodOn(InventoryController.class)
+            .searchInventory(name, maxPrice, nextPage.getPageNumber(), nextPage.getPageSize(), response))
+              .withRel(IanaLinkRelations.NEXT_VALUE);
+        
+        response.addHeader(HttpHeaders.LINK, nextLink.toString());
+      }
+      
+      return itemsPage;
+    }
 
-      return inventoryService
-          .getInventory(PageRequest.of(0, DEFAULT_PAGE_SIZE));
+    
+    /**
+     * Export the full inventory as newline delimited JSON, one item per line. Items are 
+     * written to the response as they are read from the database, so memory use does not 
+     * depend on the size of the inventory. The response is gzip compressed if the client 
+     * accepts that encoding, with a non-zero q-value, and varies by Accept-Encoding either way.
+     */
+    @GetMapping(path=resourcePath+"/export", produces=NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportInventory(
+        @RequestHeader(value=HttpHeaders.ACCEPT_ENCODING, required=false) String acceptEncoding) {
+      
+      final boolean gzip = acceptsGzip(acceptEncoding);
+      
+      StreamingResponseBody body = outputStream -> {
+        
+        OutputStream target = gzip ? new GZIPOutputStream(outputStream, 8192) : outputStream;
+        
+        try( SequenceWriter itemWriter = ndjsonItemWriter.writeValues(target) ) {
+          inventoryService.exportInventory(item -> {
+            try {
+              itemWriter.write(item);
+            }
+            catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+          });
+        }
+        
+        if( gzip )
+          ((GZIPOutputStream) target).finish();
+        
+        logger.info("Completed inventory export");
+      };
+      
+      ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+          .contentType(MediaType.parseMediaType(NDJSON_VALUE))
+          .varyBy(HttpHeaders.ACCEPT_ENCODING);
+      if( gzip )
+        response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+      
+      return response.body(body);
     }
 
     
     /**
-     * @return an indicated item in inventory
+     * @return an indicated item in inventory, as a summary if 'fields' are all summary 
+     *   fields
      */
     @GetMapping(resourcePath+"/{itemId}")
     @ResponseBody
-    public InventoryItemModel getInventoryItem(@PathVariable(value = "itemId") long itemId) {
+    public Object getInventoryItem(@PathVariable(value = "itemId") long itemId, 
+        @RequestParam(required = false) String fields, WebRequest webRequest) {
+      
+      boolean summary = fields != null && ItemFields.isSummary(fields);
+      
+      Optional<String> tag = inventoryService.getInventoryItemTag(itemId);
+      if( ! tag.isPresent() )
+        throw new HttpClientErrorException(HttpStatus.NOT_FOUND, "No inventory item with id "+itemId);
+      
+      if( webRequest.checkNotModified(tag.get()) )
+        return null;
       
-      Optional<InventoryItemModel> o = inventoryService.getInventoryItem(itemId);
+      Optional<?> o = summary 
+          ? inventoryService.getInventoryItemSummary(itemId) 
+          : inventoryService.getInventoryItem(itemId, tag.get());
       if( ! o.isPresent() )
         throw new HttpClientErrorException(HttpStatus.NOT_FOUND, "No inventory item with id "+itemId);
       
       return o.get();
     }
 
+
+    /**
+     * @return the current stock of an indicated item, from the stock view (see StockView) 
+     *   when it has the item, otherwise from inventory
+     */
+    @GetMapping(resourcePath+"/{itemId}/stock")
+    @ResponseBody
+    public InventoryUpdatedNotice getInventoryItemStock(@PathVariable(value = "itemId") long itemId) {
+      
+      OptionalLong stock = stockView.currentStock(itemId);
+      if( stock.isPresent() )
+        return new InventoryUpdatedNotice(itemId, stock.getAsLong());
+      
+      Optional<InventoryItemModel> item = inventoryService.getInventoryItem(itemId);
+      if( ! item.isPresent() )
+        throw new HttpClientErrorException(HttpStatus.NOT_FOUND, "No inventory item with id "+itemId);
+      
+      return new InventoryUpdatedNotice(itemId, item.get().getStock());
+    }
+
+    
+    /**
+     * Update an inventory item. Given an If-Match header, the item is only updated if its
+     * current ETag is one of those listed, and otherwise the response is 412.
+     */
+    @PutMapping(resourcePath+"/{itemId}")
+    public ResponseEntity<Void> updateInventoryItem(@PathVariable(value = "itemId") long itemId, 
+        @Valid @RequestBody InventoryItemModel item,
+        @RequestHeader(value=HttpHeaders.IF_MATCH, required=false) String ifMatch) {
+      
+      Collection<String> expectedTags = ifMatch == null || ifMatch.trim().equals("*") ? null : parseEntityTags(ifMatch);
+      
+      Optional<InventoryItemModel> updated;
+      try {
+        updated = inventoryService.updateInventoryItem(itemId, item, expectedTags);
+      }
+      catch( OptimisticLockingFailureException ex ) {
+        throw new HttpClientErrorException(HttpStatus.PRECONDITION_FAILED, "Inventory item "+itemId+" has changed");
+      }
+      
+      if( ! updated.isPresent() )
+        throw new HttpClientErrorException(ifMatch == null ? HttpStatus.NOT_FOUND : HttpStatus.PRECONDITION_FAILED, 
+            "No inventory item with id "+itemId);
+      
+      logger.info("Updated item with id: "+itemId);
+      
+      ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+      inventoryService.getInventoryItemTag(itemId).ifPresent(response::eTag);
+      return response.build();
+    }
+
     
     /**
      * Create a new inventory item
@@ -122,7 +468,7 @@ public class InventoryController {
       InventoryItemModel itemWithId = inventoryService.createInventoryItem(item);
       
       Link nextLink = linkTo(methodOn(InventoryController.class)
-          .getInventoryItem(itemWithId.getId()))
+          .getInventoryItem(itemWithId.getId(), null, null))
             .withRel(IanaLinkRelations.SELF_VALUE);
       
       httpResponse.setHeader(HttpHeaders.LINK, nextLink.toString());
@@ -142,4 +488,91 @@ public class InventoryController {
       
       logger.info("Deleted item with id: "+itemId);
     }
+
+
+    /**
+     * Create new inventory items, in one transaction
+     * 
+     * @return the new item ids, in request order
+     */
+    @PostMapping(resourcePath+"/batch")
+    @ResponseStatus(value = HttpStatus.CREATED)
+    @ResponseBody
+    public List<Long> createInventoryItems(@RequestBody List<InventoryItemModel> items) {
+      
+      checkBulkRequestSize(items.size());
+      
+      List<Long> ids = inventoryService.createInventoryItems(items);
+      
+      logger.info("Created "+ids.size()+" items");
+      
+      return ids;
+    }
+
+    
+    /**
+     * Create or update inventory items, in one transaction. Items without an id are created.
+     * 
+     * @return the item ids, in request order
+     */
+    @PutMapping(resourcePath+"/batch")
+    @ResponseStatus(value = HttpStatus.OK)
+    @ResponseBody
+    public List<Long> saveInventoryItems(@RequestBody List<InventoryItemModel> items) {
+      
+      checkBulkRequestSize(items.size());
+      
+      List<Long> ids = inventoryService.saveInventoryItems(items);
+      
+      logger.info("Saved "+ids.size()+" items");
+      
+      return ids;
+    }
+
+    
+    /**
+     * Delete inventory items, in one transaction
+     */
+    @DeleteMapping(path=resourcePath+"/batch", params={"ids"})
+    @ResponseStatus(value = HttpStatus.OK)
+    public void deleteInventoryItems(@RequestParam List<Long> ids) {
+      
+      checkBulkRequestSize(ids.size());
+      
+      int count = inventoryService.deleteInventoryItems(ids);
+      
+      logger.info("Deleted "+count+" items");
+    }
+
+    
+    private static ItemsPage<?> compactPage(Slice<?> items, String next, Long total) {
+      return new ItemsPage<>(items.getContent(), items.hasNext() ? lastItemId(items) : null, next, total);
+    }
+    
+    private static long lastItemId(Slice<?> items) {
+      Object last = items.getContent().get(items.getNumberOfElements()-1);
+      return last instanceof InventoryItemSummary 
+          ? ((InventoryItemSummary) last).getId() 
+          : ((InventoryItemModel) last).getId();
+    }
+    
+    /*
+     * Strong entity tags of an If-Match header, unquoted. Weak tags never match.
+     */
+    private static Collection<String> parseEntityTags(String header) {
+      List<String> tags = new ArrayList<>();
+      for( String tag : header.split(",") ) {
+        tag = tag.trim();
+        if( tag.length() > 1 && tag.startsWith("\"") && tag.endsWith("\"") )
+          tags.add(tag.substring(1, tag.length()-1));
+      }
+      return tags;
+    }
+
+    
+    private void checkBulkRequestSize(int size) {
+      if( size > bulkMaxItems )
+        throw new HttpClientErrorException(HttpStatus.PAYLOAD_TOO_LARGE, 
+            "Bulk request of "+size+" items exceeds the limit of "+bulkMaxItems);
+    }
 }
\ No newline at end of file
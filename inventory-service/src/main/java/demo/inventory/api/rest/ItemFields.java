@@ -0,0 +1,44 @@
+package demo.inventory.api.rest;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+
+/**
+ * The item fields named by a 'fields' request parameter, e.g. 'fields=id,name,price'.
+ *
+ * An item is returned in the smallest representation that includes every named field:
+ * the {@link demo.inventory.api.model.InventoryItemSummary} if it does, otherwise the
+ * full item.
+ */
+final class ItemFields {
+
+  static final Set<String> ITEM_FIELDS = new HashSet<>(Arrays.asList(
+      "id", "name", "description", "price", "imgAlt", "img", "stock", "version"));
+
+  static final Set<String> SUMMARY_FIELDS = new HashSet<>(Arrays.asList(
+      "id", "name", "price", "img", "stock"));
+
+  private ItemFields() {
+  }
+
+  /**
+   * @return whether the item summary includes every named field
+   * @throws HttpClientErrorException (400) if a field is not an item field
+   */
+  static boolean isSummary(String fields) {
+    boolean summary = true;
+    for (String field : fields.split(",")) {
+      field = field.trim();
+      if (field.isEmpty())
+        continue;
+      if (!ITEM_FIELDS.contains(field))
+        throw new HttpClientErrorException(HttpStatus.BAD_REQUEST, "Unknown item field: " + field);
+      summary &= SUMMARY_FIELDS.contains(field);
+    }
+    return summary;
+  }
+}
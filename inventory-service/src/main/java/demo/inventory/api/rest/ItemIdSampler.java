@@ -0,0 +1,62 @@
+package demo.inventory.api.rest;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Draws item ids for simulated orders, with a chosen popularity distribution:
+ *
+ *   uniform  every item equally likely
+ *   zipf     the item of rank r (by position in the list) with weight 1/(r+1)^skew
+ *   hot-set  the first 'hotSetSize' items take 'hotFraction' of draws, uniformly; the rest
+ *            share the remainder
+ */
+final class ItemIdSampler {
+
+  private final List<Long> itemIds;
+
+  // Cumulative probability of each rank
+  private final double[] cumulative;
+
+  private ItemIdSampler(List<Long> itemIds, double[] weights) {
+    this.itemIds = itemIds;
+    this.cumulative = new double[weights.length];
+    double sum = 0;
+    for (int rank = 0; rank < weights.length; rank++) {
+      sum += weights[rank];
+      cumulative[rank] = sum;
+    }
+    for (int rank = 0; rank < weights.length; rank++)
+      cumulative[rank] /= sum;
+  }
+
+  static ItemIdSampler uniform(List<Long> itemIds) {
+    double[] weights = new double[itemIds.size()];
+    Arrays.fill(weights, 1.0);
+    return new ItemIdSampler(itemIds, weights);
+  }
+
+  static ItemIdSampler zipf(List<Long> itemIds, double skew) {
+    double[] weights = new double[itemIds.size()];
+    for (int rank = 0; rank < weights.length; rank++)
+      weights[rank] = 1.0 / Math.pow(rank + 1, skew);
+    return new ItemIdSampler(itemIds, weights);
+  }
+
+  static ItemIdSampler hotSet(List<Long> itemIds, int hotSetSize, double hotFraction) {
+    int hot = Math.min(hotSetSize, itemIds.size());
+    int cold = itemIds.size() - hot;
+    if (cold == 0)
+      return uniform(itemIds);
+    double[] weights = new double[itemIds.size()];
+    for (int rank = 0; rank < weights.length; rank++)
+      weights[rank] = rank < hot ? hotFraction / hot : (1 - hotFraction) / cold;
+    return new ItemIdSampler(itemIds, weights);
+  }
+
+  long next(Random random) {
+    int rank = Arrays.binarySearch(cumulative, random.nextDouble());
+    return itemIds.get(Math.min(rank >= 0 ? rank : -rank - 1, cumulative.length - 1));
+  }
+}
@@ -0,0 +1,82 @@
+package demo.inventory.api.rest;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Outcome of a simulated burst of orders: counts, achieved rate, and the latency from each
+ * send to its broker acknowledgement.
+ */
+public class OrderBurstSummary {
+
+  private final int requested;
+  private final int sent;
+  private final int acked;
+  private final int failed;
+  private final long elapsedMillis;
+  private final Map<String, Double> sendLatencyMillis = new LinkedHashMap<>();
+
+  OrderBurstSummary(int requested, int sent, int acked, int failed, long elapsedMillis, long[] ackNanos) {
+    this.requested = requested;
+    this.sent = sent;
+    this.acked = acked;
+    this.failed = failed;
+    this.elapsedMillis = elapsedMillis;
+
+    long[] sorted = Arrays.copyOf(ackNanos, acked);
+    Arrays.sort(sorted);
+    sendLatencyMillis.put("p50", percentileMillis(sorted, 50));
+    sendLatencyMillis.put("p90", percentileMillis(sorted, 90));
+    sendLatencyMillis.put("p99", percentileMillis(sorted, 99));
+    sendLatencyMillis.put("p99.9", percentileMillis(sorted, 99.9));
+    sendLatencyMillis.put("max", percentileMillis(sorted, 100));
+  }
+
+  private static double percentileMillis(long[] sortedNanos, double percentile) {
+    if (sortedNanos.length == 0)
+      return 0;
+    int index = (int) Math.ceil(percentile / 100 * sortedNanos.length) - 1;
+    return sortedNanos[Math.max(0, index)] / 1e6;
+  }
+
+  public int getRequested() {
+    return requested;
+  }
+
+  public int getSent() {
+    return sent;
+  }
+
+  public int getAcked() {
+    return acked;
+  }
+
+  public int getFailed() {
+    return failed;
+  }
+
+  public long getElapsedMillis() {
+    return elapsedMillis;
+  }
+
+  /**
+   * @return orders sent per second
+   */
+  public double getRate() {
+    return elapsedMillis == 0 ? 0 : sent * 1000.0 / elapsedMillis;
+  }
+
+  /**
+   * @return send to acknowledgement latency percentiles, in millis
+   */
+  public Map<String, Double> getSendLatencyMillis() {
+    return sendLatencyMillis;
+  }
+
+  @Override
+  public String toString() {
+    return "OrderBurstSummary [requested=" + requested + ", sent=" + sent + ", acked=" + acked + ", failed=" + failed
+        + ", elapsedMillis=" + elapsedMillis + ", sendLatencyMillis=" + sendLatencyMillis + "]";
+  }
+}
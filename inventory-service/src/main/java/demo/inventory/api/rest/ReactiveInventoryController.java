@@ -0,0 +1,419 @@
+package demo.inventory.api.rest;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+import javax.validation.Valid;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import demo.inventory.api.model.InventoryItemModel;
+import demo.inventory.api.model.ItemsPage;
+import demo.inventory.service.IInventoryService;
+import demo.inventory.service.InventoryItemMapper;
+import demo.inventory.service.ReactiveInventoryService;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * REST Controller for the 'reactive' profile, serving the same '/inventory/item' contract
+ * as {@link InventoryController} on WebFlux, without blocking a thread per request.
+ *
+ * Items are read and written with R2DBC. The export is streamed from the database cursor
+ * as the client reads it, 'inventory.export.fetch-size' rows at a time. Bulk requests,
+ * which are one JPA transaction each, run on a bounded elastic thread.
+ *
+ * Page and item ETags are the same as those of InventoryController, but are computed from
+ * the page or item as read, rather than from versions alone.
+ */
+@Profile("reactive")
+@RestController("reactiveInventoryController")
+@RequestMapping(value = "/inventory")
+public class ReactiveInventoryController {
+
+    private final static Logger logger = LoggerFactory.getLogger(ReactiveInventoryController.class);
+
+    private static final String resourcePath = "/item";
+
+    @Value(value = "${inventory.bulk.max-items}")
+    private int bulkMaxItems;
+
+    @Value(value = "${inventory.export.fetch-size}")
+    private int exportFetchSize;
+
+    private ReactiveInventoryService inventoryService;
+
+    private IInventoryService bulkInventoryService;
+
+    private InventoryItemMapper itemMapper;
+
+
+    // constructor
+    public ReactiveInventoryController(ReactiveInventoryService inventoryService, IInventoryService bulkInventoryService,
+        InventoryItemMapper itemMapper) {
+      this.inventoryService = inventoryService;
+      this.bulkInventoryService = bulkInventoryService;
+      this.itemMapper = itemMapper;
+    }
+
+
+    /**
+     * @return a page of items in inventory, in id order, as summaries if 'fields' are all
+     *   summary fields
+     */
+    @GetMapping(path=resourcePath, params={"page","size"})
+    public Mono<Page<?>> getInventory(@RequestParam Integer page, @RequestParam Integer size,
+        @RequestParam(required = false) String fields, ServerWebExchange exchange) {
+
+      Function<InventoryItemModel, Object> view = view(fields);
+
+      return inventoryService.getInventory(PageRequest.of(page, size))
+          .flatMap(itemsPage -> {
+            if( exchange.checkNotModified(pageTag(itemsPage, "page", fields)) )
+              return Mono.empty();
+
+            if( itemsPage.hasNext() )
+              addNextLink(exchange, UriComponentsBuilder.fromUri(exchange.getRequest().getURI())
+                  .replaceQueryParam("page", page + 1));
+
+            return Mono.just(itemsPage.map(view));
+          });
+    }
+
+
+    /**
+     * Keyset pagination, as {@link InventoryController#getInventoryAfter}
+     *
+     * @return a page of items in inventory, following the item with id 'after'
+     */
+    @GetMapping(path=resourcePath, params={"after","size"})
+    public Mono<Slice<?>> getInventoryAfter(@RequestParam Long after, @RequestParam Integer size,
+        @RequestParam(defaultValue = "false") Boolean total, @RequestParam(required = false) String fields,
+        ServerWebExchange exchange) {
+
+      Function<InventoryItemModel, Object> view = view(fields);
+
+      Mono<Slice<?>> itemsSlice = inventoryService.getInventoryAfter(after, size)
+          .map(items -> {
+            if( items.hasNext() ) {
+              long lastItemId = items.getContent().get(items.getNumberOfElements()-1).getId();
+              addNextLink(exchange, UriComponentsBuilder.fromUri(exchange.getRequest().getURI())
+                  .replaceQueryParam("after", lastItemId));
+            }
+            return items.map(view);
+          });
+
+      if( !total )
+        return itemsSlice;
+
+      return inventoryService.countInventory()
+          .doOnNext(count -> exchange.getResponse().getHeaders().add(InventoryController.TOTAL_COUNT_HEADER, String.valueOf(count)))
+          .then(itemsSlice);
+    }
+
+
+    /**
+     * A numbered page of items in a compact {@link ItemsPage} envelope, as
+     * {@link InventoryController#getCompactInventory}
+     */
+    @GetMapping(path=resourcePath, params={"page","size","envelope=compact"})
+    public Mono<ItemsPage<Object>> getCompactInventory(@RequestParam Integer page, @RequestParam Integer size,
+        @RequestParam(required = false) String fields, ServerWebExchange exchange) {
+
+      Function<InventoryItemModel, Object> view = view(fields);
+
+      return inventoryService.getInventory(PageRequest.of(page, size))
+          .flatMap(itemsPage -> {
+            if( exchange.checkNotModified(pageTag(itemsPage, "compact", fields)) )
+              return Mono.empty();
+
+            String next = !itemsPage.hasNext() ? null : UriComponentsBuilder.fromUri(exchange.getRequest().getURI())
+                .replaceQueryParam("page", page + 1).build().toUriString();
+            return Mono.just(compactPage(itemsPage, view, next, itemsPage.getTotalElements()));
+          });
+    }
+
+
+    /**
+     * Keyset pagination in a compact {@link ItemsPage} envelope, as
+     * {@link InventoryController#getCompactInventoryAfter}
+     */
+    @GetMapping(path=resourcePath, params={"after","size","envelope=compact"})
+    public Mono<ItemsPage<Object>> getCompactInventoryAfter(@RequestParam Long after, @RequestParam Integer size,
+        @RequestParam(defaultValue = "false") Boolean total, @RequestParam(required = false) String fields,
+        ServerWebExchange exchange) {
+
+      Function<InventoryItemModel, Object> view = view(fields);
+
+      Mono<Long> count = total ? inventoryService.countInventory() : Mono.just(-1L);
+
+      return Mono.zip(inventoryService.getInventoryAfter(after, size), count)
+          .map(itemsAndCount -> {
+            Slice<InventoryItemModel> items = itemsAndCount.getT1();
+            String next = !items.hasNext() ? null : UriComponentsBuilder.fromUri(exchange.getRequest().getURI())
+                .replaceQueryParam("after", items.getContent().get(items.getNumberOfElements()-1).getId())
+                .build().toUriString();
+            return compactPage(items, view, next, total ? itemsAndCount.getT2() : null);
+          });
+    }
+
+
+    /**
+     * @return the first page of items in inventory, in id order
+     */
+    @GetMapping(resourcePath)
+    public Mono<Page<?>> getInventory(@RequestParam(required = false) String fields, ServerWebExchange exchange) {
+
+      Function<InventoryItemModel, Object> view = view(fields);
+
+      return inventoryService.getInventory(PageRequest.of(0, InventoryController.DEFAULT_PAGE_SIZE))
+          .flatMap(itemsPage -> exchange.checkNotModified(pageTag(itemsPage, "page", fields))
+              ? Mono.empty()
+              : Mono.just(itemsPage.map(view)));
+    }
+
+
+    /**
+     * Search inventory by name and maximum price, as {@link InventoryController#searchInventory}
+     *
+     * @return a page of matching items, in id order
+     */
+    @GetMapping(resourcePath+"/search")
+    public Mono<Page<InventoryItemModel>> searchInventory(@RequestParam(required = false) String name,
+        @RequestParam(required = false) BigDecimal maxPrice, @RequestParam(defaultValue = "0") Integer page,
+        @RequestParam(defaultValue = "" + InventoryController.DEFAULT_PAGE_SIZE) Integer size, ServerWebExchange exchange) {
+
+      if( (name == null || name.isEmpty()) && maxPrice == null )
+        throw new HttpClientErrorException(HttpStatus.BAD_REQUEST, "Search requires a name or maxPrice");
+
+      return inventoryService.searchInventory(name, maxPrice, PageRequest.of(page, size))
+          .doOnNext(itemsPage -> {
+            if( itemsPage.hasNext() )
+              addNextLink(exchange, UriComponentsBuilder.fromUri(exchange.getRequest().getURI())
+                  .replaceQueryParam("page", page + 1)
+                  .replaceQueryParam("size", size));
+          });
+    }
+
+
+    /**
+     * Export the full inventory as newline delimited JSON, one item per line. Rows are
+     * requested from the database as the response is written, so a slow client holds
+     * neither a thread nor more than a few batches of items.
+     */
+    @GetMapping(path=resourcePath+"/export", produces=InventoryController.NDJSON_VALUE)
+    public Flux<InventoryItemModel> exportInventory() {
+      return inventoryService.exportInventory()
+          .limitRate(exportFetchSize)
+          .doOnComplete(() -> logger.info("Completed inventory export"));
+    }
+
+
+    /**
+     * @return an indicated item in inventory, as a summary if 'fields' are all summary
+     *   fields
+     */
+    @GetMapping(resourcePath+"/{itemId}")
+    public Mono<Object> getInventoryItem(@PathVariable(value = "itemId") long itemId,
+        @RequestParam(required = false) String fields, ServerWebExchange exchange) {
+
+      Function<InventoryItemModel, Object> view = view(fields);
+
+      return inventoryService.getInventoryItem(itemId)
+          .switchIfEmpty(Mono.error(() -> new HttpClientErrorException(HttpStatus.NOT_FOUND, "No inventory item with id "+itemId)))
+          .flatMap(item -> exchange.checkNotModified(ReactiveInventoryService.itemTag(item))
+              ? Mono.empty()
+              : Mono.just(view.apply(item)));
+    }
+
+
+    /**
+     * Update an inventory item, subject to an If-Match header, as
+     * {@link InventoryController#updateInventoryItem}
+     */
+    @PutMapping(resourcePath+"/{itemId}")
+    public Mono<ResponseEntity<Void>> updateInventoryItem(@PathVariable(value = "itemId") long itemId,
+        @Valid @RequestBody Mono<InventoryItemModel> item,
+        @RequestHeader(value=HttpHeaders.IF_MATCH, required=false) String ifMatch) {
+
+      Collection<String> expectedTags = ifMatch == null || ifMatch.trim().equals("*") ? null : parseEntityTags(ifMatch);
+
+      return item
+          .flatMap(model -> inventoryService.updateInventoryItem(itemId, model, expectedTags))
+          .onErrorMap(OptimisticLockingFailureException.class,
+              ex -> new HttpClientErrorException(HttpStatus.PRECONDITION_FAILED, "Inventory item "+itemId+" has changed"))
+          .switchIfEmpty(Mono.error(() -> new HttpClientErrorException(
+              ifMatch == null ? HttpStatus.NOT_FOUND : HttpStatus.PRECONDITION_FAILED, "No inventory item with id "+itemId)))
+          .map(updated -> {
+            logger.info("Updated item with id: "+itemId);
+            return ResponseEntity.ok().eTag(ReactiveInventoryService.itemTag(updated)).build();
+          });
+    }
+
+
+    /**
+     * Create a new inventory item
+     */
+    @PostMapping(resourcePath)
+    public Mono<ResponseEntity<Void>> createInventoryItem(@Valid @RequestBody Mono<InventoryItemModel> item,
+        ServerWebExchange exchange) {
+
+      ServerHttpRequest request = exchange.getRequest();
+
+      return item
+          .flatMap(inventoryService::createInventoryItem)
+          .map(itemWithId -> {
+            URI itemUri = UriComponentsBuilder.fromUri(request.getURI())
+                .replaceQuery(null)
+                .path("/" + itemWithId.getId())
+                .build().toUri();
+
+            return ResponseEntity.status(HttpStatus.CREATED)
+                .header(HttpHeaders.LINK, Link.of(itemUri.toString(), IanaLinkRelations.SELF).toString())
+                .header(HttpHeaders.LOCATION, request.getPath().value() + "/" + itemWithId.getId())
+                .build();
+          });
+    }
+
+
+    @DeleteMapping(resourcePath+"/{itemId}")
+    @ResponseStatus(value = HttpStatus.OK)
+    public Mono<Void> deleteInventoryItem(@PathVariable(value = "itemId") long itemId) {
+
+      return inventoryService.deleteInventoryItem(itemId)
+          .doOnSuccess(done -> logger.info("Deleted item with id: "+itemId));
+    }
+
+
+    /**
+     * Create new inventory items, in one transaction
+     *
+     * @return the new item ids, in request order
+     */
+    @PostMapping(resourcePath+"/batch")
+    @ResponseStatus(value = HttpStatus.CREATED)
+    public Mono<List<Long>> createInventoryItems(@RequestBody List<InventoryItemModel> items) {
+
+      checkBulkRequestSize(items.size());
+
+      return blocking(() -> bulkInventoryService.createInventoryItems(items))
+          .doOnNext(ids -> logger.info("Created "+ids.size()+" items"));
+    }
+
+
+    /**
+     * Create or update inventory items, in one transaction
+     *
+     * @return the item ids, in request order
+     */
+    @PutMapping(resourcePath+"/batch")
+    @ResponseStatus(value = HttpStatus.OK)
+    public Mono<List<Long>> saveInventoryItems(@RequestBody List<InventoryItemModel> items) {
+
+      checkBulkRequestSize(items.size());
+
+      return blocking(() -> bulkInventoryService.saveInventoryItems(items))
+          .doOnNext(ids -> logger.info("Saved "+ids.size()+" items"));
+    }
+
+
+    /**
+     * Delete inventory items, in one transaction
+     */
+    @DeleteMapping(path=resourcePath+"/batch", params={"ids"})
+    @ResponseStatus(value = HttpStatus.OK)
+    public Mono<Void> deleteInventoryItems(@RequestParam List<Long> ids) {
+
+      checkBulkRequestSize(ids.size());
+
+      return blocking(() -> bulkInventoryService.deleteInventoryItems(ids))
+          .doOnNext(count -> logger.info("Deleted "+count+" items"))
+          .then();
+    }
+
+
+    /*
+     * Items as requested by a 'fields' parameter: the full item, or its summary
+     */
+    private Function<InventoryItemModel, Object> view(String fields) {
+      if( fields != null && ItemFields.isSummary(fields) )
+        return itemMapper::toSummary;
+      return item -> item;
+    }
+
+    /*
+     * The same page in another representation, as summaries or in another envelope, has 
+     * another tag, as from InventoryController
+     */
+    private static String pageTag(Page<InventoryItemModel> itemsPage, String envelope, String fields) {
+      boolean summary = fields != null && ItemFields.isSummary(fields);
+      return envelope + (summary ? ".summary-" : ".item-") + ReactiveInventoryService.pageTag(itemsPage);
+    }
+
+    private static ItemsPage<Object> compactPage(Slice<InventoryItemModel> items, Function<InventoryItemModel, Object> view,
+        String next, Long total) {
+      Long cursor = items.hasNext() ? items.getContent().get(items.getNumberOfElements()-1).getId() : null;
+      return new ItemsPage<>(items.map(view).getContent(), cursor, next, total);
+    }
+
+    private static void addNextLink(ServerWebExchange exchange, UriComponentsBuilder nextUri) {
+      Link nextLink = Link.of(nextUri.build().toUriString(), IanaLinkRelations.NEXT);
+      exchange.getResponse().getHeaders().add(HttpHeaders.LINK, nextLink.toString());
+    }
+
+    private static <T> Mono<T> blocking(java.util.concurrent.Callable<T> call) {
+      return Mono.fromCallable(call).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /*
+     * Strong entity tags of an If-Match header, unquoted. Weak tags never match.
+     */
+    private static Collection<String> parseEntityTags(String header) {
+      List<String> tags = new ArrayList<>();
+      for( String tag : header.split(",") ) {
+        tag = tag.trim();
+        if( tag.length() > 1 && tag.startsWith("\"") && tag.endsWith("\"") )
+          tags.add(tag.substring(1, tag.length()-1));
+      }
+      return tags;
+    }
+
+
+    private void checkBulkRequestSize(int size) {
+      if( size > bulkMaxItems )
+        throw new HttpClientErrorException(HttpStatus.PAYLOAD_TOO_LARGE,
+            "Bulk request of "+size+" items exceeds the limit of "+bulkMaxItems);
+    }
+}
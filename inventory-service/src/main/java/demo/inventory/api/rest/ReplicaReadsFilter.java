@@ -0,0 +1,101 @@
+package demo.inventory.api.rest;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import demo.inventory.persistence.ReplicaRoutingDataSource;
+
+/**
+ * Lets GET (and HEAD) requests read from the replica (see ReplicaRoutingDataSource), except:
+ *
+ * - read-your-writes: a write request sets a cookie with its time, and the client's reads
+ *   go to the primary until 'inventory.replica.max-lag' after its last write,
+ * - a request with 'Cache-Control: no-cache', which reads from the primary.
+ *
+ * The cookie is kept by the client, so applies whichever instance serves the next request.
+ */
+@Component
+@ConditionalOnWebApplication(type = Type.SERVLET)
+@ConditionalOnProperty(name = "inventory.replica.enabled", havingValue = "true")
+public class ReplicaReadsFilter extends OncePerRequestFilter {
+
+  static final String LAST_WRITE_COOKIE = "inventory-last-write";
+
+  private final Duration maxLag;
+
+  public ReplicaReadsFilter(@Value("${inventory.replica.max-lag}") Duration maxLag) {
+    this.maxLag = maxLag;
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+
+    if( !isSafe(request.getMethod()) ) {
+      response.addCookie(lastWriteCookie(request));
+      filterChain.doFilter(request, response);
+      return;
+    }
+
+    if( !replicaAllowed(request) ) {
+      filterChain.doFilter(request, response);
+      return;
+    }
+
+    ReplicaRoutingDataSource.setReplicaReadsAllowed(true);
+    try {
+      filterChain.doFilter(request, response);
+    }
+    finally {
+      ReplicaRoutingDataSource.setReplicaReadsAllowed(false);
+    }
+  }
+
+  private static boolean isSafe(String method) {
+    return method.equals("GET") || method.equals("HEAD") || method.equals("OPTIONS");
+  }
+
+  private boolean replicaAllowed(HttpServletRequest request) {
+    String cacheControl = request.getHeader(HttpHeaders.CACHE_CONTROL);
+    if( cacheControl != null && cacheControl.contains("no-cache") )
+      return false;
+
+    Cookie[] cookies = request.getCookies();
+    if( cookies != null )
+      for( Cookie cookie : cookies )
+        if( cookie.getName().equals(LAST_WRITE_COOKIE) && isRecent(cookie.getValue()) )
+          return false;
+    return true;
+  }
+
+  private boolean isRecent(String lastWriteMillis) {
+    try {
+      return System.currentTimeMillis() - Long.parseLong(lastWriteMillis) < maxLag.toMillis();
+    }
+    catch( NumberFormatException e ) {
+      return false;
+    }
+  }
+
+  private Cookie lastWriteCookie(HttpServletRequest request) {
+    Cookie cookie = new Cookie(LAST_WRITE_COOKIE, Long.toString(System.currentTimeMillis()));
+    cookie.setPath(request.getContextPath().isEmpty() ? "/" : request.getContextPath());
+    cookie.setMaxAge((int) Math.max(1, (maxLag.toMillis() + 999) / 1000));
+    cookie.setHttpOnly(true);
+    return cookie;
+  }
+}
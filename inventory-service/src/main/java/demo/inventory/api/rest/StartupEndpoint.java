@@ -0,0 +1,34 @@
+package demo.inventory.api.rest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import demo.inventory.StartupPhases;
+
+/**
+ * The millis taken by each phase of startup, and in total, from JVM start (see
+ * StartupPhases).
+ */
+@Component
+@Endpoint(id = "startup")
+public class StartupEndpoint {
+
+    private final StartupPhases startupPhases;
+
+    public StartupEndpoint(StartupPhases startupPhases) {
+        this.startupPhases = startupPhases;
+    }
+
+    @ReadOperation
+    public Map<String, Object> startup() {
+        Map<String, Object> startup = new LinkedHashMap<>();
+        startup.put("phases", startupPhases.getPhases());
+        startup.put("total", startupPhases.getTotal());
+        return startup;
+    }
+
+}
@@ -1,9 +1,20 @@
 package demo.inventory.api.rest;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
 import org.springframework.kafka.core.KafkaOperations;
 import org.springframework.util.concurrent.SuccessCallback;
@@ -12,32 +23,47 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.HttpServerErrorException;
 
 import demo.inventory.api.message.OrderCompletedNotice;
+import demo.inventory.api.model.InventoryItemSummary;
+import demo.inventory.service.IInventoryService;
 
 
 /**
  * REST Controller providing non-api endpoints for access to utility operations.
  */
-@Profile("dev")
+@Profile("dev & !reactive")
 @RestController("utilityController")
 @RequestMapping(value = "/util")
 public class UtilityController {
 
     private final static Logger logger = LoggerFactory.getLogger(UtilityController.class);
 
+    private final static int ITEM_ID_PAGE_SIZE = 1000;
+
     private KafkaOperations<String, OrderCompletedNotice> kafkaOperations;
 
+    private IInventoryService inventoryService;
+
     @Value(value = "${events.api.orders.topic}")
     String topicName;
 
-    public UtilityController(KafkaOperations<String, OrderCompletedNotice> kafkaOperations) {
+    @Value(value = "${inventory.burst.max-orders}")
+    int burstMaxOrders;
+
+    @Value(value = "${inventory.burst.ack-timeout}")
+    Duration burstAckTimeout;
+
+    public UtilityController(KafkaOperations<String, OrderCompletedNotice> kafkaOperations, IInventoryService inventoryService) {
       this.kafkaOperations = kafkaOperations;
+      this.inventoryService = inventoryService;
     }
     
     /**
-     * Simulate an order for inventory items.
+     * Simulate an order for inventory items. The order is keyed by item id, so that orders
+     * for an item are consumed from one partition, in order.
      */
     @PostMapping("/order")
     @ResponseStatus(code = HttpStatus.OK)
@@ -51,11 +77,133 @@ public class UtilityController {
         logger.info("Posting an order notification");
 
         final OrderCompletedNotice message = new OrderCompletedNotice(itemId, count);
-        kafkaOperations.send(topicName, message).addCallback(
+        kafkaOperations.send(topicName, String.valueOf(itemId), message).addCallback(
                 (SuccessCallback) result -> logger.info("Delivered : " + message),
                 ex -> logger.error("Unable to send "+message+ " due to : " + ex.getMessage()));
 
         return;
     }
 
-}
\ No newline at end of file
+    /**
+     * Simulate a burst of orders, one unit each, for items drawn from a popularity
+     * distribution over the items in inventory, ranked by id: 'uniform', 'zipf' (with
+     * 'skew') or 'hot-set' (the first 'hotSetSize' items take 'hotFraction' of orders).
+     *
+     * Orders are sent at 'rate' per second (0 for as fast as possible), keyed by item id so
+     * the producer batches them by partition, with at most 'maxInFlight' unacknowledged at
+     * a time. The response is sent once every order is acknowledged, or failed, or
+     * 'inventory.burst.ack-timeout' has passed. Parameters out of range are rejected with 400.
+     */
+    @PostMapping("/orders/burst")
+    public OrderBurstSummary placeOrders(
+        @RequestParam(name = "count") int count,
+        @RequestParam(name = "distribution", defaultValue = "uniform") String distribution,
+        @RequestParam(name = "skew", defaultValue = "1.0") double skew,
+        @RequestParam(name = "hotSetSize", defaultValue = "10") int hotSetSize,
+        @RequestParam(name = "hotFraction", defaultValue = "0.9") double hotFraction,
+        @RequestParam(name = "rate", defaultValue = "0") double rate,
+        @RequestParam(name = "maxInFlight", defaultValue = "1000") int maxInFlight) throws InterruptedException {
+
+        if (count < 1 || count > burstMaxOrders)
+            throw new HttpClientErrorException(HttpStatus.BAD_REQUEST, "count must be 1 to " + burstMaxOrders);
+        if (maxInFlight < 1)
+            throw new HttpClientErrorException(HttpStatus.BAD_REQUEST, "maxInFlight must be positive");
+        if (!(rate >= 0))
+            throw new HttpClientErrorException(HttpStatus.BAD_REQUEST, "rate must not be negative");
+        if (!(skew >= 0) || Double.isInfinite(skew))
+            throw new HttpClientErrorException(HttpStatus.BAD_REQUEST, "skew must not be negative");
+        if (hotSetSize < 1)
+            throw new HttpClientErrorException(HttpStatus.BAD_REQUEST, "hotSetSize must be positive");
+        if (!(hotFraction >= 0 && hotFraction <= 1))
+            throw new HttpClientErrorException(HttpStatus.BAD_REQUEST, "hotFraction must be 0 to 1");
+
+        List<Long> itemIds = loadItemIds();
+        if (itemIds.isEmpty())
+            throw new HttpClientErrorException(HttpStatus.CONFLICT, "No items in inventory");
+
+        ItemIdSampler sampler;
+        switch (distribution) {
+            case "uniform": sampler = ItemIdSampler.uniform(itemIds); break;
+            case "zipf":    sampler = ItemIdSampler.zipf(itemIds, skew); break;
+            case "hot-set": sampler = ItemIdSampler.hotSet(itemIds, hotSetSize, hotFraction); break;
+            default:
+                throw new HttpClientErrorException(HttpStatus.BAD_REQUEST, "Unknown distribution: " + distribution);
+        }
+
+        logger.info("Posting " + count + " order notifications, " + distribution + " over " + itemIds.size() + " items");
+
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        AtomicInteger acked = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        long[] ackNanos = new long[count];
+        Random random = new Random();
+        long intervalNanos = rate > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / rate) : 0;
+
+        long startNanos = System.nanoTime();
+        int sent = 0;
+        for (; sent < count; sent++) {
+
+            // Hold to the schedule, rather than send in bursts after a stall
+            long delayNanos = startNanos + sent * intervalNanos - System.nanoTime();
+            if (delayNanos > 0)
+                LockSupport.parkNanos(delayNanos);
+
+            inFlight.acquire();
+
+            long itemId = sampler.next(random);
+            OrderCompletedNotice message = new OrderCompletedNotice(UUID.randomUUID().toString(), itemId, 1);
+            long sendNanos = System.nanoTime();
+            try {
+                kafkaOperations.send(topicName, String.valueOf(itemId), message).addCallback(
+                    result -> {
+                        long nanos = System.nanoTime() - sendNanos;
+                        synchronized (ackNanos) {
+                            ackNanos[acked.getAndIncrement()] = nanos;
+                        }
+                        inFlight.release();
+                    },
+                    ex -> {
+                        failed.incrementAndGet();
+                        inFlight.release();
+                    });
+            }
+            catch (RuntimeException ex) {
+                logger.error("Unable to send " + message + " due to : " + ex.getMessage());
+                failed.incrementAndGet();
+                inFlight.release();
+            }
+        }
+        kafkaOperations.flush();
+
+        // Wait for the outstanding acknowledgements
+        if (inFlight.tryAcquire(maxInFlight, burstAckTimeout.toMillis(), TimeUnit.MILLISECONDS))
+            inFlight.release(maxInFlight);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+
+        // On timeout, acknowledgements may still be arriving; take a consistent copy
+        OrderBurstSummary summary;
+        synchronized (ackNanos) {
+            summary = new OrderBurstSummary(count, sent, acked.get(), failed.get(), elapsedMillis, ackNanos);
+        }
+        logger.info("Posted order burst: " + summary);
+        return summary;
+    }
+
+    /*
+     * @return the ids of all items, in id order, read by keyset pages of summaries
+     */
+    private List<Long> loadItemIds() {
+        List<Long> itemIds = new ArrayList<>();
+        Slice<InventoryItemSummary> summaries;
+        long afterItemId = 0;
+        do {
+            summaries = inventoryService.getInventorySummariesAfter(afterItemId, ITEM_ID_PAGE_SIZE);
+            for (InventoryItemSummary summary : summaries)
+                itemIds.add(summary.getId());
+            if (!itemIds.isEmpty())
+                afterItemId = itemIds.get(itemIds.size() - 1);
+        }
+        while (summaries.hasNext());
+        return itemIds;
+    }
+}
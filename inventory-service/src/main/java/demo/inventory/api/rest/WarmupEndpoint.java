@@ -0,0 +1,36 @@
+package demo.inventory.api.rest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import demo.inventory.setup.WarmupRunner;
+
+/**
+ * Warm-up progress: whether warm-up is complete, and the status of each step (see
+ * WarmupRunner).
+ */
+@Component
+@Endpoint(id = "warmup")
+@ConditionalOnProperty(name = "inventory.warmup.enabled", havingValue = "true")
+public class WarmupEndpoint {
+
+    private final WarmupRunner warmupRunner;
+
+    public WarmupEndpoint(WarmupRunner warmupRunner) {
+        this.warmupRunner = warmupRunner;
+    }
+
+    @ReadOperation
+    public Map<String, Object> warmup() {
+        Map<String, Object> warmup = new LinkedHashMap<>();
+        warmup.put("complete", warmupRunner.isComplete());
+        warmup.put("steps", warmupRunner.getSteps());
+        return warmup;
+    }
+
+}
@@ -0,0 +1,125 @@
+package demo.inventory.persistence;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * A DataSource that lets at most a fixed number of callers hold a connection at once.
+ * Other callers wait, in arrival order, for a connection to be closed.
+ *
+ * With a thread per request, the request thread pool bounds the callers of the connection
+ * pool. With a virtual thread per request it does not, and thousands of callers would
+ * otherwise queue inside the pool, each to time out on its own. Permits are expected to be
+ * no more than the pool's maximum size.
+ */
+public class BoundedDataSource extends DelegatingDataSource {
+
+    private final Semaphore permits;
+
+    private final int maxConnections;
+
+    private final long acquireTimeoutMillis;
+
+    public BoundedDataSource(DataSource targetDataSource, int maxConnections, long acquireTimeoutMillis) {
+        super(targetDataSource);
+        this.permits = new Semaphore(maxConnections, true);
+        this.maxConnections = maxConnections;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * @return the count of connections currently held
+     */
+    public int getActive() {
+        return maxConnections - permits.availablePermits();
+    }
+
+    /**
+     * @return an estimate of the count of callers waiting for a connection
+     */
+    public int getWaiting() {
+        return permits.getQueueLength();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        try {
+            return bounded(super.getConnection());
+        }
+        catch (SQLException | RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        try {
+            return bounded(super.getConnection(username, password));
+        }
+        catch (SQLException | RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    private void acquire() throws SQLException {
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS))
+                throw new SQLTransientConnectionException("No connection available within " + acquireTimeoutMillis
+                        + "ms; " + maxConnections + " in use and " + permits.getQueueLength() + " waiting");
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted waiting for a connection", ex);
+        }
+    }
+
+    /*
+     * The connection, releasing its permit when first closed
+     */
+    private Connection bounded(Connection connection) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "close":
+                        try {
+                            connection.close();
+                        }
+                        finally {
+                            if (released.compareAndSet(false, true))
+                                permits.release();
+                        }
+                        return null;
+                    default:
+                        try {
+                            return method.invoke(connection, args);
+                        }
+                        catch (InvocationTargetException ex) {
+                            throw ex.getTargetException();
+                        }
+                    }
+                });
+    }
+}
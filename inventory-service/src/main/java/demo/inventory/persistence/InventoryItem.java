@@ -7,15 +7,21 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.Table;
+import javax.persistence.Version;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.Positive;
 
+import org.hibernate.annotations.ColumnDefault;
+
 /**
  * Entity: inventorydb.items
  */
 @Entity
-@Table(name = "items")
+@Table(name = "items", indexes = {
+    @Index(name = "items_name_idx", columnList = "name"),
+    @Index(name = "items_price_idx", columnList = "price") })
 public class InventoryItem {
 
     // Use generated ID
@@ -46,6 +52,12 @@ public class InventoryItem {
     @Positive
     private int stock;
 
+    // Optimistic lock version, incremented on every change, including stock updates
+    // made with JDBC (see InventoryJdbcRepo). Rows inserted without it start at 0.
+    @Version
+    @ColumnDefault("0")
+    private long version;
+
     public InventoryItem() {
     }
 
@@ -118,6 +130,14 @@ public class InventoryItem {
         this.stock = value;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     public String toString() {
         StringBuilder string = new StringBuilder();
         string.append("{\n");
@@ -127,7 +147,8 @@ public class InventoryItem {
         string.append(String.format("\t\"price\": %s,\n", this.price));
         string.append(String.format("\t\"imgAlt\": \"%s\",\n", this.img_alt));
         string.append(String.format("\t\"img\": \"%s\",\n", this.img));
-        string.append(String.format("\t\"stock\": %s\n", this.stock));
+        string.append(String.format("\t\"stock\": %s,\n", this.stock));
+        string.append(String.format("\t\"version\": %s\n", this.version));
         string.append("}");
         return string.toString();
     }
@@ -0,0 +1,302 @@
+package demo.inventory.persistence;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import javax.sql.DataSource;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Inventory Repository for set-based operations that are not a good fit for JPA, such as
+ * atomic in-place stock updates, processed order records and the notice outbox, applied
+ * as JDBC batches.
+ *
+ * Callers are expected to provide the transaction boundary.
+ */
+@Repository("inventoryJdbcRepo")
+public class InventoryJdbcRepo {
+
+    private static final String DECREMENT_STOCK_SQL = "update items set stock = stock - ?, version = version + 1 where id = ?";
+
+    private static final String SELECT_STOCK_SQL = "select id, stock from items where id in (:ids)";
+
+    private static final String SELECT_ITEMS_SQL = "select id, name, description, price, img_alt, img, stock, version from items order by id";
+
+    private static final String SELECT_ITEM_NAMES_SQL = "select id, name, price from items";
+
+    private static final String INSERT_PROCESSED_ORDER_SQL = "insert into processed_orders (message_key, processed_at) values (?, ?)";
+
+    private static final String SELECT_PROCESSED_ORDERS_SQL = "select message_key from processed_orders where message_key in (:keys)";
+
+    private static final String SELECT_PROCESSED_ORDERS_SINCE_SQL = "select message_key from processed_orders where processed_at >= ?";
+
+    private static final String INSERT_OUTBOX_NOTICE_SQL = "insert into notice_outbox (item_id, notice_type, payload, created_at) values (?, ?, ?, ?)";
+
+    private static final String SELECT_OUTBOX_NOTICES_SQL = "select id, item_id, notice_type, payload, created_at from notice_outbox order by id fetch first %d rows only";
+
+    private static final String DELETE_OUTBOX_NOTICES_SQL = "delete from notice_outbox where id in (:ids)";
+
+    private static final String RENEW_OUTBOX_LEASE_SQL = "update outbox_relay_lease set owner = ?, expires_at = ? where id = 1 and (owner = ? or expires_at < ?)";
+
+    private static final String INSERT_OUTBOX_LEASE_SQL = "insert into outbox_relay_lease (id, owner, expires_at) values (1, ?, ?)";
+
+    private static final String RELEASE_OUTBOX_LEASE_SQL = "update outbox_relay_lease set expires_at = ? where id = 1 and owner = ?";
+
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    public InventoryJdbcRepo(DataSource dataSource) {
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+    }
+
+    /**
+     * Decrement stock for each indicated item, as one JDBC batch of atomic
+     * 'stock = stock - ?' updates. Each update also increments the item's version, as
+     * a JPA update would.
+     *
+     * @param countsByItemId count of units to remove, keyed by item id
+     * @return the resulting stock units, keyed by item id, for those items found
+     */
+    public Map<Long, Integer> decrementStock(Map<Long, Integer> countsByItemId) {
+
+        if (countsByItemId.isEmpty())
+            return Collections.emptyMap();
+
+        final List<Map.Entry<Long, Integer>> updates = new ArrayList<>(countsByItemId.entrySet());
+
+        jdbcTemplate.getJdbcOperations().batchUpdate(DECREMENT_STOCK_SQL, new BatchPreparedStatementSetter() {
+
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setInt(1, updates.get(i).getValue());
+                ps.setLong(2, updates.get(i).getKey());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return updates.size();
+            }
+        });
+
+        // Drivers are not required to report per-statement update counts for a batch, so
+        // read back current stock to learn which items exist
+        return findStock(countsByItemId.keySet());
+    }
+
+    /**
+     * @return the current stock units, keyed by item id, for those items found
+     */
+    public Map<Long, Integer> findStock(Collection<Long> itemIds) {
+
+        if (itemIds.isEmpty())
+            return Collections.emptyMap();
+
+        Map<Long, Integer> stockByItemId = new HashMap<>();
+        jdbcTemplate.query(SELECT_STOCK_SQL, new MapSqlParameterSource("ids", itemIds),
+                (RowCallbackHandler) rs -> stockByItemId.put(rs.getLong("id"), rs.getInt("stock")));
+
+        return stockByItemId;
+    }
+
+    /**
+     * Pass each item, in id order, to the given action as it is read from a forward-only
+     * cursor. Only 'fetchSize' rows are held by the driver at a time, and no row is
+     * retained here once passed to the action.
+     *
+     * @param fetchSize JDBC fetch size hint
+     * @param action called once for each item
+     */
+    public void forEachItem(final int fetchSize, final Consumer<InventoryItem> action) {
+
+        queryForward(SELECT_ITEMS_SQL, fetchSize, rs -> action.accept(mapItem(rs)));
+    }
+
+    /**
+     * Pass each item, in no particular order, to the given action, with only its id, name
+     * and price read, from a forward-only cursor.
+     *
+     * @param fetchSize JDBC fetch size hint
+     * @param action called once for each item
+     */
+    public void forEachItemName(final int fetchSize, final Consumer<InventoryItem> action) {
+
+        queryForward(SELECT_ITEM_NAMES_SQL, fetchSize, rs -> {
+            InventoryItem item = new InventoryItem(rs.getLong("id"));
+            item.setName(rs.getString("name"));
+            item.setPrice(rs.getBigDecimal("price"));
+            action.accept(item);
+        });
+    }
+
+    private void queryForward(final String sql, final int fetchSize, final RowCallbackHandler rowHandler) {
+
+        jdbcTemplate.getJdbcOperations().query(con -> {
+                    PreparedStatement ps = con.prepareStatement(sql,
+                            ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                    ps.setFetchSize(fetchSize);
+                    return ps;
+                },
+                rowHandler);
+    }
+
+    private InventoryItem mapItem(ResultSet rs) throws SQLException {
+        InventoryItem item = new InventoryItem(rs.getLong("id"));
+        item.setName(rs.getString("name"));
+        item.setDescription(rs.getString("description"));
+        item.setPrice(rs.getBigDecimal("price"));
+        item.setImgAlt(rs.getString("img_alt"));
+        item.setImg(rs.getString("img"));
+        item.setStock(rs.getInt("stock"));
+        item.setVersion(rs.getLong("version"));
+        return item;
+    }
+
+    /**
+     * Record order notifications as processed, as one JDBC batch of inserts. A key that is
+     * already recorded fails the batch with a DataIntegrityViolationException.
+     *
+     * @param messageKeys
+     * @param processedAt
+     */
+    public void insertProcessedOrders(Collection<String> messageKeys, Instant processedAt) {
+
+        if (messageKeys.isEmpty())
+            return;
+
+        final List<String> keys = new ArrayList<>(messageKeys);
+        final Timestamp timestamp = Timestamp.from(processedAt);
+
+        jdbcTemplate.getJdbcOperations().batchUpdate(INSERT_PROCESSED_ORDER_SQL, new BatchPreparedStatementSetter() {
+
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setString(1, keys.get(i));
+                ps.setTimestamp(2, timestamp);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return keys.size();
+            }
+        });
+    }
+
+    /**
+     * @return those of the given keys that are recorded as processed
+     */
+    public Set<String> findProcessedOrders(Collection<String> messageKeys) {
+
+        Set<String> processed = new HashSet<>();
+        if (messageKeys.isEmpty())
+            return processed;
+
+        jdbcTemplate.query(SELECT_PROCESSED_ORDERS_SQL, new MapSqlParameterSource("keys", messageKeys),
+                (RowCallbackHandler) rs -> processed.add(rs.getString("message_key")));
+
+        return processed;
+    }
+
+    /**
+     * Pass the key of each order notification processed since the given time to the action.
+     */
+    public void forEachProcessedOrder(Instant since, Consumer<String> action) {
+        jdbcTemplate.getJdbcOperations().query(SELECT_PROCESSED_ORDERS_SINCE_SQL,
+                (RowCallbackHandler) rs -> action.accept(rs.getString("message_key")),
+                Timestamp.from(since));
+    }
+
+    /**
+     * Write notices to the outbox, as one JDBC batch of inserts.
+     */
+    public void insertOutboxNotices(final List<OutboxNotice> notices) {
+
+        if (notices.isEmpty())
+            return;
+
+        jdbcTemplate.getJdbcOperations().batchUpdate(INSERT_OUTBOX_NOTICE_SQL, new BatchPreparedStatementSetter() {
+
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                OutboxNotice notice = notices.get(i);
+                ps.setLong(1, notice.getItemId());
+                ps.setString(2, notice.getNoticeType());
+                ps.setString(3, notice.getPayload());
+                ps.setTimestamp(4, Timestamp.from(notice.getCreatedAt()));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return notices.size();
+            }
+        });
+    }
+
+    /**
+     * @return up to 'limit' of the oldest notices in the outbox, in id order
+     */
+    public List<OutboxNotice> findOutboxNotices(int limit) {
+        return jdbcTemplate.getJdbcOperations().query(String.format(SELECT_OUTBOX_NOTICES_SQL, limit),
+                (rs, rowNum) -> {
+                    OutboxNotice notice = new OutboxNotice(
+                        rs.getLong("item_id"),
+                        rs.getString("notice_type"),
+                        rs.getString("payload"),
+                        rs.getTimestamp("created_at").toInstant());
+                    notice.setId(rs.getLong("id"));
+                    return notice;
+                });
+    }
+
+    /**
+     * Remove published notices from the outbox.
+     */
+    public void deleteOutboxNotices(Collection<Long> ids) {
+        if (ids.isEmpty())
+            return;
+        jdbcTemplate.update(DELETE_OUTBOX_NOTICES_SQL, new MapSqlParameterSource("ids", ids));
+    }
+
+    /**
+     * Take or renew the outbox relay lease, if it is held by the given owner, lapsed, or
+     * not yet held by anyone.
+     *
+     * @return whether the owner now holds the lease, until 'expiresAt'
+     */
+    public boolean acquireOutboxLease(String owner, Instant now, Instant expiresAt) {
+        int renewed = jdbcTemplate.getJdbcOperations().update(RENEW_OUTBOX_LEASE_SQL,
+                owner, Timestamp.from(expiresAt), owner, Timestamp.from(now));
+        if (renewed == 1)
+            return true;
+        try {
+            jdbcTemplate.getJdbcOperations().update(INSERT_OUTBOX_LEASE_SQL, owner, Timestamp.from(expiresAt));
+            return true;
+        }
+        catch (DuplicateKeyException ex) {
+            return false;  // held by another owner
+        }
+    }
+
+    /**
+     * Let the outbox relay lease lapse now, if held by the given owner.
+     */
+    public void releaseOutboxLease(String owner, Instant now) {
+        jdbcTemplate.getJdbcOperations().update(RELEASE_OUTBOX_LEASE_SQL, Timestamp.from(now), owner);
+    }
+}
@@ -1,13 +1,22 @@
 package demo.inventory.persistence;
 
-import java.util.List;
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.Optional;
 
 import javax.transaction.Transactional;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import demo.inventory.api.model.InventoryItemSummary;
+
 /**
  * Inventory Repository
  */
@@ -16,12 +25,44 @@ import org.springframework.stereotype.Repository;
 @Transactional
 public interface InventoryRepo extends PagingAndSortingRepository<InventoryItem, Long> {
 
+    // select only the columns of an item summary
+    String SELECT_SUMMARY = "select new demo.inventory.api.model.InventoryItemSummary(i.id, i.name, i.price, i.img, i.stock) from InventoryItem i";
+
     // find one by id like /inventory/id/{id}
     Optional<InventoryItem> findById(long id);
 
-    // find all by naming like /inventory/name/{name}
-    List<InventoryItem> findByNameContaining(String name);
+    // find the version and stock of one item, without reading the rest of it
+    Optional<ItemVersion> findVersionById(long id);
+
+    // find the versions of a page of items, without reading the rest of them
+    Page<ItemVersion> findVersionsBy(Pageable pageable);
+
+    // find the summary of one item
+    @Query(SELECT_SUMMARY + " where i.id = :id")
+    Optional<InventoryItemSummary> findSummaryById(@Param("id") long id);
+
+    // find a page of item summaries
+    @Query(value = SELECT_SUMMARY, countQuery = "select count(i) from InventoryItem i")
+    Page<InventoryItemSummary> findSummaries(Pageable pageable);
+
+    // find a slice of item summaries following a given id, in id order
+    @Query(SELECT_SUMMARY + " where i.id > :id order by i.id")
+    Slice<InventoryItemSummary> findSummariesByIdGreaterThan(@Param("id") long id, Pageable pageable);
+
+    // find a slice of items following a given id, in id order (keyset pagination, no count query)
+    Slice<InventoryItem> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+    // delete all by id, as a single statement
+    @Modifying
+    @Query("delete from InventoryItem i where i.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    // find a page of items whose name contains the given text, ignoring case; a table scan
+    Page<InventoryItem> findByNameContainingIgnoreCase(String name, Pageable pageable);
+
+    // as above, also bounded by price
+    Page<InventoryItem> findByNameContainingIgnoreCaseAndPriceLessThanEqual(String name, BigDecimal maxPrice, Pageable pageable);
 
-    // find all whose price is less than or equal to /inventory/price/{price}
-    List<InventoryItem> findByPriceLessThanEqual(int price);
+    // find a page of items whose price is less than or equal to the given price, by the price index
+    Page<InventoryItem> findByPriceLessThanEqual(BigDecimal maxPrice, Pageable pageable);
 }
\ No newline at end of file
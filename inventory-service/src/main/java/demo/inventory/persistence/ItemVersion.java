@@ -0,0 +1,14 @@
+package demo.inventory.persistence;
+
+/**
+ * Projection of an inventory item to its version and stock, for conditional requests
+ * that need not read the rest of the item.
+ */
+public interface ItemVersion {
+
+    long getId();
+
+    long getVersion();
+
+    int getStock();
+}
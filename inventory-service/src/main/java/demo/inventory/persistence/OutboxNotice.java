@@ -0,0 +1,97 @@
+package demo.inventory.persistence;
+
+import java.time.Instant;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * Entity: inventorydb.notice_outbox
+ * 
+ * A notice waiting to be published to the 'inventory' topic. Notices are written in the
+ * same transaction as the inventory change they describe, and are published in id order.
+ */
+@Entity
+@Table(name = "notice_outbox")
+public class OutboxNotice {
+
+    // Use generated ID; this is also the publishing order
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+
+    // Item the notice is about, and the message key when published
+    private long itemId;
+
+    // Simple class name of the notice
+    @Column(length = 64, nullable = false)
+    private String noticeType;
+
+    // Notice as JSON
+    @Column(length = 1024, nullable = false)
+    private String payload;
+
+    // Time at which the notice was written
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    public OutboxNotice() {
+    }
+
+    public OutboxNotice(long itemId, String noticeType, String payload, Instant createdAt) {
+        this.itemId = itemId;
+        this.noticeType = noticeType;
+        this.payload = payload;
+        this.createdAt = createdAt;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long value) {
+        this.id = value;
+    }
+
+    public long getItemId() {
+        return itemId;
+    }
+
+    public void setItemId(long value) {
+        this.itemId = value;
+    }
+
+    public String getNoticeType() {
+        return noticeType;
+    }
+
+    public void setNoticeType(String value) {
+        this.noticeType = value;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String value) {
+        this.payload = value;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant value) {
+        this.createdAt = value;
+    }
+
+    @Override
+    public String toString() {
+        return "OutboxNotice [id=" + id + ", itemId=" + itemId + ", noticeType=" + noticeType
+            + ", payload=" + payload + ", createdAt=" + createdAt + "]";
+    }
+}
@@ -0,0 +1,64 @@
+package demo.inventory.persistence;
+
+import java.time.Instant;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * Entity: inventorydb.outbox_relay_lease
+ * 
+ * The single row naming the service instance that relays the notice outbox, and until 
+ * when. Only the holder of an unexpired lease relays, so notices are sent by one instance 
+ * at a time, in order.
+ */
+@Entity
+@Table(name = "outbox_relay_lease")
+public class OutboxRelayLease {
+
+    // Always 1
+    @Id
+    private int id;
+
+    // Instance holding the lease
+    @Column(length = 128, nullable = false)
+    private String owner;
+
+    // Time at which the lease lapses, unless renewed
+    @Column(nullable = false)
+    private Instant expiresAt;
+
+    public OutboxRelayLease() {
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int value) {
+        this.id = value;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String value) {
+        this.owner = value;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Instant value) {
+        this.expiresAt = value;
+    }
+
+    @Override
+    public String toString() {
+        return "OutboxRelayLease [owner=" + owner + ", expiresAt=" + expiresAt + "]";
+    }
+}
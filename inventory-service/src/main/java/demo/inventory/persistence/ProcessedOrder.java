@@ -0,0 +1,57 @@
+package demo.inventory.persistence;
+
+import java.time.Instant;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * Entity: inventorydb.processed_orders
+ * 
+ * A record of an order notification that has been applied to inventory, keyed by order id
+ * or by Kafka topic, partition and offset.
+ */
+@Entity
+@Table(name = "processed_orders")
+public class ProcessedOrder {
+
+    // Order id, or Kafka record coordinates
+    @Id
+    @Column(length = 128)
+    private String messageKey;
+
+    // Time at which the order was applied
+    @Column(nullable = false)
+    private Instant processedAt;
+
+    public ProcessedOrder() {
+    }
+
+    public ProcessedOrder(String messageKey, Instant processedAt) {
+        this.messageKey = messageKey;
+        this.processedAt = processedAt;
+    }
+
+    public String getMessageKey() {
+        return messageKey;
+    }
+
+    public void setMessageKey(String value) {
+        this.messageKey = value;
+    }
+
+    public Instant getProcessedAt() {
+        return processedAt;
+    }
+
+    public void setProcessedAt(Instant value) {
+        this.processedAt = value;
+    }
+
+    @Override
+    public String toString() {
+        return "ProcessedOrder [messageKey=" + messageKey + ", processedAt=" + processedAt + "]";
+    }
+}
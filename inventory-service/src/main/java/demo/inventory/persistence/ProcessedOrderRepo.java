@@ -0,0 +1,25 @@
+package demo.inventory.persistence;
+
+import java.time.Instant;
+
+import javax.transaction.Transactional;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Processed order notifications Repository
+ */
+
+@Repository("processedOrderRepo")
+@Transactional
+public interface ProcessedOrderRepo extends CrudRepository<ProcessedOrder, String> {
+
+    // delete all processed before a given time, as a single statement
+    @Modifying
+    @Query("delete from ProcessedOrder p where p.processedAt < :before")
+    int deleteByProcessedAtBefore(@Param("before") Instant before);
+}
@@ -0,0 +1,221 @@
+package demo.inventory.persistence;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.data.r2dbc.core.DatabaseClient.GenericExecuteSpec;
+import org.springframework.data.r2dbc.core.DatabaseClient.GenericInsertSpec;
+import org.springframework.stereotype.Repository;
+
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Inventory items read and written with R2DBC, for the 'reactive' profile. Rows are
+ * mapped to detached InventoryItem instances, as with InventoryJdbcRepo.
+ *
+ * Each statement runs in its own transaction. Updates check and increment the item's
+ * version, in the same way as JPA.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveInventoryRepo {
+
+    private static final String SELECT_ITEMS = "select id, name, description, price, img_alt, img, stock, version from items";
+
+    private static final String PAGE = " order by id offset :offset rows fetch next :limit rows only";
+
+    private static final String UPDATE_ITEM_SQL = "update items"
+            + " set name = :name, description = :description, price = :price, img_alt = :imgAlt, img = :img,"
+            + " stock = :stock, version = version + 1"
+            + " where id = :id and version = :version";
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveInventoryRepo(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<InventoryItem> findById(long id) {
+        return databaseClient.execute(SELECT_ITEMS + " where id = :id")
+                .bind("id", id)
+                .map(this::mapItem)
+                .one();
+    }
+
+    public Flux<InventoryItem> findAllById(Collection<Long> ids) {
+        if (ids.isEmpty())
+            return Flux.empty();
+        return databaseClient.execute(SELECT_ITEMS + " where id in (:ids)")
+                .bind("ids", ids)
+                .map(this::mapItem)
+                .all();
+    }
+
+    /**
+     * @return a page of items, in id order
+     */
+    public Flux<InventoryItem> findPage(long offset, int limit) {
+        return findWhere("", new LinkedHashMap<>(), offset, limit);
+    }
+
+    /**
+     * @return up to 'limit' items following the given id, in id order
+     */
+    public Flux<InventoryItem> findAfter(long id, int limit) {
+        return databaseClient.execute(SELECT_ITEMS + " where id > :id order by id fetch first :limit rows only")
+                .bind("id", id)
+                .bind("limit", limit)
+                .map(this::mapItem)
+                .all();
+    }
+
+    /**
+     * @return all items, in id order, as demanded by the subscriber
+     */
+    public Flux<InventoryItem> findAll() {
+        return databaseClient.execute(SELECT_ITEMS + " order by id")
+                .map(this::mapItem)
+                .all();
+    }
+
+    public Mono<Long> count() {
+        return countWhere("", new LinkedHashMap<>());
+    }
+
+    /**
+     * @return a page of items, in id order, priced at most maxPrice
+     */
+    public Flux<InventoryItem> findByPriceLessThanEqual(BigDecimal maxPrice, long offset, int limit) {
+        return findWhere(" where price <= :maxPrice", priceBinding(maxPrice), offset, limit);
+    }
+
+    public Mono<Long> countByPriceLessThanEqual(BigDecimal maxPrice) {
+        return countWhere(" where price <= :maxPrice", priceBinding(maxPrice));
+    }
+
+    /**
+     * A table scan, for use until the name index is built.
+     *
+     * @return a page of items, in id order, whose name contains the given text ignoring
+     *   case, and priced at most maxPrice if not null
+     */
+    public Flux<InventoryItem> findByNameContaining(String name, BigDecimal maxPrice, long offset, int limit) {
+        Map<String, Object> bindings = nameBindings(name, maxPrice);
+        return findWhere(nameCondition(maxPrice), bindings, offset, limit);
+    }
+
+    public Mono<Long> countByNameContaining(String name, BigDecimal maxPrice) {
+        return countWhere(nameCondition(maxPrice), nameBindings(name, maxPrice));
+    }
+
+    /**
+     * @return the generated id of the new item
+     */
+    public Mono<Long> insert(InventoryItem item) {
+        GenericInsertSpec<Map<String, Object>> insert = databaseClient.insert().into("items")
+                .value("name", item.getName())
+                .value("description", item.getDescription())
+                .value("price", item.getPrice())
+                .value("img", item.getImg())
+                .value("stock", item.getStock())
+                .value("version", 0L);
+        insert = item.getImgAlt() == null
+                ? insert.nullValue("img_alt", String.class)
+                : insert.value("img_alt", item.getImgAlt());
+
+        return insert
+                .map((row, metadata) -> ((Number) row.get(0)).longValue())
+                .one();
+    }
+
+    /**
+     * Write all fields of an item, if it is still at the given version, and increment the
+     * version.
+     *
+     * @return the count of rows updated: 0 if the item has changed or been deleted
+     */
+    public Mono<Integer> update(InventoryItem item, long expectedVersion) {
+        GenericExecuteSpec update = databaseClient.execute(UPDATE_ITEM_SQL)
+                .bind("name", item.getName())
+                .bind("description", item.getDescription())
+                .bind("price", item.getPrice())
+                .bind("img", item.getImg())
+                .bind("stock", item.getStock())
+                .bind("id", item.getId())
+                .bind("version", expectedVersion);
+        update = item.getImgAlt() == null
+                ? update.bindNull("imgAlt", String.class)
+                : update.bind("imgAlt", item.getImgAlt());
+
+        return update.fetch().rowsUpdated();
+    }
+
+    public Mono<Integer> deleteById(long id) {
+        return databaseClient.execute("delete from items where id = :id")
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    private Flux<InventoryItem> findWhere(String condition, Map<String, Object> bindings, long offset, int limit) {
+        bindings.put("offset", offset);
+        bindings.put("limit", limit);
+        return bindAll(databaseClient.execute(SELECT_ITEMS + condition + PAGE), bindings)
+                .map(this::mapItem)
+                .all();
+    }
+
+    private Mono<Long> countWhere(String condition, Map<String, Object> bindings) {
+        return bindAll(databaseClient.execute("select count(*) from items" + condition), bindings)
+                .map((row, metadata) -> ((Number) row.get(0)).longValue())
+                .one();
+    }
+
+    private static GenericExecuteSpec bindAll(GenericExecuteSpec spec, Map<String, Object> bindings) {
+        for (Map.Entry<String, Object> binding : bindings.entrySet())
+            spec = spec.bind(binding.getKey(), binding.getValue());
+        return spec;
+    }
+
+    private static Map<String, Object> priceBinding(BigDecimal maxPrice) {
+        Map<String, Object> bindings = new LinkedHashMap<>();
+        bindings.put("maxPrice", maxPrice);
+        return bindings;
+    }
+
+    private static String nameCondition(BigDecimal maxPrice) {
+        return " where lower(name) like :pattern escape '\\'" + (maxPrice == null ? "" : " and price <= :maxPrice");
+    }
+
+    private static Map<String, Object> nameBindings(String name, BigDecimal maxPrice) {
+        String escaped = name.toLowerCase(Locale.ROOT)
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        Map<String, Object> bindings = new LinkedHashMap<>();
+        bindings.put("pattern", "%" + escaped + "%");
+        if (maxPrice != null)
+            bindings.put("maxPrice", maxPrice);
+        return bindings;
+    }
+
+    private InventoryItem mapItem(Row row, RowMetadata metadata) {
+        InventoryItem item = new InventoryItem(((Number) row.get("id")).longValue());
+        item.setName(row.get("name", String.class));
+        item.setDescription(row.get("description", String.class));
+        item.setPrice(row.get("price", BigDecimal.class));
+        item.setImgAlt(row.get("img_alt", String.class));
+        item.setImg(row.get("img", String.class));
+        item.setStock(((Number) row.get("stock")).intValue());
+        item.setVersion(((Number) row.get("version")).longValue());
+        return item;
+    }
+}
@@ -0,0 +1,71 @@
+package demo.inventory.persistence;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * A DataSource that sends read-only transactions to a replica database, and everything else
+ * to the primary, but only on threads that allow replica reads (see
+ * {@link #setReplicaReadsAllowed}), such as those serving query requests. Threads that do
+ * not, such as Kafka listeners, always use the primary, even for a read that might be
+ * answered from behind a write.
+ *
+ * Whether a transaction is read-only is known only once it has begun, so the connection is
+ * chosen at its first statement, through a {@link LazyConnectionDataSourceProxy} (see
+ * {@link #lazy}).
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMARY = "primary";
+
+    static final String REPLICA = "replica";
+
+    private static final ThreadLocal<Boolean> replicaReadsAllowed = new ThreadLocal<>();
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica) {
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        targets.put(REPLICA, replica);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    /**
+     * @return a DataSource routing each connection at its first statement, between the
+     *   given primary and replica
+     */
+    public static DataSource lazy(DataSource primary, DataSource replica) {
+        return new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(primary, replica));
+    }
+
+    /**
+     * Allow, or stop allowing, read-only transactions on the current thread to use the replica
+     */
+    public static void setReplicaReadsAllowed(boolean allowed) {
+        if (allowed)
+            replicaReadsAllowed.set(Boolean.TRUE);
+        else
+            replicaReadsAllowed.remove();
+    }
+
+    /**
+     * @return whether read-only transactions on the current thread may use the replica
+     */
+    public static boolean isReplicaReadsAllowed() {
+        return replicaReadsAllowed.get() != null;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return isReplicaReadsAllowed() && TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                ? REPLICA
+                : PRIMARY;
+    }
+}
@@ -0,0 +1,100 @@
+package demo.inventory.service;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The outcome of applying a set of order notifications to inventory.
+ */
+public class AppliedOrders {
+
+  private final Set<String> duplicateMessageKeys;
+
+  private final Map<Long, Integer> stockByItemId;
+
+  private final Set<Long> invalidItemIds;
+
+  private final Map<Long, Integer> rejectedStockByItemId;
+
+  private final boolean deferred;
+
+  public AppliedOrders(Set<String> duplicateMessageKeys, Map<Long, Integer> stockByItemId, Set<Long> invalidItemIds) {
+    this(duplicateMessageKeys, stockByItemId, invalidItemIds, Collections.emptyMap(), false);
+  }
+
+  public AppliedOrders(Set<String> duplicateMessageKeys, Map<Long, Integer> stockByItemId, Set<Long> invalidItemIds,
+      Map<Long, Integer> rejectedStockByItemId, boolean deferred) {
+    this.duplicateMessageKeys = duplicateMessageKeys;
+    this.stockByItemId = stockByItemId;
+    this.invalidItemIds = invalidItemIds;
+    this.rejectedStockByItemId = rejectedStockByItemId;
+    this.deferred = deferred;
+  }
+
+  /**
+   * @return the combined outcome of orders applied in two disjoint parts
+   */
+  public static AppliedOrders combine(AppliedOrders first, AppliedOrders second) {
+
+    Set<String> duplicateMessageKeys = new HashSet<>(first.duplicateMessageKeys);
+    duplicateMessageKeys.addAll(second.duplicateMessageKeys);
+    Map<Long, Integer> stockByItemId = new LinkedHashMap<>(first.stockByItemId);
+    stockByItemId.putAll(second.stockByItemId);
+    Set<Long> invalidItemIds = new LinkedHashSet<>(first.invalidItemIds);
+    invalidItemIds.addAll(second.invalidItemIds);
+    Map<Long, Integer> rejectedStockByItemId = new LinkedHashMap<>(first.rejectedStockByItemId);
+    rejectedStockByItemId.putAll(second.rejectedStockByItemId);
+
+    return new AppliedOrders(duplicateMessageKeys, stockByItemId, invalidItemIds, rejectedStockByItemId,
+        first.deferred || second.deferred);
+  }
+
+  /**
+   * @return keys of notifications that had already been applied, and were ignored
+   */
+  public Set<String> getDuplicateMessageKeys() {
+    return duplicateMessageKeys;
+  }
+
+  /**
+   * @return current stock units, keyed by item id, of each item updated
+   */
+  public Map<Long, Integer> getStockByItemId() {
+    return stockByItemId;
+  }
+
+  /**
+   * @return ids of ordered items that are not in inventory
+   */
+  public Set<Long> getInvalidItemIds() {
+    return invalidItemIds;
+  }
+
+  /**
+   * @return current stock units, keyed by item id, of each item with an order rejected 
+   *     for insufficient stock
+   */
+  public Map<Long, Integer> getRejectedStockByItemId() {
+    return rejectedStockByItemId;
+  }
+
+  /**
+   * @return true if some stock changes are held in memory, not yet written to the database
+   */
+  public boolean isDeferred() {
+    return deferred;
+  }
+
+  @Override
+  public String toString() {
+    return "AppliedOrders [duplicateMessageKeys=" + duplicateMessageKeys
+        + ", stockByItemId=" + stockByItemId
+        + ", invalidItemIds=" + invalidItemIds
+        + ", rejectedStockByItemId=" + rejectedStockByItemId
+        + ", deferred=" + deferred + "]";
+  }
+}
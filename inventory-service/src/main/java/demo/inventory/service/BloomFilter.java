@@ -0,0 +1,78 @@
+package demo.inventory.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread-safe Bloom filter of strings, sized for an expected number of entries and
+ * false positive rate. A negative answer is definite; a positive answer is not.
+ */
+final class BloomFilter {
+
+  private final AtomicLongArray words;
+
+  private final int numBits;
+
+  private final int numHashes;
+
+  BloomFilter(long expectedEntries, double falsePositiveRate) {
+    long n = Math.max(1, expectedEntries);
+    long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+    this.numBits = (int) Math.max(64, Math.min(m, Integer.MAX_VALUE - 63));
+    this.numHashes = (int) Math.max(1, Math.round((double) numBits / n * Math.log(2)));
+    this.words = new AtomicLongArray((numBits + 63) >>> 6);
+  }
+
+  void put(String key) {
+    long hash = hash64(key);
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32);
+    for (int i = 1; i <= numHashes; i++)
+      setBit(bitIndex(h1, h2, i));
+  }
+
+  boolean mightContain(String key) {
+    long hash = hash64(key);
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32);
+    for (int i = 1; i <= numHashes; i++) {
+      int index = bitIndex(h1, h2, i);
+      if ((words.get(index >>> 6) & (1L << index)) == 0)
+        return false;
+    }
+    return true;
+  }
+
+  // Kirsch-Mitzenmacher: derive the i'th hash from two
+  private int bitIndex(int h1, int h2, int i) {
+    int combined = h1 + i * h2;
+    if (combined < 0)
+      combined = ~combined;
+    return combined % numBits;
+  }
+
+  private void setBit(int index) {
+    int w = index >>> 6;
+    long mask = 1L << index;
+    long word;
+    do {
+      word = words.get(w);
+      if ((word & mask) != 0)
+        return;
+    } while (!words.compareAndSet(w, word, word | mask));
+  }
+
+  // FNV-1a over the chars, then the MurmurHash3 64-bit finalizer
+  private static long hash64(String key) {
+    long h = 0xcbf29ce484222325L;
+    for (int i = 0; i < key.length(); i++) {
+      h ^= key.charAt(i);
+      h *= 0x100000001b3L;
+    }
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+}
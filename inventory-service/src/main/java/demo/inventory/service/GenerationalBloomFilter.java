@@ -0,0 +1,90 @@
+package demo.inventory.service;
+
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A thread-safe Bloom filter of strings, kept as generations, so that it can forget old
+ * keys. Keys are added to the current generation; {@link #rotate()} starts a new one, and
+ * drops the oldest once there are more than the given number of previous generations. A
+ * key is therefore remembered for at least that many rotations.
+ *
+ * Each generation holds {@link BloomFilter}s sized for a number of entries, and adds
+ * another once its entries exceed their capacity, so that a generation never saturates.
+ * Each added filter adds its false positive rate to the whole. A negative answer is
+ * definite; a positive answer is not.
+ */
+final class GenerationalBloomFilter {
+
+  private final long entriesPerFilter;
+
+  private final double falsePositiveRate;
+
+  private final int previousGenerations;
+
+  // newest first
+  private final Deque<Generation> generations = new ConcurrentLinkedDeque<>();
+
+  GenerationalBloomFilter(long entriesPerFilter, double falsePositiveRate, int previousGenerations) {
+    this.entriesPerFilter = Math.max(1, entriesPerFilter);
+    this.falsePositiveRate = falsePositiveRate;
+    this.previousGenerations = previousGenerations;
+    generations.addFirst(new Generation());
+  }
+
+  void put(String key) {
+    generations.peekFirst().put(key);
+  }
+
+  boolean mightContain(String key) {
+    for (Generation generation : generations)
+      if (generation.mightContain(key))
+        return true;
+    return false;
+  }
+
+  synchronized void rotate() {
+    generations.addFirst(new Generation());
+    while (generations.size() > previousGenerations + 1)
+      generations.removeLast();
+  }
+
+  /**
+   * @return the count of keys added to each generation, newest first
+   */
+  long[] entries() {
+    return generations.stream().mapToLong(generation -> generation.entries.get()).toArray();
+  }
+
+  private final class Generation {
+
+    private final List<BloomFilter> filters = new CopyOnWriteArrayList<>();
+
+    private final AtomicLong entries = new AtomicLong();
+
+    Generation() {
+      filters.add(new BloomFilter(entriesPerFilter, falsePositiveRate));
+    }
+
+    void put(String key) {
+      if (entries.incrementAndGet() > filters.size() * entriesPerFilter)
+        grow();
+      filters.get(filters.size() - 1).put(key);
+    }
+
+    private synchronized void grow() {
+      if (entries.get() > filters.size() * entriesPerFilter)
+        filters.add(new BloomFilter(entriesPerFilter, falsePositiveRate));
+    }
+
+    boolean mightContain(String key) {
+      for (BloomFilter filter : filters)
+        if (filter.mightContain(key))
+          return true;
+      return false;
+    }
+  }
+}
@@ -0,0 +1,463 @@
+package demo.inventory.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import demo.inventory.api.message.OrderCompletedNotice;
+import demo.inventory.persistence.InventoryJdbcRepo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Write-behind stock ledger for a configured set of hot items, enabled with
+ * 'inventory.write-behind.enabled'.
+ *
+ * Stock for each hot item is held in memory, loaded on the item's first order. An order
+ * is applied by a compare-and-set decrement of that count, and is rejected if it would
+ * take stock below zero. Applied orders are queued, and their net change per item is
+ * written to 'items.stock', along with their processed order records, every
+ * 'flush-interval' millis or once 'flush-threshold' orders are queued. Flushes run on a
+ * thread of their own, so that they are not held up by the application's @Scheduled tasks.
+ *
+ * Nothing is acknowledged to Kafka until it is written. Actions passed to
+ * {@link #whenDurable(Runnable)} - offset acknowledgements - run after the next flush, so
+ * that after a restart, consumption resumes from the first order not yet written. Orders
+ * that were written but not yet acknowledged are then found in the processed order ledger
+ * and ignored. Orders and actions of a failed flush are kept, and are the first written
+ * and run by the next flush, so that actions still run in the order they were registered.
+ *
+ * After each flush, the in-memory count of a flushed item is corrected by any difference
+ * from the stock written, such as a change made through the REST API, and the item is
+ * evicted from the {@link InventoryItemCache}, since the write increments its version.
+ */
+@Component
+public class HotStockLedger {
+  private static final Logger logger = LoggerFactory.getLogger(HotStockLedger.class);
+
+  private final InventoryJdbcRepo itemsJdbcRepo;
+
+  private final InventoryItemCache itemCache;
+
+  private final ProcessedOrderLedger processedOrders;
+
+  private final NoticeOutbox noticeOutbox;
+
+  private final TransactionTemplate transactionTemplate;
+
+  private final boolean enabled;
+
+  private final Set<Long> hotItemIds;
+
+  private final int flushThreshold;
+
+  private final long flushInterval;
+
+  private ScheduledExecutorService flushScheduler;
+
+  private final Map<Long, HotStock> hotStockByItemId = new ConcurrentHashMap<>();
+
+  private final Queue<PendingOrder> pendingOrders = new ConcurrentLinkedQueue<>();
+
+  private final AtomicInteger pendingCount = new AtomicInteger();
+
+  private final Set<String> pendingMessageKeys = ConcurrentHashMap.newKeySet();
+
+  private final Queue<Runnable> pendingActions = new ConcurrentLinkedQueue<>();
+
+  // Orders and actions of a failed flush, ahead of those pending; guarded by the flush lock
+  private List<PendingOrder> retryOrders = Collections.emptyList();
+
+  private List<Runnable> retryActions = Collections.emptyList();
+
+  private final ReentrantLock flushLock = new ReentrantLock();
+
+  private final Counter rejectedOrders;
+
+  private final Timer flushTimer;
+
+  public HotStockLedger(
+      InventoryJdbcRepo itemsJdbcRepo,
+      InventoryItemCache itemCache,
+      ProcessedOrderLedger processedOrders,
+      NoticeOutbox noticeOutbox,
+      TransactionTemplate transactionTemplate,
+      MeterRegistry meterRegistry,
+      @Value("${inventory.write-behind.enabled}") boolean enabled,
+      @Value("${inventory.write-behind.items}") Set<Long> hotItemIds,
+      @Value("${inventory.write-behind.flush-threshold}") int flushThreshold,
+      @Value("${inventory.write-behind.flush-interval}") long flushInterval) {
+
+    this.itemsJdbcRepo = itemsJdbcRepo;
+    this.itemCache = itemCache;
+    this.processedOrders = processedOrders;
+    this.noticeOutbox = noticeOutbox;
+    this.transactionTemplate = transactionTemplate;
+    this.enabled = enabled;
+    this.hotItemIds = enabled ? hotItemIds : Collections.emptySet();
+    this.flushThreshold = flushThreshold;
+    this.flushInterval = flushInterval;
+
+    meterRegistry.gauge("inventory.write-behind.pending", pendingCount);
+    this.rejectedOrders = Counter.builder("inventory.write-behind.rejected")
+        .description("Orders rejected for insufficient stock")
+        .register(meterRegistry);
+    this.flushTimer = Timer.builder("inventory.write-behind.flush")
+        .description("Writes of queued stock changes")
+        .register(meterRegistry);
+
+    if (enabled)
+      logger.info("Write-behind stock for items: " + this.hotItemIds);
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public boolean isHot(long itemId) {
+    return hotItemIds.contains(itemId);
+  }
+
+  /**
+   * @return the in-memory stock of a hot item, if loaded
+   */
+  public OptionalLong currentStock(long itemId) {
+    HotStock stock = hotStockByItemId.get(itemId);
+    return stock == null ? OptionalLong.empty() : OptionalLong.of(stock.available.get());
+  }
+
+  /**
+   * Apply orders for hot items in memory. Orders already applied, whether written or
+   * still queued, are ignored.
+   *
+   * @return the resulting stock changes, which are deferred if any order was applied
+   */
+  public AppliedOrders apply(Map<String, OrderCompletedNotice> ordersByMessageKey) {
+
+    Set<String> duplicateMessageKeys = new HashSet<>(processedOrders.findProcessed(ordersByMessageKey.keySet()));
+    Map<Long, Integer> stockByItemId = new LinkedHashMap<>();
+    Set<Long> invalidItemIds = new LinkedHashSet<>();
+    Map<Long, Integer> rejectedStockByItemId = new LinkedHashMap<>();
+    int appliedCount = 0;
+
+    for (Map.Entry<String, OrderCompletedNotice> order : ordersByMessageKey.entrySet()) {
+      String messageKey = order.getKey();
+      long itemId = order.getValue().getItemId();
+      int count = order.getValue().getCount();
+
+      if (duplicateMessageKeys.contains(messageKey) || !pendingMessageKeys.add(messageKey)) {
+        duplicateMessageKeys.add(messageKey);
+        continue;
+      }
+
+      HotStock stock = hotStockByItemId.computeIfAbsent(itemId, this::load);
+      if (stock == null) {
+        pendingMessageKeys.remove(messageKey);
+        invalidItemIds.add(itemId);
+        continue;
+      }
+
+      long available = stock.tryDecrement(count);
+      if (available < 0) {
+        pendingMessageKeys.remove(messageKey);
+        rejectedOrders.increment();
+        rejectedStockByItemId.put(itemId, (int) stock.available.get());
+        continue;
+      }
+
+      pendingOrders.add(new PendingOrder(messageKey, itemId, count));
+      pendingCount.incrementAndGet();
+      stockByItemId.put(itemId, (int) available);
+      appliedCount++;
+    }
+
+    if (pendingCount.get() >= flushThreshold)
+      tryFlush();
+
+    return new AppliedOrders(duplicateMessageKeys, stockByItemId, invalidItemIds, rejectedStockByItemId, appliedCount > 0);
+  }
+
+  /**
+   * Run an action once all orders applied so far are written, or now if write-behind is
+   * not enabled.
+   */
+  public void whenDurable(Runnable action) {
+    if (!enabled) {
+      action.run();
+      return;
+    }
+    pendingActions.add(action);
+  }
+
+  /**
+   * Write queued orders, then reload the stock of an item from the database, keeping any
+   * orders queued since. Used when an item has been changed other than by an order.
+   */
+  public void refresh(long itemId) {
+    if (!hotStockByItemId.containsKey(itemId))
+      return;
+    flushLock.lock();
+    try {
+      doFlush();
+      HotStock stock = hotStockByItemId.get(itemId);
+      Integer written = itemsJdbcRepo.findStock(Collections.singleton(itemId)).get(itemId);
+      if (stock != null)
+        stock.resync(itemId, written);
+    }
+    finally {
+      flushLock.unlock();
+    }
+  }
+
+  @PostConstruct
+  public void start() {
+    if (!enabled)
+      return;
+    flushScheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+      Thread thread = new Thread(task, "write-behind-flush");
+      thread.setDaemon(true);
+      return thread;
+    });
+    flushScheduler.scheduleWithFixedDelay(this::scheduledFlush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+  }
+
+  // An exception would cancel the schedule
+  private void scheduledFlush() {
+    try {
+      flush();
+    }
+    catch (RuntimeException ex) {
+      logger.error("Unable to flush queued orders due to : " + ex.getMessage(), ex);
+    }
+  }
+
+  public void flush() {
+    if (!enabled)
+      return;
+    flushLock.lock();
+    try {
+      doFlush();
+    }
+    finally {
+      flushLock.unlock();
+    }
+  }
+
+  @PreDestroy
+  public void close() {
+    if (flushScheduler != null) {
+      flushScheduler.shutdown();
+      try {
+        flushScheduler.awaitTermination(30, TimeUnit.SECONDS);
+      }
+      catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    flush();
+  }
+
+  private void tryFlush() {
+    if (!flushLock.tryLock())
+      return;
+    try {
+      doFlush();
+    }
+    finally {
+      flushLock.unlock();
+    }
+  }
+
+  /*
+   * Drain actions before orders: an action is registered after the orders it waits on
+   * were queued, so every drained action's orders are in this flush. Those of a failed
+   * flush go first.
+   */
+  private void doFlush() {
+
+    List<Runnable> actions = new ArrayList<>(retryActions);
+    actions.addAll(drain(pendingActions));
+    List<PendingOrder> orders = new ArrayList<>(retryOrders);
+    orders.addAll(drain(pendingOrders));
+    pendingCount.addAndGet(-orders.size());
+    retryActions = Collections.emptyList();
+    retryOrders = Collections.emptyList();
+
+    if (!orders.isEmpty()) {
+      try {
+        flushTimer.record(() -> write(orders));
+      }
+      catch (RuntimeException ex) {
+        // Keep everything for the next flush, ahead of anything queued since
+        logger.error("Unable to write " + orders.size() + " queued orders due to : " + ex.getMessage());
+        retryOrders = orders;
+        retryActions = actions;
+        pendingCount.addAndGet(orders.size());
+        return;
+      }
+    }
+
+    actions.forEach(Runnable::run);
+  }
+
+  private void write(List<PendingOrder> orders) {
+
+    Map<String, PendingOrder> ordersByMessageKey = new LinkedHashMap<>();
+    orders.forEach(order -> ordersByMessageKey.put(order.messageKey, order));
+
+    Map<Long, Integer> stockByItemId;
+    try {
+      stockByItemId = transactionTemplate.execute(status -> doWrite(ordersByMessageKey));
+    }
+    catch (DataIntegrityViolationException ex) {
+      // Recorded concurrently, as by another instance given this partition
+      processedOrders.remember(ordersByMessageKey.keySet());
+      stockByItemId = transactionTemplate.execute(status -> doWrite(ordersByMessageKey));
+    }
+
+    pendingMessageKeys.removeAll(ordersByMessageKey.keySet());
+    stockByItemId.keySet().forEach(itemCache::invalidate);
+
+    // Correct the in-memory stock of each flushed item by any difference from the database:
+    // orders found already written, or changes not made through this ledger
+    Map<Long, Long> countsByItemId = new HashMap<>();
+    orders.forEach(order -> countsByItemId.merge(order.itemId, (long) order.count, Long::sum));
+    for (Map.Entry<Long, Long> flushed : countsByItemId.entrySet()) {
+      HotStock stock = hotStockByItemId.get(flushed.getKey());
+      if (stock != null) {
+        stock.flushed -= flushed.getValue();
+        stock.resync(flushed.getKey(), stockByItemId.get(flushed.getKey()));
+      }
+    }
+
+    logger.debug("Wrote {} queued orders for {} items", orders.size(), countsByItemId.size());
+  }
+
+  private Map<Long, Integer> doWrite(Map<String, PendingOrder> ordersByMessageKey) {
+
+    Set<String> duplicateMessageKeys = processedOrders.findProcessed(ordersByMessageKey.keySet());
+
+    List<String> messageKeys = new ArrayList<>(ordersByMessageKey.size());
+    Map<Long, Integer> countsByItemId = new LinkedHashMap<>();
+    ordersByMessageKey.forEach((messageKey, order) -> {
+      if (!duplicateMessageKeys.contains(messageKey)) {
+        messageKeys.add(messageKey);
+        countsByItemId.merge(order.itemId, order.count, Integer::sum);
+      }
+    });
+
+    processedOrders.record(messageKeys);
+
+    itemsJdbcRepo.decrementStock(countsByItemId);
+
+    // Read back every flushed item, including those with only duplicate orders
+    Set<Long> itemIds = new HashSet<>();
+    ordersByMessageKey.values().forEach(order -> itemIds.add(order.itemId));
+    Map<Long, Integer> stockByItemId = itemsJdbcRepo.findStock(itemIds);
+
+    if (noticeOutbox.isEnabled() && !countsByItemId.isEmpty()) {
+      Map<Long, Integer> updatedStockByItemId = new LinkedHashMap<>(stockByItemId);
+      updatedStockByItemId.keySet().retainAll(countsByItemId.keySet());
+      noticeOutbox.append(new AppliedOrders(Collections.emptySet(), updatedStockByItemId, Collections.emptySet()));
+    }
+
+    return stockByItemId;
+  }
+
+  private HotStock load(long itemId) {
+    Integer stock = itemsJdbcRepo.findStock(Collections.singleton(itemId)).get(itemId);
+    return stock == null ? null : new HotStock(stock);
+  }
+
+  private void remove(long itemId) {
+    hotStockByItemId.remove(itemId);
+  }
+
+  private static <T> List<T> drain(Queue<T> queue) {
+    List<T> drained = new ArrayList<>();
+    T element;
+    while ((element = queue.poll()) != null)
+      drained.add(element);
+    return drained;
+  }
+
+  private final class HotStock {
+
+    // Stock units available to orders, net of queued orders
+    final AtomicLong available;
+
+    // Stock units in the database as of the last flush; guarded by the flush lock
+    long flushed;
+
+    HotStock(long stock) {
+      this.available = new AtomicLong(stock);
+      this.flushed = stock;
+    }
+
+    /*
+     * @return the remaining stock, or -1 if the order would take stock below zero
+     */
+    long tryDecrement(int count) {
+      long current;
+      do {
+        current = available.get();
+        if (current < count)
+          return -1;
+      }
+      while (!available.compareAndSet(current, current - count));
+      return current - count;
+    }
+
+    /*
+     * Adopt the stock written to the database, keeping the orders applied since. An item
+     * no longer in the database is dropped.
+     */
+    void resync(long itemId, Integer written) {
+      if (written == null) {
+        remove(itemId);
+        return;
+      }
+      available.addAndGet(written - flushed);
+      flushed = written;
+    }
+  }
+
+  private static final class PendingOrder {
+    final String messageKey;
+    final long itemId;
+    final int count;
+
+    PendingOrder(String messageKey, long itemId, int count) {
+      this.messageKey = messageKey;
+      this.itemId = itemId;
+      this.count = count;
+    }
+  }
+}
@@ -1,11 +1,19 @@
 package demo.inventory.service;
 
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 
+import demo.inventory.api.message.OrderCompletedNotice;
 import demo.inventory.api.model.InventoryItemModel;
+import demo.inventory.api.model.InventoryItemSummary;
 
 public interface IInventoryService {
 
@@ -19,6 +27,63 @@ public interface IInventoryService {
      */
     Page<InventoryItemModel> getInventory(PageRequest pageRequest);
 
+    /**
+     * @return the summary of an item in inventory, read without its other fields
+     */
+    Optional<InventoryItemSummary> getInventoryItemSummary(long id);
+
+    /**
+     * @return a page of item summaries, read without the other item fields
+     */
+    Page<InventoryItemSummary> getInventorySummaries(PageRequest pageRequest);
+
+    /**
+     * @return a page of item summaries, in id order, following the item with the given id
+     */
+    Slice<InventoryItemSummary> getInventorySummariesAfter(long afterItemId, int size);
+
+    /**
+     * @return an entity tag for the indicated item, which changes whenever the item does,
+     *   or empty if there is no such item
+     */
+    Optional<String> getInventoryItemTag(long id);
+
+    /**
+     * @return the indicated item, as of the given entity tag or later
+     */
+    Optional<InventoryItemModel> getInventoryItem(long id, String tag);
+
+    /**
+     * @return an entity tag for a page of items in inventory, which changes whenever an 
+     *   item in the page, or the count of items, does
+     */
+    String getInventoryTag(PageRequest pageRequest);
+
+    /**
+     * @return a page of items in inventory, in id order, following the item with the given id
+     */
+    Slice<InventoryItemModel> getInventoryAfter(long afterItemId, int size);
+
+    /**
+     * @param name text contained in the item name, ignoring case, or null for any
+     * @param maxPrice maximum item price, or null for any
+     * @return a page of matching items in inventory, in id order
+     */
+    Page<InventoryItemModel> searchInventory(String name, BigDecimal maxPrice, PageRequest pageRequest);
+
+    /**
+     * @return the count of items in inventory
+     */
+    long countInventory();
+
+    /**
+     * Pass every item in inventory, in id order, to the given consumer, without holding 
+     * the full set of items in memory
+     * 
+     * @param itemConsumer
+     */
+    void exportInventory(Consumer<InventoryItemModel> itemConsumer);
+
     /**
      * Update a persisted item
      * 
@@ -26,6 +91,18 @@ public interface IInventoryService {
      */
     public void updateInventoryItem(InventoryItemModel itemModel);
 
+    /**
+     * Update a persisted item, unless it has changed since it was read
+     * 
+     * @param id
+     * @param itemModel
+     * @param expectedTags entity tags of which the item's current tag must be one, or null for any
+     * @return the updated item, or empty if there is no such item
+     * @throws org.springframework.dao.OptimisticLockingFailureException if the item's tag
+     *   is not expected, or the item is changed concurrently
+     */
+    public Optional<InventoryItemModel> updateInventoryItem(long id, InventoryItemModel itemModel, Collection<String> expectedTags);
+
     /**
      * Create a new persisted item
      * 
@@ -39,4 +116,50 @@ public interface IInventoryService {
      * @param itemModel
      */
     public void deleteInventoryItem(long id);
+
+    /**
+     * Apply order notifications to inventory, as a single atomic update. Notifications 
+     * already applied, identified by message key, are ignored.
+     * 
+     * @param ordersByMessageKey order notifications, keyed by order id or record coordinates
+     * @return the resulting stock changes
+     */
+    public AppliedOrders applyOrders(Map<String, OrderCompletedNotice> ordersByMessageKey);
+
+    /**
+     * Run an action once all orders applied so far are written to the database. This is
+     * immediate unless some orders were applied in memory (see {@link AppliedOrders#isDeferred()}).
+     * 
+     * @param action such as a message offset acknowledgement
+     */
+    public void whenDurable(Runnable action);
+
+    /**
+     * Create new persisted items, within one transaction
+     * 
+     * @param itemModels
+     * @return the new generated item ids, in the order of the given items
+     * @throws InvalidItemsException if any item is not valid
+     */
+    public List<Long> createInventoryItems(List<InventoryItemModel> itemModels);
+
+    /**
+     * Create or update persisted items, within one transaction. An item without an id
+     * is created. An item with a version is only updated if still at that version.
+     * 
+     * @param itemModels
+     * @return the item ids, in the order of the given items
+     * @throws InvalidItemsException if any item is not valid
+     * @throws org.springframework.dao.OptimisticLockingFailureException if an item is not
+     *   at its given version
+     */
+    public List<Long> saveInventoryItems(List<InventoryItemModel> itemModels);
+
+    /**
+     * Delete persisted items, within one transaction
+     * 
+     * @param ids
+     * @return the count of items deleted
+     */
+    public int deleteInventoryItems(List<Long> ids);
 }
\ No newline at end of file
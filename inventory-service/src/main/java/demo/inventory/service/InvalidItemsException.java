@@ -0,0 +1,30 @@
+package demo.inventory.service;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+
+import javax.validation.ConstraintViolation;
+
+/**
+ * Thrown when one or more items of a bulk request fail validation. No item of the request
+ * is written.
+ */
+public class InvalidItemsException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  private final SortedMap<Integer, Set<ConstraintViolation<?>>> violationsByIndex;
+
+  public InvalidItemsException(SortedMap<Integer, Set<ConstraintViolation<?>>> violationsByIndex) {
+    super("Invalid items at index: " + violationsByIndex.keySet());
+    this.violationsByIndex = violationsByIndex;
+  }
+
+  /**
+   * @return the constraint violations of each invalid item, keyed by position in the request
+   */
+  public Map<Integer, Set<ConstraintViolation<?>>> getViolationsByIndex() {
+    return violationsByIndex;
+  }
+}
@@ -0,0 +1,98 @@
+package demo.inventory.service;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import demo.inventory.api.messaging.InvalidInventoryItemEvent;
+import demo.inventory.api.messaging.InventoryUpdatedEvent;
+import demo.inventory.api.model.InventoryItemModel;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Bounded, read-through cache of inventory items, keyed by item id.
+ *
+ * Entries are evicted by size and by age since last write. The age bound also limits how
+ * long a stock level written by another service instance can remain unseen here. Items
+ * whose stock is changed by orders at this instance are evicted once the change commits,
+ * since it also increments their version, which is part of the item's entity tag. Stock
+ * changes are also applied to cached entries from the internal
+ * {@link InventoryUpdatedEvent}, as for write-behind items, whose version changes only
+ * when their stock is flushed.
+ *
+ * Cached models are never handed out; callers receive a copy they are free to modify.
+ *
+ * Hit, miss, eviction and size metrics are registered under the cache name "items".
+ */
+@Component
+public class InventoryItemCache {
+  private static final Logger logger = LoggerFactory.getLogger(InventoryItemCache.class);
+
+  private final Cache<Long, InventoryItemModel> cache;
+
+  private final InventoryItemMapper itemMapper;
+
+  public InventoryItemCache(
+      @Value("${inventory.cache.items.maximum-size}") long maximumSize,
+      @Value("${inventory.cache.items.expire-after-write}") Duration expireAfterWrite,
+      InventoryItemMapper itemMapper,
+      MeterRegistry meterRegistry) {
+
+    this.itemMapper = itemMapper;
+    this.cache = Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(expireAfterWrite)
+        .recordStats()
+        .build();
+
+    CaffeineCacheMetrics.monitor(meterRegistry, cache, "items");
+
+    logger.info("Item cache maximum-size: " + maximumSize + ", expire-after-write: " + expireAfterWrite);
+  }
+
+  /**
+   * @return the cached item, or the item provided by the loader (and then cached)
+   */
+  public Optional<InventoryItemModel> get(long itemId, Function<Long, Optional<InventoryItemModel>> loader) {
+    InventoryItemModel model = cache.get(itemId, id -> loader.apply(id).orElse(null));
+    return Optional.ofNullable(model).map(itemMapper::copy);
+  }
+
+  /**
+   * @return a value derived from the cached item, if cached, without copying the item
+   */
+  public <T> Optional<T> peek(long itemId, Function<InventoryItemModel, T> view) {
+    return Optional.ofNullable(cache.getIfPresent(itemId)).map(view);
+  }
+
+  public void put(InventoryItemModel model) {
+    cache.put(model.getId(), itemMapper.copy(model));
+  }
+
+  public void invalidate(long itemId) {
+    cache.invalidate(itemId);
+  }
+
+  @EventListener
+  public void handleInventoryUpdated(InventoryUpdatedEvent evt) {
+    cache.asMap().computeIfPresent(evt.getItemId(), (id, model) -> {
+      model.setStock((int) evt.getCurrentStockUnits());
+      return model;
+    });
+  }
+
+  @EventListener
+  public void handleInvalidInventoryItem(InvalidInventoryItemEvent evt) {
+    cache.invalidate(evt.getItemId());
+  }
+}
@@ -0,0 +1,70 @@
+package demo.inventory.service;
+
+import org.springframework.stereotype.Component;
+
+import demo.inventory.api.model.InventoryItemModel;
+import demo.inventory.api.model.InventoryItemSummary;
+import demo.inventory.persistence.InventoryItem;
+
+/**
+ * Field copy between the persisted inventory item and its API model.
+ *
+ * This is a plain accessor-based copy, used in place of a reflective mapper on the
+ * request and message handling paths. Any field added to either class must be added here.
+ */
+@Component
+public class InventoryItemMapper {
+
+  public InventoryItemModel toModel(InventoryItem entity) {
+    InventoryItemModel model = new InventoryItemModel(entity.getId());
+    model.setName(entity.getName());
+    model.setDescription(entity.getDescription());
+    model.setPrice(entity.getPrice());
+    model.setImgAlt(entity.getImgAlt());
+    model.setImg(entity.getImg());
+    model.setStock(entity.getStock());
+    model.setVersion(entity.getVersion());
+    return model;
+  }
+
+  public InventoryItemSummary toSummary(InventoryItemModel model) {
+    return new InventoryItemSummary(model.getId(), model.getName(), model.getPrice(), model.getImg(), model.getStock());
+  }
+
+  public InventoryItemModel copy(InventoryItemModel model) {
+    InventoryItemModel copy = new InventoryItemModel(model.getId());
+    copy.setName(model.getName());
+    copy.setDescription(model.getDescription());
+    copy.setPrice(model.getPrice());
+    copy.setImgAlt(model.getImgAlt());
+    copy.setImg(model.getImg());
+    copy.setStock(model.getStock());
+    copy.setVersion(model.getVersion());
+    return copy;
+  }
+
+  /**
+   * Copy the fields of the model to an existing entity, other than its id and version.
+   */
+  public void update(InventoryItem entity, InventoryItemModel model) {
+    entity.setName(model.getName());
+    entity.setDescription(model.getDescription());
+    entity.setPrice(model.getPrice());
+    entity.setImgAlt(model.getImgAlt());
+    entity.setImg(model.getImg());
+    entity.setStock(model.getStock());
+  }
+
+  public InventoryItem toEntity(InventoryItemModel model) {
+    InventoryItem entity = new InventoryItem(model.getId());
+    entity.setName(model.getName());
+    entity.setDescription(model.getDescription());
+    entity.setPrice(model.getPrice());
+    entity.setImgAlt(model.getImgAlt());
+    entity.setImg(model.getImg());
+    entity.setStock(model.getStock());
+    if (model.getVersion() != null)
+      entity.setVersion(model.getVersion());
+    return entity;
+  }
+}
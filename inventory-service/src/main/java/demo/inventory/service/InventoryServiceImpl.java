@@ -1,16 +1,52 @@
 package demo.inventory.service;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
 
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import demo.inventory.api.message.OrderCompletedNotice;
+import demo.inventory.api.messaging.ItemStockChangedEvent;
 import demo.inventory.api.model.InventoryItemModel;
+import demo.inventory.api.model.InventoryItemSummary;
 import demo.inventory.persistence.InventoryItem;
+import demo.inventory.persistence.InventoryJdbcRepo;
 import demo.inventory.persistence.InventoryRepo;
+import demo.inventory.persistence.ItemVersion;
+import demo.inventory.persistence.ReplicaRoutingDataSource;
 
 
 /**
@@ -25,40 +61,375 @@ public class InventoryServiceImpl implements IInventoryService {
   @Autowired
   private InventoryRepo itemsRepo;
 
+  @Autowired
+  private InventoryJdbcRepo itemsJdbcRepo;
+
+  @Autowired
+  private InventoryItemMapper itemMapper;
+
+  @Autowired
+  private InventoryItemCache itemCache;
+
+  @Autowired
+  private ProcessedOrderLedger processedOrders;
+
+  @Autowired
+  private NoticeOutbox noticeOutbox;
+
+  @Autowired
+  private HotStockLedger hotStock;
+
+  @Autowired
+  private ItemNameIndex nameIndex;
+
+  @Autowired
+  private StockView stockView;
+
+  @Autowired
+  private ApplicationEventPublisher eventPublisher;
+
+  @Autowired
+  private OrderMetrics orderMetrics;
+
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+
+  @Autowired
+  private Validator validator;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Value("${inventory.export.fetch-size}")
+  private int exportFetchSize;
+
+  @Value("${inventory.bulk.batch-size}")
+  private int bulkBatchSize;
+
   /**
+   * Read-only, as are the other queries, so that the page and the count are read in one 
+   * transaction, from the replica if one is in use (see ReplicaRoutingDataSource).
+   * 
    * @return all items in inventory
    */
+  @Transactional(readOnly = true)
   public Page<InventoryItemModel> getInventory(PageRequest pageRequest) {
-    ModelMapper modelMapper = new ModelMapper();
     return itemsRepo.findAll(pageRequest)
-        .map(entity -> modelMapper.map(entity, InventoryItemModel.class));
+        .map(this::toCurrentModel);
+  }
+  
+  
+  /**
+   * Item summaries are selected as such, so the other columns, the description in 
+   * particular, are not read.
+   * 
+   * @return a page of item summaries
+   */
+  @Override
+  @Transactional(readOnly = true)
+  public Page<InventoryItemSummary> getInventorySummaries(PageRequest pageRequest) {
+    return itemsRepo.findSummaries(pageRequest).map(this::withCurrentStock);
+  }
+  
+  
+  /**
+   * @return a page of item summaries, following the indicated item
+   */
+  @Override
+  @Transactional(readOnly = true)
+  public Slice<InventoryItemSummary> getInventorySummariesAfter(long afterItemId, int size) {
+    return itemsRepo.findSummariesByIdGreaterThan(afterItemId, PageRequest.of(0, size)).map(this::withCurrentStock);
+  }
+  
+  
+  /**
+   * The summary is taken from the cached item if there is one, or else selected as such,
+   * without caching the item.
+   * 
+   * @return the summary of an indicated item
+   */
+  @Override
+  @Transactional(readOnly = true)
+  public Optional<InventoryItemSummary> getInventoryItemSummary(long itemId) {
+    Optional<InventoryItemSummary> summary = itemCache.peek(itemId, itemMapper::toSummary);
+    if( !summary.isPresent() )
+      summary = itemsRepo.findSummaryById(itemId);
+    
+    return summary.map(this::withCurrentStock);
   }
   
   
   /**
+   * Derive a tag from the id, version and current stock of each item in the page, and the 
+   * count of all items, read without the rest of the items. It is the tag of 
+   * {@link #pageTag(Page)} for the same page.
+   * 
+   * @return an entity tag for a page of items in inventory
+   */
+  @Override
+  @Transactional(readOnly = true)
+  public String getInventoryTag(PageRequest pageRequest) {
+    Page<ItemVersion> versions = itemsRepo.findVersionsBy(pageRequest);
+    
+    long hash = 1;
+    for( ItemVersion version : versions )
+      hash = itemHash(hash, version.getId(), version.getVersion(), 
+          hotStock.currentStock(version.getId()).orElse(version.getStock()));
+    
+    return versions.getTotalElements() + "-" + Long.toHexString(hash);
+  }
+  
+  /**
+   * @return an entity tag for a page of items, as from {@link #getInventoryTag(PageRequest)}, 
+   *   derived from the items already read
+   */
+  public static String pageTag(Page<InventoryItemModel> page) {
+    long hash = 1;
+    for( InventoryItemModel item : page )
+      hash = itemHash(hash, item.getId(), item.getVersion(), item.getStock());
+    
+    return page.getTotalElements() + "-" + Long.toHexString(hash);
+  }
+  
+  /**
+   * Summaries have no version, so the tag is derived from their content.
+   * 
+   * @return an entity tag for a page of item summaries
+   */
+  public static String summaryPageTag(Page<InventoryItemSummary> page) {
+    long hash = 1;
+    for( InventoryItemSummary summary : page )
+      hash = 31 * hash + summary.hashCode();
+    
+    return page.getTotalElements() + "-" + Long.toHexString(hash);
+  }
+  
+  private static long itemHash(long hash, long itemId, long version, long stock) {
+    return 31 * (31 * (31 * hash + itemId) + version) + stock;
+  }
+  
+  
+  /**
+   * Seek to the first item following afterItemId, rather than skipping an offset, so 
+   * that the cost of a page does not grow with its depth. No count query is issued.
+   * 
+   * @return a page of items in inventory, following the indicated item
+   */
+  @Transactional(readOnly = true)
+  public Slice<InventoryItemModel> getInventoryAfter(long afterItemId, int size) {
+    return itemsRepo.findByIdGreaterThanOrderByIdAsc(afterItemId, PageRequest.of(0, size))
+        .map(this::toCurrentModel);
+  }
+  
+  
+  /**
+   * Names are matched by the {@link ItemNameIndex} once it is built, and only the page of
+   * matching items is then read; until then, by a query that scans the table. A price 
+   * bound alone is matched by a query on the price index.
+   * 
+   * @return a page of items in inventory, in id order, whose name contains the given 
+   *   text, ignoring case, and whose price is at most maxPrice, either being optional
+   */
+  @Override
+  @Transactional(readOnly = true)
+  public Page<InventoryItemModel> searchInventory(String name, BigDecimal maxPrice, PageRequest pageRequest) {
+    
+    Page<InventoryItem> entities;
+    if( name == null || name.isEmpty() )
+      entities = maxPrice == null 
+          ? itemsRepo.findAll(pageRequest) 
+          : itemsRepo.findByPriceLessThanEqual(maxPrice, pageRequest);
+    else if( !nameIndex.isReady() )
+      entities = maxPrice == null 
+          ? itemsRepo.findByNameContainingIgnoreCase(name, pageRequest) 
+          : itemsRepo.findByNameContainingIgnoreCaseAndPriceLessThanEqual(name, maxPrice, pageRequest);
+    else
+      return searchNameIndex(name, maxPrice, pageRequest);
+    
+    return entities.map(this::toCurrentModel);
+  }
+  
+  private Page<InventoryItemModel> searchNameIndex(String name, BigDecimal maxPrice, PageRequest pageRequest) {
+    
+    long[] ids = nameIndex.search(name, maxPrice);
+    int from = (int) Math.min(pageRequest.getOffset(), ids.length);
+    int to = Math.min(from + pageRequest.getPageSize(), ids.length);
+    List<Long> pageIds = Arrays.stream(ids, from, to).boxed().collect(Collectors.toList());
+    
+    Map<Long, InventoryItem> entitiesById = new HashMap<>();
+    itemsRepo.findAllById(pageIds).forEach(entity -> entitiesById.put(entity.getId(), entity));
+    
+    // An item deleted by another instance since the index was built is skipped
+    List<InventoryItemModel> items = new ArrayList<>(pageIds.size());
+    for( Long id : pageIds ) {
+      InventoryItem entity = entitiesById.get(id);
+      if( entity != null )
+        items.add(toCurrentModel(entity));
+    }
+    return new PageImpl<>(items, pageRequest, ids.length);
+  }
+  
+  
+  /**
+   * @return the count of items in inventory
+   */
+  @Transactional(readOnly = true)
+  public long countInventory() {
+    return itemsRepo.count();
+  }
+
+  
+  /**
+   * Stream all items from a database cursor, bypassing the item cache.
+   * 
+   * @param itemConsumer
+   */
+  @Transactional(readOnly = true)
+  public void exportInventory(Consumer<InventoryItemModel> itemConsumer) {
+    itemsJdbcRepo.forEachItem(exportFetchSize, entity -> itemConsumer.accept(toCurrentModel(entity)));
+  }
+  
+  
+  /**
+   * An item read from a replica is not cached, since it may be behind a write this 
+   * instance has already cached, or one a client expects to read back.
+   * 
    * @return an indicated item in inventory
    */
+  @Transactional(readOnly = true)
   public Optional<InventoryItemModel> getInventoryItem(long itemId) {
+    Optional<InventoryItemModel> model;
+    if( ReplicaRoutingDataSource.isReplicaReadsAllowed() ) {
+      model = itemCache.peek(itemId, itemMapper::copy);
+      if( !model.isPresent() )
+        model = findInventoryItem(itemId);
+    }
+    else
+      model = itemCache.get(itemId, this::findInventoryItem);
+    
+    return model.map(this::withCurrentStock);
+  }
+  
+  /**
+   * The tag is taken from the cached item, which is loaded and cached if need be, so that 
+   * a read of a cached item makes no query. Orders increment the version of the items they
+   * change, which are then evicted from the cache. When reads may go to a replica, the tag 
+   * of an uncached item is read from its version and stock alone, without caching.
+   * 
+   * @return an entity tag for the indicated item
+   */
+  @Override
+  @Transactional(readOnly = true)
+  public Optional<String> getInventoryItemTag(long itemId) {
+    Optional<String> tag = itemCache.peek(itemId, model -> itemTag(itemId, model.getVersion(), model.getStock()));
+    if( tag.isPresent() )
+      return tag;
+    
+    if( ReplicaRoutingDataSource.isReplicaReadsAllowed() )
+      return itemsRepo.findVersionById(itemId)
+          .map(version -> itemTag(itemId, version.getVersion(), version.getStock()));
+    
+    return itemCache.get(itemId, this::findInventoryItem)
+        .map(model -> itemTag(itemId, model.getVersion(), model.getStock()));
+  }
+  
+  
+  /**
+   * A cached item is reloaded unless it matches the tag, as when the tag was read from a
+   * replica.
+   * 
+   * @return an indicated item in inventory, as of the given tag or later
+   */
+  @Override
+  @Transactional(readOnly = true)
+  public Optional<InventoryItemModel> getInventoryItem(long itemId, String tag) {
+    Optional<String> cachedTag = itemCache.peek(itemId, model -> itemTag(itemId, model.getVersion(), model.getStock()));
+    if( !cachedTag.isPresent() || !cachedTag.get().equals(tag) )
+      itemCache.invalidate(itemId);
+    return getInventoryItem(itemId);
+  }
+  
+  /*
+   * The stock is part of the tag, as well as the version, since the stock of a 
+   * write-behind item changes before its version does.
+   */
+  private String itemTag(long itemId, Long version, int stock) {
+    long currentStock = hotStock.currentStock(itemId).orElse(stock);
+    return version + "." + currentStock;
+  }
+  
+  /*
+   * Stock of a write-behind item is ahead of the database, so every item returned, singly 
+   * or in a page, carries its in-memory stock
+   */
+  private InventoryItemModel withCurrentStock(InventoryItemModel model) {
+    hotStock.currentStock(model.getId()).ifPresent(stock -> model.setStock((int) stock));
+    return model;
+  }
+  
+  private InventoryItemSummary withCurrentStock(InventoryItemSummary summary) {
+    hotStock.currentStock(summary.getId()).ifPresent(stock -> summary.setStock((int) stock));
+    return summary;
+  }
+  
+  private InventoryItemModel toCurrentModel(InventoryItem entity) {
+    return withCurrentStock(itemMapper.toModel(entity));
+  }
+  
+  private Optional<InventoryItemModel> findInventoryItem(long itemId) {
     
     Optional<InventoryItem> entity = itemsRepo.findById(itemId);
     if( !entity.isPresent() )
       return Optional.empty();
     
-    ModelMapper modelMapper = new ModelMapper();
-    InventoryItemModel model = modelMapper.map(entity.get(), InventoryItemModel.class); 
+    InventoryItemModel model = itemMapper.toModel(entity.get()); 
     return Optional.of(model);
   }
   
 
   /**
-   * Update a persisted item
+   * Update a persisted item, whatever its current version. An item that does not exist is
+   * not created.
    * 
    * @param itemModel
    */
+  @Override
+  @Transactional
   public void updateInventoryItem(InventoryItemModel itemModel) {
-    ModelMapper modelMapper = new ModelMapper();    
-    InventoryItem entity = modelMapper.map(itemModel, InventoryItem.class); 
-    itemsRepo.save(entity);
+    updateInventoryItem(itemModel.getId(), itemModel, null);
+  }
+
+
+  /**
+   * Update a persisted item, if its current tag is one of those expected. The update is 
+   * made to the loaded entity, so that a concurrent change between the check and the 
+   * write fails the version check of the update.
+   * 
+   * @param itemId
+   * @param itemModel
+   * @param expectedTags tags of which the item's current tag must be one, or null for any
+   * @return the updated item, or empty if there is no such item
+   */
+  @Override
+  @Transactional
+  public Optional<InventoryItemModel> updateInventoryItem(long itemId, InventoryItemModel itemModel, Collection<String> expectedTags) {
+    Optional<InventoryItem> found = itemsRepo.findById(itemId);
+    if( !found.isPresent() )
+      return Optional.empty();
+    
+    InventoryItem entity = found.get();
+    if( expectedTags != null && !expectedTags.contains(itemTag(itemId, entity.getVersion(), entity.getStock())) )
+      throw new OptimisticLockingFailureException("Inventory item " + itemId + " has changed");
+    
+    itemMapper.update(entity, itemModel);
+    entityManager.flush();  // increments the version
+    
+    InventoryItemModel updatedModel = itemMapper.toModel(entity);
+    cacheAfterCommit(Collections.singletonList(updatedModel));
+    refreshHotStockAfterCommit(Collections.singletonList(itemId));
+    indexAfterCommit(Collections.singletonList(updatedModel));
+    stockChangedAfterCommit(Collections.singletonMap(itemId, (long) updatedModel.getStock()));
+    return Optional.of(updatedModel);
   }
 
 
@@ -69,11 +440,14 @@ public class InventoryServiceImpl implements IInventoryService {
    * @return a copy of the item with its new generated id
    */
   @Override
+  @Transactional
   public InventoryItemModel createInventoryItem(InventoryItemModel itemModel) {
-    ModelMapper modelMapper = new ModelMapper();    
-    InventoryItem entity = modelMapper.map(itemModel, InventoryItem.class); 
+    InventoryItem entity = itemMapper.toEntity(itemModel); 
     InventoryItem newPersistedEntity = itemsRepo.save(entity);
-    InventoryItemModel itemModelWithId = modelMapper.map(newPersistedEntity, InventoryItemModel.class);
+    InventoryItemModel itemModelWithId = itemMapper.toModel(newPersistedEntity);
+    cacheAfterCommit(Collections.singletonList(itemModelWithId));
+    indexAfterCommit(Collections.singletonList(itemModelWithId));
+    stockChangedAfterCommit(Collections.singletonMap(itemModelWithId.getId(), (long) itemModelWithId.getStock()));
     return itemModelWithId;
   }
 
@@ -84,8 +458,299 @@ public class InventoryServiceImpl implements IInventoryService {
    * @param itemId
    */
   @Override
+  @Transactional
   public void deleteInventoryItem(long itemId) {
     itemsRepo.deleteById(itemId);
-    return;
+    removedAfterCommit(Collections.singletonList(itemId));
+  }
+
+
+  /**
+   * Apply order notifications to inventory. The processed order records and the stock 
+   * changes are written in one transaction, so a notification takes effect exactly once.
+   * 
+   * If another consumer records one of the same notifications concurrently, the insert of 
+   * its processed order record fails, and the whole set is retried once. The retry finds 
+   * the competing record and ignores that notification.
+   * 
+   * Orders for write-behind items are applied in memory by the {@link HotStockLedger}, 
+   * and the rest as above.
+   * 
+   * @param ordersByMessageKey
+   * @return the resulting stock changes
+   */
+  @Override
+  public AppliedOrders applyOrders(Map<String, OrderCompletedNotice> ordersByMessageKey) {
+    if( !hotStock.isEnabled() )
+      return applyStoredOrders(ordersByMessageKey);
+    
+    Map<String, OrderCompletedNotice> hotOrders = new LinkedHashMap<>();
+    Map<String, OrderCompletedNotice> storedOrders = new LinkedHashMap<>();
+    ordersByMessageKey.forEach((messageKey, orderNotice) -> 
+        (hotStock.isHot(orderNotice.getItemId()) ? hotOrders : storedOrders).put(messageKey, orderNotice));
+    
+    if( hotOrders.isEmpty() )
+      return applyStoredOrders(storedOrders);
+    
+    AppliedOrders appliedHotOrders = hotStock.apply(hotOrders);
+    if( storedOrders.isEmpty() )
+      return appliedHotOrders;
+    
+    return AppliedOrders.combine(appliedHotOrders, applyStoredOrders(storedOrders));
+  }
+  
+  private AppliedOrders applyStoredOrders(Map<String, OrderCompletedNotice> ordersByMessageKey) {
+    try {
+      return transactionTemplate.execute(status -> doApplyOrders(ordersByMessageKey));
+    }
+    catch( DataIntegrityViolationException ex ) {
+      processedOrders.remember(ordersByMessageKey.keySet());
+      return transactionTemplate.execute(status -> doApplyOrders(ordersByMessageKey));
+    }
+  }
+  
+  private AppliedOrders doApplyOrders(Map<String, OrderCompletedNotice> ordersByMessageKey) {
+    
+    Set<String> duplicateMessageKeys = orderMetrics.getLookupTimer().record(
+        () -> processedOrders.findProcessed(ordersByMessageKey.keySet()));
+    
+    // Sum counts per item, for orders not yet applied
+    List<String> messageKeys = new ArrayList<>(ordersByMessageKey.size());
+    Map<Long, Integer> countsByItemId = new LinkedHashMap<>();
+    ordersByMessageKey.forEach((messageKey, orderNotice) -> {
+      if( !duplicateMessageKeys.contains(messageKey) ) {
+        messageKeys.add(messageKey);
+        countsByItemId.merge(orderNotice.getItemId(), orderNotice.getCount(), Integer::sum);
+      }
+    });
+    
+    Map<Long, Integer> stockByItemId = orderMetrics.getUpdateTimer().record(() -> {
+      processedOrders.record(messageKeys);
+      return itemsJdbcRepo.decrementStock(countsByItemId);
+    });
+    
+    Set<Long> invalidItemIds = new LinkedHashSet<>(countsByItemId.keySet());
+    invalidItemIds.removeAll(stockByItemId.keySet());
+    
+    AppliedOrders appliedOrders = new AppliedOrders(duplicateMessageKeys, stockByItemId, invalidItemIds);
+    
+    // The decrement increments the version of each item, so the cached item is out of date
+    evictAfterCommit(stockByItemId.keySet());
+    
+    if( noticeOutbox.isEnabled() )
+      noticeOutbox.append(appliedOrders);
+    
+    return appliedOrders;
+  }
+
+
+  /**
+   * Run an action once all orders applied so far are written, which is immediate unless
+   * write-behind is enabled.
+   */
+  @Override
+  public void whenDurable(Runnable action) {
+    hotStock.whenDurable(action);
+  }
+
+
+  /**
+   * Create new persisted items. The persistence context is flushed and cleared every
+   * 'inventory.bulk.batch-size' items, so that inserts are sent as JDBC batches (given an 
+   * id generator that supports batching) and managed entities do not accumulate.
+   * 
+   * @param itemModels
+   * @return the new generated item ids, in order
+   */
+  @Override
+  @Transactional
+  public List<Long> createInventoryItems(List<InventoryItemModel> itemModels) {
+    
+    List<InventoryItem> entities = validateInventoryItems(itemModels);
+    
+    for( int i = 0; i < entities.size(); i++ ) {
+      InventoryItem entity = entities.get(i);
+      entity.setId(0);  // new items take a generated id
+      entity.setVersion(0);
+      entityManager.persist(entity);
+      if( (i+1) % bulkBatchSize == 0 )
+        flushAndClear();
+    }
+    flushAndClear();
+    
+    return cacheInventoryItems(entities);
+  }
+
+
+  /**
+   * Create or update persisted items, flushing every 'inventory.bulk.batch-size' items.
+   * Existing items are loaded and updated in place, checking the version given with an 
+   * item, if any; an item with an id that is not found is created with a new id.
+   * 
+   * @param itemModels
+   * @return the item ids, in order
+   */
+  @Override
+  @Transactional
+  public List<Long> saveInventoryItems(List<InventoryItemModel> itemModels) {
+    
+    List<InventoryItem> entities = validateInventoryItems(itemModels);
+    
+    List<InventoryItem> savedEntities = new ArrayList<>(entities.size());
+    for( int i = 0; i < entities.size(); i++ ) {
+      InventoryItem entity = entities.get(i);
+      InventoryItem persistedEntity = entity.getId() == 0 ? null : entityManager.find(InventoryItem.class, entity.getId());
+      
+      if( persistedEntity == null ) {
+        entity.setId(0);
+        entity.setVersion(0);
+        entityManager.persist(entity);
+        savedEntities.add(entity);
+      }
+      else {
+        Long expectedVersion = itemModels.get(i).getVersion();
+        if( expectedVersion != null && expectedVersion != persistedEntity.getVersion() )
+          throw new OptimisticLockingFailureException("Inventory item " + entity.getId() + " has changed");
+        itemMapper.update(persistedEntity, itemModels.get(i));
+        savedEntities.add(persistedEntity);
+      }
+      
+      if( (i+1) % bulkBatchSize == 0 )
+        flushAndClear();
+    }
+    flushAndClear();
+    
+    return cacheInventoryItems(savedEntities);
+  }
+
+
+  /**
+   * Delete persisted items, with a single delete statement.
+   * 
+   * @param ids
+   * @return the count of items deleted
+   */
+  @Override
+  @Transactional
+  public int deleteInventoryItems(List<Long> ids) {
+    int count = itemsRepo.deleteByIdIn(new HashSet<>(ids));
+    removedAfterCommit(ids);
+    return count;
+  }
+
+
+  /*
+   * Map and validate all items before any is written, collecting the constraint 
+   * violations of each invalid item by its position.
+   */
+  private List<InventoryItem> validateInventoryItems(List<InventoryItemModel> itemModels) {
+    
+    List<InventoryItem> entities = new ArrayList<>(itemModels.size());
+    SortedMap<Integer, Set<ConstraintViolation<?>>> violationsByIndex = new TreeMap<>();
+    
+    for( int i = 0; i < itemModels.size(); i++ ) {
+      InventoryItem entity = itemMapper.toEntity(itemModels.get(i));
+      Set<ConstraintViolation<InventoryItem>> violations = validator.validate(entity);
+      if( !violations.isEmpty() )
+        violationsByIndex.put(i, new HashSet<>(violations));
+      entities.add(entity);
+    }
+    
+    if( !violationsByIndex.isEmpty() )
+      throw new InvalidItemsException(violationsByIndex);
+    
+    return entities;
+  }
+  
+  private void flushAndClear() {
+    entityManager.flush();
+    entityManager.clear();
+  }
+  
+  private List<Long> cacheInventoryItems(List<InventoryItem> entities) {
+    List<Long> ids = new ArrayList<>(entities.size());
+    List<InventoryItemModel> models = new ArrayList<>(entities.size());
+    Map<Long, Long> stockByItemId = new LinkedHashMap<>();
+    for( InventoryItem entity : entities ) {
+      InventoryItemModel model = itemMapper.toModel(entity);
+      models.add(model);
+      ids.add(entity.getId());
+      stockByItemId.put(entity.getId(), (long) entity.getStock());
+    }
+    cacheAfterCommit(models);
+    refreshHotStockAfterCommit(ids);
+    indexAfterCommit(models);
+    stockChangedAfterCommit(stockByItemId);
+    return ids;
+  }
+  
+  /*
+   * Cache changed items once they are committed, so that no reader sees them before, nor 
+   * after a rollback
+   */
+  private void cacheAfterCommit(List<InventoryItemModel> models) {
+    afterCommit(() -> models.forEach(itemCache::put));
+  }
+  
+  /*
+   * Drop deleted items from the cache, write-behind stock, name index and stock view once 
+   * the deletion is committed
+   */
+  private void removedAfterCommit(List<Long> ids) {
+    afterCommit(() -> ids.forEach(itemCache::invalidate));
+    refreshHotStockAfterCommit(ids);
+    afterCommit(() -> ids.forEach(nameIndex::remove));
+    Map<Long, Long> removed = new LinkedHashMap<>();
+    ids.forEach(id -> removed.put(id, null));
+    stockChangedAfterCommit(removed);
+  }
+  
+  /*
+   * Evict changed items from the item cache once they are committed
+   */
+  private void evictAfterCommit(Collection<Long> ids) {
+    afterCommit(() -> ids.forEach(itemCache::invalidate));
+  }
+  
+  /*
+   * Index the names of changed items once they are committed
+   */
+  private void indexAfterCommit(List<InventoryItemModel> models) {
+    afterCommit(() -> models.forEach(model -> nameIndex.put(model.getId(), model.getName(), model.getPrice())));
+  }
+  
+  /*
+   * Reload write-behind stock once the changed items are visible to other transactions
+   */
+  private void refreshHotStockAfterCommit(List<Long> ids) {
+    if( !hotStock.isEnabled() )
+      return;
+    afterCommit(() -> ids.forEach(hotStock::refresh));
+  }
+  
+  /*
+   * Publish the stock of changed items - null for a deleted item - for the stock snapshot 
+   * topic, once they are committed
+   */
+  private void stockChangedAfterCommit(Map<Long, Long> stockByItemId) {
+    if( !stockView.isEnabled() )
+      return;
+    afterCommit(() -> stockByItemId.forEach((id, stock) -> eventPublisher.publishEvent(new ItemStockChangedEvent(this, id, stock))));
+  }
+  
+  /*
+   * Run an action once the current transaction commits, or now if there is no transaction
+   */
+  private static void afterCommit(Runnable action) {
+    if( !TransactionSynchronizationManager.isSynchronizationActive() ) {
+      action.run();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        action.run();
+      }
+    });
   }
-}
\ No newline at end of file
+}
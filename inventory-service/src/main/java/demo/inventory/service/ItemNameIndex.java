@@ -0,0 +1,290 @@
+package demo.inventory.service;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import demo.inventory.persistence.InventoryJdbcRepo;
+
+/**
+ * In-memory index of item names and prices, for search by name substring without a table
+ * scan, enabled with 'inventory.search.index.enabled'.
+ *
+ * Each item's lower-cased name is split into overlapping trigrams, and the index keeps the
+ * ids of the items listed under each trigram. A query of three or more characters is
+ * checked against the items listed under its least common trigram only; a shorter query
+ * is checked against every item, in memory. Each candidate's name and price are checked,
+ * so matches are exact.
+ *
+ * The index is built from the database once the application is ready, and rebuilt every
+ * 'refresh-interval' millis, to pick up changes made by other instances. Changes made
+ * through this instance are applied as they are committed, including during a rebuild.
+ */
+@Component
+public class ItemNameIndex {
+  private static final Logger logger = LoggerFactory.getLogger(ItemNameIndex.class);
+
+  static final int GRAM_LENGTH = 3;
+
+  private static final long[] NO_IDS = new long[0];
+
+  private final InventoryJdbcRepo itemsJdbcRepo;
+
+  private final boolean enabled;
+
+  private final int fetchSize;
+
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+  private Map<Long, IndexedItem> itemsById = new HashMap<>();
+
+  private Map<Long, IdList> idsByGram = new HashMap<>();
+
+  // changes applied while a rebuild reads the database, by item id; null for a removal
+  private Map<Long, IndexedItem> changesDuringRebuild;
+
+  private volatile boolean ready;
+
+  public ItemNameIndex(
+      InventoryJdbcRepo itemsJdbcRepo,
+      @Value("${inventory.search.index.enabled}") boolean enabled,
+      @Value("${inventory.export.fetch-size}") int fetchSize) {
+
+    this.itemsJdbcRepo = itemsJdbcRepo;
+    this.enabled = enabled;
+    this.fetchSize = fetchSize;
+  }
+
+  /**
+   * @return whether the index is enabled and built
+   */
+  public boolean isReady() {
+    return ready;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void build() {
+    if (enabled)
+      rebuild();
+  }
+
+  @Scheduled(fixedDelayString = "${inventory.search.index.refresh-interval}",
+      initialDelayString = "${inventory.search.index.refresh-interval}")
+  public void refresh() {
+    if (enabled && ready)
+      rebuild();
+  }
+
+  /**
+   * Read the names and prices of all items, and replace the index with them. Searches
+   * use the previous index meanwhile.
+   */
+  public synchronized void rebuild() {
+    long startNanos = System.nanoTime();
+
+    lock.writeLock().lock();
+    try {
+      changesDuringRebuild = new HashMap<>();
+    }
+    finally {
+      lock.writeLock().unlock();
+    }
+
+    Map<Long, IndexedItem> rebuiltItemsById = new HashMap<>();
+    Map<Long, IdList> rebuiltIdsByGram = new HashMap<>();
+    try {
+      itemsJdbcRepo.forEachItemName(fetchSize, item -> put(rebuiltItemsById, rebuiltIdsByGram, item.getId(),
+          new IndexedItem(item.getName(), item.getPrice())));
+    }
+    catch (RuntimeException ex) {
+      lock.writeLock().lock();
+      changesDuringRebuild = null;
+      lock.writeLock().unlock();
+      throw ex;
+    }
+
+    lock.writeLock().lock();
+    try {
+      changesDuringRebuild.forEach((itemId, item) -> put(rebuiltItemsById, rebuiltIdsByGram, itemId, item));
+      changesDuringRebuild = null;
+      itemsById = rebuiltItemsById;
+      idsByGram = rebuiltIdsByGram;
+    }
+    finally {
+      lock.writeLock().unlock();
+    }
+    ready = true;
+
+    logger.info("Indexed names of " + rebuiltItemsById.size() + " items in "
+        + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos) + " ms");
+  }
+
+  /**
+   * Add or replace an item, once committed.
+   */
+  public void put(long itemId, String name, BigDecimal price) {
+    change(itemId, new IndexedItem(name, price));
+  }
+
+  /**
+   * Remove an item, once committed.
+   */
+  public void remove(long itemId) {
+    change(itemId, null);
+  }
+
+  private void change(long itemId, IndexedItem item) {
+    if (!enabled)
+      return;
+    lock.writeLock().lock();
+    try {
+      put(itemsById, idsByGram, itemId, item);
+      if (changesDuringRebuild != null)
+        changesDuringRebuild.put(itemId, item);
+    }
+    finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * @param text to be found in item names, ignoring case
+   * @param maxPrice maximum item price, or null for any
+   * @return the ids of matching items, in ascending order
+   */
+  public long[] search(String text, BigDecimal maxPrice) {
+    String query = text.toLowerCase(Locale.ROOT);
+    IdList matches = new IdList();
+
+    lock.readLock().lock();
+    try {
+      if (query.length() < GRAM_LENGTH) {
+        itemsById.forEach((itemId, item) -> {
+          if (item.matches(query, maxPrice))
+            matches.add(itemId);
+        });
+      }
+      else {
+        IdList candidates = null;
+        for (long gram : grams(query)) {
+          IdList ids = idsByGram.get(gram);
+          if (ids == null)
+            return NO_IDS;
+          if (candidates == null || ids.size < candidates.size)
+            candidates = ids;
+        }
+        for (int i = 0; i < candidates.size; i++) {
+          long itemId = candidates.ids[i];
+          if (itemsById.get(itemId).matches(query, maxPrice))
+            matches.add(itemId);
+        }
+      }
+    }
+    finally {
+      lock.readLock().unlock();
+    }
+
+    long[] ids = Arrays.copyOf(matches.ids, matches.size);
+    Arrays.sort(ids);
+    return ids;
+  }
+
+  /*
+   * Replace the entry of an item, or remove it if null, updating the id lists of its
+   * trigrams only if its name has changed
+   */
+  private static void put(Map<Long, IndexedItem> itemsById, Map<Long, IdList> idsByGram, long itemId, IndexedItem item) {
+    IndexedItem previous = item == null ? itemsById.remove(itemId) : itemsById.put(itemId, item);
+    String previousName = previous == null ? null : previous.name;
+    String name = item == null ? null : item.name;
+    if (previousName != null && previousName.equals(name))
+      return;
+
+    if (previousName != null) {
+      for (long gram : grams(previousName)) {
+        IdList ids = idsByGram.get(gram);
+        if (ids != null && ids.remove(itemId) && ids.size == 0)
+          idsByGram.remove(gram);
+      }
+    }
+    if (name != null) {
+      for (long gram : grams(name))
+        idsByGram.computeIfAbsent(gram, key -> new IdList()).add(itemId);
+    }
+  }
+
+  /*
+   * The distinct trigrams of a lower-cased name, each packed into a long
+   */
+  static long[] grams(String name) {
+    int count = name.length() - GRAM_LENGTH + 1;
+    if (count <= 0)
+      return NO_IDS;
+
+    long[] grams = new long[count];
+    for (int i = 0; i < count; i++)
+      grams[i] = ((long) name.charAt(i) << 32) | ((long) name.charAt(i + 1) << 16) | name.charAt(i + 2);
+
+    Arrays.sort(grams);
+    int distinct = 1;
+    for (int i = 1; i < count; i++)
+      if (grams[i] != grams[distinct - 1])
+        grams[distinct++] = grams[i];
+    return distinct == count ? grams : Arrays.copyOf(grams, distinct);
+  }
+
+  private static final class IndexedItem {
+
+    final String name;
+
+    final BigDecimal price;
+
+    IndexedItem(String name, BigDecimal price) {
+      this.name = name == null ? "" : name.toLowerCase(Locale.ROOT);
+      this.price = price;
+    }
+
+    boolean matches(String query, BigDecimal maxPrice) {
+      return name.contains(query)
+          && (maxPrice == null || (price != null && price.compareTo(maxPrice) <= 0));
+    }
+  }
+
+  /*
+   * Unordered list of item ids, without boxing
+   */
+  private static final class IdList {
+
+    long[] ids = new long[4];
+
+    int size;
+
+    void add(long id) {
+      if (size == ids.length)
+        ids = Arrays.copyOf(ids, size * 2);
+      ids[size++] = id;
+    }
+
+    boolean remove(long id) {
+      for (int i = 0; i < size; i++) {
+        if (ids[i] == id) {
+          ids[i] = ids[--size];
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+}
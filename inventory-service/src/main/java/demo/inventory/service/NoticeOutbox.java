@@ -0,0 +1,133 @@
+package demo.inventory.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import demo.inventory.api.message.InvalidOrderNotice;
+import demo.inventory.api.message.InventoryUpdatedNotice;
+import demo.inventory.persistence.InventoryJdbcRepo;
+import demo.inventory.persistence.OutboxNotice;
+
+/**
+ * Transactional outbox for 'inventory' notices, enabled with
+ * 'events.api.inventory.outbox.enabled'.
+ *
+ * When enabled, the notices resulting from applied orders are written to the outbox table
+ * within the same transaction as the stock changes, so a notice is published if and only
+ * if its stock change commits. Publishing is left to a relay, which reads the outbox in
+ * order and removes notices once sent. Only the instance holding the relay lease relays,
+ * so that the notices for an item are sent by one instance at a time, in order.
+ */
+@Component
+public class NoticeOutbox {
+
+  private static final Map<String, Class<?>> noticeTypes = new HashMap<>();
+  static {
+    noticeTypes.put(InventoryUpdatedNotice.class.getSimpleName(), InventoryUpdatedNotice.class);
+    noticeTypes.put(InvalidOrderNotice.class.getSimpleName(), InvalidOrderNotice.class);
+  }
+
+  private final InventoryJdbcRepo itemsJdbcRepo;
+
+  private final ObjectMapper objectMapper;
+
+  private final boolean enabled;
+
+  public NoticeOutbox(
+      InventoryJdbcRepo itemsJdbcRepo,
+      ObjectMapper objectMapper,
+      @Value("${events.api.inventory.outbox.enabled}") boolean enabled) {
+    this.itemsJdbcRepo = itemsJdbcRepo;
+    this.objectMapper = objectMapper;
+    this.enabled = enabled;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Write a notice for each stock change and each invalid item. The caller provides the
+   * transaction.
+   */
+  public void append(AppliedOrders appliedOrders) {
+
+    Instant now = Instant.now();
+    List<OutboxNotice> notices = new ArrayList<>();
+
+    appliedOrders.getStockByItemId().forEach((itemId, currentStockUnits) ->
+        notices.add(toOutboxNotice(itemId, new InventoryUpdatedNotice(itemId, currentStockUnits), now)));
+
+    for (Long itemId : appliedOrders.getInvalidItemIds())
+      notices.add(toOutboxNotice(itemId, new InvalidOrderNotice(itemId), now));
+
+    itemsJdbcRepo.insertOutboxNotices(notices);
+  }
+
+  /**
+   * Take or renew the relay lease for 'duration', unless another owner holds it.
+   *
+   * @return whether the owner holds the lease
+   */
+  public boolean acquireLease(String owner, Duration duration) {
+    Instant now = Instant.now();
+    return itemsJdbcRepo.acquireOutboxLease(owner, now, now.plus(duration));
+  }
+
+  /**
+   * Give up the relay lease, if held by the owner, so that another instance can take it
+   * without waiting for it to lapse.
+   */
+  public void releaseLease(String owner) {
+    itemsJdbcRepo.releaseOutboxLease(owner, Instant.now());
+  }
+
+  /**
+   * @return up to 'limit' of the oldest unsent notices, in the order written
+   */
+  public List<OutboxNotice> peek(int limit) {
+    return itemsJdbcRepo.findOutboxNotices(limit);
+  }
+
+  /**
+   * Remove sent notices from the outbox.
+   */
+  public void remove(Collection<Long> ids) {
+    itemsJdbcRepo.deleteOutboxNotices(ids);
+  }
+
+  /**
+   * @return the notice message held by an outbox entry
+   */
+  public Object toNotice(OutboxNotice outboxNotice) {
+    Class<?> noticeType = noticeTypes.get(outboxNotice.getNoticeType());
+    if (noticeType == null)
+      throw new IllegalStateException("Unknown notice type in outbox: " + outboxNotice);
+    try {
+      return objectMapper.readValue(outboxNotice.getPayload(), noticeType);
+    }
+    catch (JsonProcessingException ex) {
+      throw new IllegalStateException("Unreadable notice in outbox: " + outboxNotice, ex);
+    }
+  }
+
+  private OutboxNotice toOutboxNotice(long itemId, Object notice, Instant createdAt) {
+    try {
+      return new OutboxNotice(itemId, notice.getClass().getSimpleName(), objectMapper.writeValueAsString(notice), createdAt);
+    }
+    catch (JsonProcessingException ex) {
+      throw new IllegalStateException("Unable to write notice to outbox: " + notice, ex);
+    }
+  }
+}
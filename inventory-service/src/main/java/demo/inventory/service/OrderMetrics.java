@@ -0,0 +1,142 @@
+package demo.inventory.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Meters of the order processing pipeline, from 'orders' record to 'inventory' reply.
+ *
+ *   inventory.orders.stage      time per stage, tagged 'stage':
+ *                                 deserialize  JSON decoding of an 'orders' record
+ *                                 lookup       query for orders already processed
+ *                                 update       stock and processed order writes
+ *                                 reply        hand-off of a reply to the producer
+ *   inventory.orders.handled    time per listener call, tagged 'outcome': updated,
+ *                               invalid, rejected, duplicate or error (a batch is
+ *                               tagged as by {@link #outcomeOf(AppliedOrders)})
+ *   inventory.orders.notices    replies produced, tagged 'type': updated, invalid or
+ *                               rejected
+ *   inventory.orders.lag        time from the 'orders' record timestamp to its reply
+ *
+ * Meters are registered up front for every tag value, so that recording is a plain field
+ * access. Histograms are configured under 'management.metrics.distribution'.
+ */
+@Component
+public class OrderMetrics {
+
+  public static final String STAGE_TIMER = "inventory.orders.stage";
+
+  public static final String UPDATED = "updated";
+  public static final String INVALID = "invalid";
+  public static final String REJECTED = "rejected";
+  public static final String DUPLICATE = "duplicate";
+  public static final String ERROR = "error";
+
+  private final MeterRegistry meterRegistry;
+
+  private final Timer lookupTimer;
+
+  private final Timer updateTimer;
+
+  private final Timer replyTimer;
+
+  private final Timer lagTimer;
+
+  private final Map<String, Timer> handledTimers = new HashMap<>();
+
+  private final Map<String, Counter> noticeCounters = new HashMap<>();
+
+  public OrderMetrics(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+
+    this.lookupTimer = stageTimer("lookup", meterRegistry);
+    this.updateTimer = stageTimer("update", meterRegistry);
+    this.replyTimer = stageTimer("reply", meterRegistry);
+    this.lagTimer = Timer.builder("inventory.orders.lag")
+        .description("Time from order record timestamp to reply")
+        .register(meterRegistry);
+
+    for (String outcome : new String[] { UPDATED, INVALID, REJECTED, DUPLICATE, ERROR })
+      handledTimers.put(outcome, Timer.builder("inventory.orders.handled")
+          .description("Order listener calls")
+          .tag("outcome", outcome)
+          .register(meterRegistry));
+
+    for (String type : new String[] { UPDATED, INVALID, REJECTED })
+      noticeCounters.put(type, Counter.builder("inventory.orders.notices")
+          .description("Replies to order notices")
+          .tag("type", type)
+          .register(meterRegistry));
+  }
+
+  /**
+   * @return the timer of the given pipeline stage
+   */
+  public static Timer stageTimer(String stage, MeterRegistry meterRegistry) {
+    return Timer.builder(STAGE_TIMER)
+        .description("Order processing time per stage")
+        .tag("stage", stage)
+        .register(meterRegistry);
+  }
+
+  public Timer getLookupTimer() {
+    return lookupTimer;
+  }
+
+  public Timer getUpdateTimer() {
+    return updateTimer;
+  }
+
+  public Timer getReplyTimer() {
+    return replyTimer;
+  }
+
+  /**
+   * @return a sample to be stopped by {@link #handled(Timer.Sample, String)}
+   */
+  public Timer.Sample startHandling() {
+    return Timer.start(meterRegistry);
+  }
+
+  public void handled(Timer.Sample sample, String outcome) {
+    sample.stop(handledTimers.get(outcome));
+  }
+
+  public void notice(String type) {
+    noticeCounters.get(type).increment();
+  }
+
+  /**
+   * @return the outcome of a batch of orders: updated if any order changed stock, else
+   *     rejected, invalid or duplicate, in that order, if any order was; invalid if the
+   *     batch held no orders
+   */
+  public static String outcomeOf(AppliedOrders appliedOrders) {
+    if (appliedOrders == null)
+      return INVALID;
+    if (!appliedOrders.getStockByItemId().isEmpty())
+      return UPDATED;
+    if (!appliedOrders.getRejectedStockByItemId().isEmpty())
+      return REJECTED;
+    if (!appliedOrders.getInvalidItemIds().isEmpty())
+      return INVALID;
+    if (!appliedOrders.getDuplicateMessageKeys().isEmpty())
+      return DUPLICATE;
+    return INVALID;
+  }
+
+  /**
+   * Record the lag of a reply to an 'orders' record, unless the record has no timestamp.
+   */
+  public void lag(Long recordTimestamp) {
+    if (recordTimestamp != null && recordTimestamp > 0)
+      lagTimer.record(Math.max(0, System.currentTimeMillis() - recordTimestamp), TimeUnit.MILLISECONDS);
+  }
+}
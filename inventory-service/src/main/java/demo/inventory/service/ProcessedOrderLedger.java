@@ -0,0 +1,141 @@
+package demo.inventory.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import demo.inventory.persistence.InventoryJdbcRepo;
+import demo.inventory.persistence.ProcessedOrderRepo;
+
+/**
+ * Ledger of order notifications already applied to inventory, used to ignore redelivered
+ * notifications.
+ *
+ * The ledger is the 'processed_orders' table, written in the same transaction as the
+ * stock change. An in-memory Bloom filter of recorded keys sits in front of it, so that
+ * the common case - a notification never seen before - needs no database lookup. The
+ * filter is loaded on startup with keys recorded within the retention period, and older
+ * records are purged.
+ *
+ * The filter is kept as 'generations' generations, each covering a fraction of the
+ * retention period (see {@link GenerationalBloomFilter}). Every such fraction, a new
+ * generation is started, the oldest - holding only keys older than the retention period -
+ * is dropped, and records older than the retention period are purged, so that neither
+ * the filter nor the table grows without bound. A generation that receives more than
+ * 'expected-entries' keys adds another filter rather than saturating.
+ */
+@Component
+public class ProcessedOrderLedger {
+  private static final Logger logger = LoggerFactory.getLogger(ProcessedOrderLedger.class);
+
+  private static final long ROTATION_CHECK_MILLIS = 60000;
+
+  private final InventoryJdbcRepo itemsJdbcRepo;
+
+  private final ProcessedOrderRepo processedOrderRepo;
+
+  private final Duration retention;
+
+  private final GenerationalBloomFilter recordedKeys;
+
+  private final Duration rotationInterval;
+
+  private volatile Instant nextRotation;
+
+  public ProcessedOrderLedger(
+      InventoryJdbcRepo itemsJdbcRepo,
+      ProcessedOrderRepo processedOrderRepo,
+      @Value("${events.api.orders.ledger.expected-entries}") long expectedEntries,
+      @Value("${events.api.orders.ledger.false-positive-rate}") double falsePositiveRate,
+      @Value("${events.api.orders.ledger.retention}") Duration retention,
+      @Value("${events.api.orders.ledger.generations}") int generations) {
+
+    this.itemsJdbcRepo = itemsJdbcRepo;
+    this.processedOrderRepo = processedOrderRepo;
+    this.retention = retention;
+    this.recordedKeys = new GenerationalBloomFilter(expectedEntries, falsePositiveRate, generations);
+    this.rotationInterval = retention.dividedBy(Math.max(1, generations));
+  }
+
+  @PostConstruct
+  public void load() {
+
+    Instant since = purge();
+
+    // Loaded into the current generation, so kept for at least the retention period from now
+    AtomicLong count = new AtomicLong();
+    itemsJdbcRepo.forEachProcessedOrder(since, key -> {
+      recordedKeys.put(key);
+      count.incrementAndGet();
+    });
+    logger.info("Loaded " + count.get() + " processed orders");
+    nextRotation = Instant.now().plus(rotationInterval);
+  }
+
+  /**
+   * Once per 'retention / generations', start a new filter generation, dropping the
+   * oldest, and purge records older than the retention period.
+   */
+  @Scheduled(fixedDelay = ROTATION_CHECK_MILLIS, initialDelay = ROTATION_CHECK_MILLIS)
+  public void rotate() {
+    if (Instant.now().isBefore(nextRotation))
+      return;
+    recordedKeys.rotate();
+    nextRotation = Instant.now().plus(rotationInterval);
+    purge();
+    logger.info("Rotated processed order filter; keys per generation: " + Arrays.toString(recordedKeys.entries()));
+  }
+
+  private Instant purge() {
+    Instant before = Instant.now().minus(retention);
+    int purged = processedOrderRepo.deleteByProcessedAtBefore(before);
+    logger.info("Purged " + purged + " processed orders older than " + before);
+    return before;
+  }
+
+  /**
+   * @return those of the given keys already recorded as processed
+   */
+  public Set<String> findProcessed(Collection<String> messageKeys) {
+
+    List<String> candidates = messageKeys.stream()
+        .filter(recordedKeys::mightContain)
+        .collect(Collectors.toList());
+
+    if (candidates.isEmpty())
+      return Collections.emptySet();
+
+    return itemsJdbcRepo.findProcessedOrders(candidates);
+  }
+
+  /**
+   * Record the given keys as processed. This is expected to be called within the
+   * transaction that applies the orders.
+   */
+  public void record(Collection<String> messageKeys) {
+    itemsJdbcRepo.insertProcessedOrders(messageKeys, Instant.now());
+    remember(messageKeys);
+  }
+
+  /**
+   * Note that the given keys may be recorded, such that a subsequent lookup of them
+   * consults the database.
+   */
+  public void remember(Collection<String> messageKeys) {
+    messageKeys.forEach(recordedKeys::put);
+  }
+}
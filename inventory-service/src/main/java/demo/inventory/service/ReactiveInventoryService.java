@@ -0,0 +1,240 @@
+package demo.inventory.service;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.stereotype.Service;
+
+import demo.inventory.api.messaging.ItemStockChangedEvent;
+import demo.inventory.api.model.InventoryItemModel;
+import demo.inventory.persistence.InventoryItem;
+import demo.inventory.persistence.ReactiveInventoryRepo;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Inventory service for the 'reactive' profile, reading and writing items with R2DBC.
+ *
+ * Results match those of {@link InventoryServiceImpl}: pages are in id order, the stock of
+ * a write-behind item is taken from memory, and entity tags are derived the same way.
+ * Items changed here are evicted from the item cache, updated in the name index, and
+ * published to the stock view when enabled; the write-behind stock of a changed item,
+ * which is reloaded with JDBC, is reloaded on a bounded elastic thread. Deleting an item
+ * that does not exist fails with an EmptyResultDataAccessException, as with JPA.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveInventoryService {
+
+  private final ReactiveInventoryRepo itemsRepo;
+
+  private final InventoryItemMapper itemMapper;
+
+  private final InventoryItemCache itemCache;
+
+  private final HotStockLedger hotStock;
+
+  private final ItemNameIndex nameIndex;
+
+  private final StockView stockView;
+
+  private final ApplicationEventPublisher eventPublisher;
+
+  public ReactiveInventoryService(ReactiveInventoryRepo itemsRepo, InventoryItemMapper itemMapper,
+      InventoryItemCache itemCache, HotStockLedger hotStock, ItemNameIndex nameIndex, StockView stockView,
+      ApplicationEventPublisher eventPublisher) {
+    this.itemsRepo = itemsRepo;
+    this.itemMapper = itemMapper;
+    this.itemCache = itemCache;
+    this.hotStock = hotStock;
+    this.nameIndex = nameIndex;
+    this.stockView = stockView;
+    this.eventPublisher = eventPublisher;
+  }
+
+  /**
+   * @return an entity tag for an item, as from {@link IInventoryService#getInventoryItemTag(long)}
+   */
+  public static String itemTag(InventoryItemModel item) {
+    return item.getVersion() + "." + item.getStock();
+  }
+
+  /**
+   * @return an entity tag for a page of items, as from {@link IInventoryService#getInventoryTag(PageRequest)}
+   */
+  public static String pageTag(Page<InventoryItemModel> page) {
+    long hash = 1;
+    for( InventoryItemModel item : page )
+      hash = 31 * (31 * hash + item.getId()) + item.getVersion();
+
+    return page.getTotalElements() + "-" + Long.toHexString(hash);
+  }
+
+  public Mono<InventoryItemModel> getInventoryItem(long itemId) {
+    return itemsRepo.findById(itemId).map(this::toModel);
+  }
+
+  /**
+   * @return a page of items, in id order
+   */
+  public Mono<Page<InventoryItemModel>> getInventory(PageRequest pageRequest) {
+    return page(itemsRepo.findPage(pageRequest.getOffset(), pageRequest.getPageSize()), itemsRepo.count(), pageRequest);
+  }
+
+  /**
+   * One item more than the page size is read, to tell whether there is a next page.
+   *
+   * @return a page of items, in id order, following the indicated item
+   */
+  public Mono<Slice<InventoryItemModel>> getInventoryAfter(long afterItemId, int size) {
+    return itemsRepo.findAfter(afterItemId, size + 1)
+        .map(this::toModel)
+        .collectList()
+        .map(items -> new SliceImpl<>(items.subList(0, Math.min(size, items.size())), PageRequest.of(0, size), items.size() > size));
+  }
+
+  public Mono<Long> countInventory() {
+    return itemsRepo.count();
+  }
+
+  /**
+   * @return all items, in id order, read from the database as the subscriber demands them
+   */
+  public Flux<InventoryItemModel> exportInventory() {
+    return itemsRepo.findAll().map(itemMapper::toModel);
+  }
+
+  /**
+   * Names are matched by the {@link ItemNameIndex} once it is built, as by
+   * {@link IInventoryService#searchInventory(String, BigDecimal, PageRequest)}.
+   *
+   * @return a page of items, in id order, matching either or both of name and maxPrice
+   */
+  public Mono<Page<InventoryItemModel>> searchInventory(String name, BigDecimal maxPrice, PageRequest pageRequest) {
+    long offset = pageRequest.getOffset();
+    int size = pageRequest.getPageSize();
+
+    if( name == null || name.isEmpty() )
+      return page(itemsRepo.findByPriceLessThanEqual(maxPrice, offset, size), itemsRepo.countByPriceLessThanEqual(maxPrice), pageRequest);
+
+    if( !nameIndex.isReady() )
+      return page(itemsRepo.findByNameContaining(name, maxPrice, offset, size), itemsRepo.countByNameContaining(name, maxPrice), pageRequest);
+
+    long[] ids = nameIndex.search(name, maxPrice);
+    int from = (int) Math.min(offset, ids.length);
+    int to = Math.min(from + size, ids.length);
+    List<Long> pageIds = Arrays.stream(ids, from, to).boxed().collect(Collectors.toList());
+
+    return itemsRepo.findAllById(pageIds)
+        .collectMap(InventoryItem::getId)
+        .map(entitiesById -> new PageImpl<>(pageIds.stream()
+            .map(entitiesById::get)
+            .filter(Objects::nonNull)
+            .map(this::toModel)
+            .collect(Collectors.toList()), pageRequest, ids.length));
+  }
+
+  /**
+   * @return the new item, with its generated id
+   */
+  public Mono<InventoryItemModel> createInventoryItem(InventoryItemModel itemModel) {
+    InventoryItem entity = itemMapper.toEntity(itemModel);
+    return itemsRepo.insert(entity)
+        .map(id -> {
+          entity.setId(id);
+          entity.setVersion(0);
+          return itemMapper.toModel(entity);
+        })
+        .flatMap(model -> changed(model.getId(), model).thenReturn(model));
+  }
+
+  /**
+   * Update an item, if its current tag is one of those expected, as by
+   * {@link IInventoryService#updateInventoryItem(long, InventoryItemModel, Collection)}.
+   *
+   * @return the updated item, or empty if there is no such item, or an
+   *   OptimisticLockingFailureException if the item has changed
+   */
+  public Mono<InventoryItemModel> updateInventoryItem(long itemId, InventoryItemModel itemModel, Collection<String> expectedTags) {
+    return itemsRepo.findById(itemId)
+        .flatMap(entity -> {
+          if( expectedTags != null && !expectedTags.contains(itemTag(toModel(entity))) )
+            return Mono.error(new OptimisticLockingFailureException("Inventory item " + itemId + " has changed"));
+
+          long version = entity.getVersion();
+          itemMapper.update(entity, itemModel);
+          return itemsRepo.update(entity, version)
+              .flatMap(count -> {
+                if( count == 0 )
+                  return Mono.error(new OptimisticLockingFailureException("Inventory item " + itemId + " has changed"));
+                entity.setVersion(version + 1);
+                return Mono.just(itemMapper.toModel(entity));
+              });
+        })
+        .flatMap(model -> changed(itemId, model).then(Mono.fromSupplier(() -> withCurrentStock(model))));
+  }
+
+  /**
+   * @return empty once the item is deleted, or an EmptyResultDataAccessException if there
+   *   is no such item
+   */
+  public Mono<Void> deleteInventoryItem(long itemId) {
+    return itemsRepo.deleteById(itemId)
+        .flatMap(count -> {
+          if( count == 0 )
+            return Mono.error(new EmptyResultDataAccessException("No inventory item with id " + itemId, 1));
+          return changed(itemId, null);
+        });
+  }
+
+  private Mono<Page<InventoryItemModel>> page(Flux<InventoryItem> entities, Mono<Long> count, PageRequest pageRequest) {
+    return Mono.zip(entities.map(this::toModel).collectList(), count)
+        .map(itemsAndCount -> new PageImpl<>(itemsAndCount.getT1(), pageRequest, itemsAndCount.getT2()));
+  }
+
+  private InventoryItemModel toModel(InventoryItem entity) {
+    return withCurrentStock(itemMapper.toModel(entity));
+  }
+
+  // Stock of a write-behind item is ahead of the database
+  private InventoryItemModel withCurrentStock(InventoryItemModel model) {
+    hotStock.currentStock(model.getId()).ifPresent(stock -> model.setStock((int) stock));
+    return model;
+  }
+
+  /*
+   * Evict a changed item from the cache, update the name index and publish its stock - 
+   * null for a deleted item - for the stock snapshot topic; for a write-behind item, 
+   * reload its stock off the event loop
+   */
+  private Mono<Void> changed(long itemId, InventoryItemModel model) {
+    itemCache.invalidate(itemId);
+    if( model == null )
+      nameIndex.remove(itemId);
+    else
+      nameIndex.put(itemId, model.getName(), model.getPrice());
+
+    if( stockView.isEnabled() )
+      eventPublisher.publishEvent(new ItemStockChangedEvent(this, itemId, model == null ? null : (long) model.getStock()));
+
+    if( !hotStock.isHot(itemId) )
+      return Mono.empty();
+    return Mono.fromRunnable(() -> hotStock.refresh(itemId))
+        .subscribeOn(Schedulers.boundedElastic())
+        .then();
+  }
+}
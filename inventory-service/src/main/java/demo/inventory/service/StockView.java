@@ -0,0 +1,88 @@
+package demo.inventory.service;
+
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import demo.inventory.api.message.InventoryUpdatedNotice;
+
+/**
+ * In-memory view of the current stock of every item, enabled with 'events.api.stock.enabled'.
+ *
+ * The view is rebuilt at startup from the compacted stock snapshot topic, which holds the
+ * latest {@link InventoryUpdatedNotice} for each item id, or none once the item is deleted,
+ * and then follows it (see StockSnapshotTopic). Every instance publishes its stock changes
+ * to the topic, so the view also reflects changes made by other instances, a few
+ * milliseconds behind.
+ *
+ * Until the rebuild has reached the end of the topic, the view reports no stock, and
+ * readers use the database.
+ */
+@Component
+public class StockView {
+
+  private final boolean enabled;
+
+  private final Map<Long, Long> stockByItemId = new ConcurrentHashMap<>();
+
+  private volatile boolean ready;
+
+  public StockView(@Value("${events.api.stock.enabled}") boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * @return whether the view has been rebuilt from the whole topic
+   */
+  public boolean isReady() {
+    return ready;
+  }
+
+  /**
+   * @return the item's current stock, if the view is ready and has the item
+   */
+  public OptionalLong currentStock(long itemId) {
+    if (!ready)
+      return OptionalLong.empty();
+    Long stock = stockByItemId.get(itemId);
+    return stock == null ? OptionalLong.empty() : OptionalLong.of(stock);
+  }
+
+  /**
+   * Apply a snapshot record: the item's stock, or its removal for a null notice (a
+   * tombstone, or a notice that could not be read)
+   */
+  public void apply(String key, InventoryUpdatedNotice notice) {
+    long itemId = Long.parseLong(key);
+    if (notice == null)
+      stockByItemId.remove(itemId);
+    else
+      stockByItemId.put(itemId, notice.getCurrentStockUnits());
+  }
+
+  /**
+   * Empty the view, and report no stock until it is rebuilt
+   */
+  public void reset() {
+    ready = false;
+    stockByItemId.clear();
+  }
+
+  public void markReady() {
+    ready = true;
+  }
+
+  /**
+   * @return the count of items in the view
+   */
+  public int size() {
+    return stockByItemId.size();
+  }
+}
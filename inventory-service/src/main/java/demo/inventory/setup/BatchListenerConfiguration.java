@@ -0,0 +1,34 @@
+package demo.inventory.setup;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+
+/**
+ * When 'events.api.orders.batch.enabled' is true, provide a listener container factory that
+ * delivers a full poll of 'orders' records (up to spring.kafka.consumer.max-poll-records)
+ * to the batch listener in a single call.
+ *
+ * The container factory is otherwise configured from spring.kafka properties, the same as
+ * the default factory used by the per-record listener.
+ */
+@Configuration
+@ConditionalOnProperty(name = "events.api.orders.batch.enabled", havingValue = "true")
+public class BatchListenerConfiguration {
+
+  public static final String BATCH_LISTENER_CONTAINER_FACTORY = "batchListenerContainerFactory";
+
+  @Bean(name = BATCH_LISTENER_CONTAINER_FACTORY)
+  public ConcurrentKafkaListenerContainerFactory<Object, Object> batchListenerContainerFactory(
+      ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+      ConsumerFactory<Object, Object> kafkaConsumerFactory) {
+
+    ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+    configurer.configure(factory, kafkaConsumerFactory);
+    factory.setBatchListener(true);
+    return factory;
+  }
+}
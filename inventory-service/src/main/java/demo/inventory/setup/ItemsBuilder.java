@@ -21,6 +21,8 @@ import org.springframework.stereotype.Component;
  * If either the 'dev' or 'test' profile is active, enable auto init on startup of the 
  * required 'items' table. The contents of the table is recreated on startup as a 
  * convenience, to restore any items removed during a previous test run.
+ * 
+ * The sample data statements are sent as a single JDBC batch, in one round trip.
  */
 @Component
 @Profile({"dev","test"})
@@ -70,9 +72,12 @@ public class ItemsBuilder {
               +"description varchar(2048) not null,"
               +"price decimal(8,2) not null,"
               +"img_alt varchar(75),"
-              +"img varchar(50) not null)";
+              +"img varchar(50) not null,"
+              +"version bigint not null default 0)";
   
       jdbcTemplate.execute(createTable);
+      jdbcTemplate.execute("create index items_name_idx on items (name)");
+      jdbcTemplate.execute("create index items_price_idx on items (price)");
     }
     else if( datasourceUrl.startsWith("jdbc:h2") ) {
       // schema is auto-generated
@@ -80,7 +85,10 @@ public class ItemsBuilder {
     
     try(InputStream inputStream = ItemsBuilder.class.getClassLoader().getResourceAsStream("insert_sample_data.sql")) {
       BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, Charset.forName("UTF-8")));
-      reader.lines().forEach(s -> jdbcTemplate.execute(s));
+      String[] inserts = reader.lines()
+          .filter(s -> !s.trim().isEmpty())
+          .toArray(String[]::new);
+      jdbcTemplate.batchUpdate(inserts);
     }
     
     jdbcTemplate.execute("commit");
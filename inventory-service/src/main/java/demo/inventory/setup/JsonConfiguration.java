@@ -0,0 +1,26 @@
+package demo.inventory.setup;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+
+/**
+ * When 'inventory.json.afterburner' is true, register the Jackson Afterburner module with
+ * the application ObjectMapper, so that item properties are read and written through
+ * generated accessors rather than by reflection.
+ *
+ * Afterburner falls back to reflection where it cannot define classes, as on JDK 16 or
+ * later without '--add-opens java.base/java.lang=ALL-UNNAMED'.
+ */
+@Configuration
+@ConditionalOnProperty(name = "inventory.json.afterburner", havingValue = "true")
+public class JsonConfiguration {
+
+  @Bean
+  public Module afterburnerModule() {
+    return new AfterburnerModule();
+  }
+}
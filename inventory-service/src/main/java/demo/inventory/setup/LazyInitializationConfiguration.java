@@ -0,0 +1,45 @@
+package demo.inventory.setup;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * With 'spring.main.lazy-initialization' (as in the 'fast-start' profile), beans are created
+ * when first used rather than on startup. Kafka listeners and @Scheduled tasks are still
+ * created on startup, since nothing else would create them, and so are MeterBinder beans,
+ * so that their meters are published from the start rather than once something happens to
+ * use them. Beans that register meters as they are created (the item cache, the
+ * write-behind ledger, the outbox relay) are created on startup as dependencies of the
+ * listeners and tasks.
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.main.lazy-initialization", havingValue = "true")
+public class LazyInitializationConfiguration {
+
+  @Bean
+  public static LazyInitializationExcludeFilter listenersAndTasksExcludeFilter() {
+    return (beanName, beanDefinition, beanType) -> beanType != null
+        && (MeterBinder.class.isAssignableFrom(beanType)
+            || AnnotatedElementUtils.hasAnnotation(beanType, KafkaListener.class)
+            || hasAnnotatedMethod(beanType, KafkaListener.class)
+            || hasAnnotatedMethod(beanType, Scheduled.class));
+  }
+
+  private static boolean hasAnnotatedMethod(Class<?> beanType, Class<? extends Annotation> annotationType) {
+    return !MethodIntrospector.selectMethods(beanType,
+        (MethodIntrospector.MetadataLookup<Method>) method ->
+            AnnotatedElementUtils.hasAnnotation(method, annotationType) ? method : null)
+        .isEmpty();
+  }
+}
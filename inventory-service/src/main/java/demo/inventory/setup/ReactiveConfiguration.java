@@ -0,0 +1,81 @@
+package demo.inventory.setup;
+
+import java.util.Arrays;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+
+/**
+ * With the 'reactive' profile, serve the REST API from Netty, and provide a pooled R2DBC
+ * connection factory from 'inventory.reactive.r2dbc' properties.
+ *
+ * Netty is chosen explicitly, since Tomcat, also on the classpath, would otherwise be
+ * preferred. R2DBC auto-configuration is excluded in all profiles, so that its transaction
+ * manager does not displace the JPA transaction manager. Streamed JSON is written as one
+ * document per line for 'application/x-ndjson', as well as for 'application/stream+json'.
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveConfiguration implements WebFluxConfigurer {
+
+  public static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+  private final ObjectMapper objectMapper;
+
+  public ReactiveConfiguration(ObjectMapper objectMapper) {
+    this.objectMapper = objectMapper;
+  }
+
+  @Bean
+  public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+    return new NettyReactiveWebServerFactory();
+  }
+
+  @Bean(destroyMethod = "dispose")
+  public ConnectionPool connectionFactory(
+      @Value("${inventory.reactive.r2dbc.url}") String url,
+      @Value("${inventory.reactive.r2dbc.username}") String username,
+      @Value("${inventory.reactive.r2dbc.password}") String password,
+      @Value("${inventory.reactive.r2dbc.pool.initial-size:5}") int initialSize,
+      @Value("${inventory.reactive.r2dbc.pool.max-size:20}") int maxSize) {
+
+    ConnectionFactory connectionFactory = ConnectionFactories.get(ConnectionFactoryOptions.parse(url).mutate()
+        .option(ConnectionFactoryOptions.USER, username)
+        .option(ConnectionFactoryOptions.PASSWORD, password)
+        .build());
+
+    return new ConnectionPool(ConnectionPoolConfiguration.builder(connectionFactory)
+        .initialSize(initialSize)
+        .maxSize(maxSize)
+        .build());
+  }
+
+  @Bean
+  public DatabaseClient databaseClient(ConnectionFactory connectionFactory) {
+    return DatabaseClient.create(connectionFactory);
+  }
+
+  @Override
+  public void configureHttpMessageCodecs(ServerCodecConfigurer configurer) {
+    Jackson2JsonEncoder encoder = new Jackson2JsonEncoder(objectMapper,
+        MediaType.APPLICATION_JSON, new MediaType("application", "*+json"), APPLICATION_NDJSON);
+    encoder.setStreamingMediaTypes(Arrays.asList(MediaType.APPLICATION_STREAM_JSON, APPLICATION_NDJSON));
+    configurer.defaultCodecs().jackson2JsonEncoder(encoder);
+  }
+}
@@ -0,0 +1,71 @@
+package demo.inventory.setup;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import demo.inventory.persistence.ReplicaRoutingDataSource;
+
+/**
+ * When 'inventory.replica.enabled' is true, the application DataSource routes read-only
+ * transactions of query requests to a replica pool, and everything else to the primary
+ * pool (see ReplicaRoutingDataSource, and ReplicaReadsFilter for which requests).
+ *
+ * The primary pool is configured by 'spring.datasource' as before, and the replica pool by
+ * 'inventory.replica', by default from the 'inventorydb.replica-url' secret, with the
+ * primary's credentials unless 'inventorydb.replica-username' and '-password' are given.
+ */
+@Configuration
+@ConditionalOnProperty(name = "inventory.replica.enabled", havingValue = "true")
+public class ReplicaDataSourceConfiguration {
+  private static final Logger logger = LoggerFactory.getLogger(ReplicaDataSourceConfiguration.class);
+
+  @Bean
+  @ConfigurationProperties("spring.datasource.hikari")
+  public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+    HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    primary.setPoolName("primary");
+    return primary;
+  }
+
+  @Bean
+  @ConfigurationProperties("inventory.replica.hikari")
+  public HikariDataSource replicaDataSource(
+      @Value("${inventory.replica.url}") String url,
+      @Value("${inventory.replica.username}") String username,
+      @Value("${inventory.replica.password}") String password) {
+
+    logger.info("Read-only transactions of query requests use the replica at " + url);
+    HikariDataSource replica = DataSourceBuilder.create().type(HikariDataSource.class)
+        .url(url)
+        .username(username)
+        .password(password)
+        .build();
+    replica.setPoolName("replica");
+    return replica;
+  }
+
+  /*
+   * Named as the auto-configured DataSource would be, so that it alone is bounded in
+   * virtual thread mode (see VirtualThreadConfiguration)
+   */
+  @Bean
+  @Primary
+  public DataSource dataSource(
+      @Qualifier("primaryDataSource") DataSource primary,
+      @Qualifier("replicaDataSource") DataSource replica) {
+    return ReplicaRoutingDataSource.lazy(primary, replica);
+  }
+}
@@ -0,0 +1,13 @@
+package demo.inventory.setup;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enable @Scheduled tasks, such as the notice outbox relay. The scheduler has a thread for
+ * each task ('spring.task.scheduling.pool.size').
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfiguration {
+}
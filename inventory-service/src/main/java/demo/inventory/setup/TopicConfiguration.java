@@ -5,6 +5,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
+import org.springframework.kafka.config.TopicBuilder;
 
 /**
  * The spring-kafka library will look for NewTopic beans and create subject 
@@ -17,6 +18,9 @@ public class TopicConfiguration {
   @Value("${events.api.orders.topic}")
   String topicName;
 
+  @Value("${events.api.stock.topic}")
+  String stockTopicName;
+
   @Bean
   public NewTopic ordersTopic() {
     return new NewTopic(
@@ -24,4 +28,16 @@ public class TopicConfiguration {
                 2  /* numPartitions */, 
         (short) 1  /* replicationFactor */);
   }
+
+  /*
+   * Compacted, so that it keeps the latest stock snapshot of each item (see StockSnapshotTopic)
+   */
+  @Bean
+  public NewTopic stockTopic() {
+    return TopicBuilder.name(stockTopicName)
+        .partitions(2)
+        .replicas(1)
+        .compact()
+        .build();
+  }
 }
@@ -0,0 +1,102 @@
+package demo.inventory.setup;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.kafka.config.AbstractKafkaListenerContainerFactory;
+
+import demo.inventory.persistence.BoundedDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * When 'inventory.virtual-threads.enabled' is true, handle each request on a new virtual
+ * thread rather than on Tomcat's thread pool, and run Kafka listener consumers on virtual
+ * threads. This requires JDK 21 or later; on an earlier JDK, startup fails.
+ *
+ * Request threads no longer bound the callers of the connection pool, so the DataSource
+ * is wrapped in a {@link BoundedDataSource}, with 'inventory.virtual-threads.max-db-connections'
+ * permits. Connections held and callers waiting are published as the 'inventory.db.active'
+ * and 'inventory.db.waiting' gauges.
+ */
+@Configuration
+@ConditionalOnProperty(name = "inventory.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadConfiguration implements DisposableBean {
+
+  private static final Logger logger = LoggerFactory.getLogger(VirtualThreadConfiguration.class);
+
+  private final ExecutorService requestExecutor;
+
+  public VirtualThreadConfiguration() {
+    requestExecutor = VirtualThreads.newThreadPerTaskExecutor("http-virtual-");
+    logger.info("Handling requests and Kafka records on virtual threads");
+  }
+
+  @Bean
+  public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+    return protocolHandler -> protocolHandler.setExecutor(requestExecutor);
+  }
+
+  /*
+   * Static, as a post processor, so that it does not cause early initialization of this
+   * configuration's other beans
+   */
+  @Bean
+  public static BeanPostProcessor virtualThreadPostProcessor(
+      @Value("${inventory.virtual-threads.max-db-connections}") int maxDbConnections,
+      @Value("${inventory.virtual-threads.db-acquire-timeout}") Duration acquireTimeout) {
+
+    return new BeanPostProcessor() {
+      @Override
+      public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if( bean instanceof AbstractKafkaListenerContainerFactory ) {
+          SimpleAsyncTaskExecutor consumerExecutor = new SimpleAsyncTaskExecutor();
+          consumerExecutor.setThreadFactory(VirtualThreads.threadFactory(beanName + "-virtual-"));
+          ((AbstractKafkaListenerContainerFactory<?, ?, ?>) bean).getContainerProperties().setConsumerTaskExecutor(consumerExecutor);
+        }
+        // The application DataSource, and not the pools behind a replica routing DataSource
+        else if( bean instanceof DataSource && beanName.equals("dataSource") && !(bean instanceof BoundedDataSource) ) {
+          logger.info("Bounding DataSource '" + beanName + "' to " + maxDbConnections + " connections");
+          return new BoundedDataSource((DataSource) bean, maxDbConnections, acquireTimeout.toMillis());
+        }
+        return bean;
+      }
+    };
+  }
+
+  @Bean
+  public MeterBinder boundedDataSourceMetrics(DataSource dataSource) {
+    return registry -> {
+      try {
+        BoundedDataSource bounded = dataSource.unwrap(BoundedDataSource.class);
+        Gauge.builder("inventory.db.active", bounded, BoundedDataSource::getActive)
+            .description("Connections held, of inventory.virtual-threads.max-db-connections")
+            .register(registry);
+        Gauge.builder("inventory.db.waiting", bounded, BoundedDataSource::getWaiting)
+            .description("Callers waiting for a connection")
+            .register(registry);
+      }
+      catch (SQLException ex) {
+        logger.warn("DataSource is not bounded: " + ex);
+      }
+    };
+  }
+
+  @Override
+  public void destroy() {
+    requestExecutor.shutdown();
+  }
+}
@@ -0,0 +1,57 @@
+package demo.inventory.setup;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Virtual threads, where the JDK provides them (JDK 21 or later). The service is built for
+ * Java 8, so they are created by reflection.
+ */
+public final class VirtualThreads {
+
+  private VirtualThreads() {
+  }
+
+  public static boolean isSupported() {
+    try {
+      Thread.class.getMethod("ofVirtual");
+      return true;
+    }
+    catch (NoSuchMethodException ex) {
+      return false;
+    }
+  }
+
+  /**
+   * @return a factory of virtual threads named with the given prefix and a sequence number
+   * @throws IllegalStateException if the JDK does not provide virtual threads
+   */
+  public static ThreadFactory threadFactory(String namePrefix) {
+    try {
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+      builder = builderType.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+      return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+    }
+    catch (ReflectiveOperationException ex) {
+      throw new IllegalStateException("Virtual threads require JDK 21 or later; running on " + System.getProperty("java.version"), ex);
+    }
+  }
+
+  /**
+   * @return an executor that starts a new virtual thread for each task
+   * @throws IllegalStateException if the JDK does not provide virtual threads
+   */
+  public static ExecutorService newThreadPerTaskExecutor(String namePrefix) {
+    ThreadFactory threadFactory = threadFactory(namePrefix);
+    try {
+      Method newExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+      return (ExecutorService) newExecutor.invoke(null, threadFactory);
+    }
+    catch (ReflectiveOperationException ex) {
+      throw new IllegalStateException("Virtual threads require JDK 21 or later; running on " + System.getProperty("java.version"), ex);
+    }
+  }
+}
@@ -0,0 +1,30 @@
+package demo.inventory.setup;
+
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * The 'warmup' health indicator: out of service until the WarmupRunner is complete. It is
+ * part of the 'readiness' health group, which the Kubernetes readiness probe checks.
+ */
+@Component
+@ConditionalOnProperty(name = "inventory.warmup.enabled", havingValue = "true")
+public class WarmupHealthIndicator extends AbstractHealthIndicator {
+
+  private final WarmupRunner warmupRunner;
+
+  public WarmupHealthIndicator(WarmupRunner warmupRunner) {
+    this.warmupRunner = warmupRunner;
+  }
+
+  @Override
+  protected void doHealthCheck(Health.Builder builder) {
+    if (warmupRunner.isComplete())
+      builder.up();
+    else
+      builder.outOfService();
+    builder.withDetails(warmupRunner.getSteps());
+  }
+}
@@ -0,0 +1,289 @@
+package demo.inventory.setup;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.sql.DataSource;
+
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+
+import demo.inventory.api.message.InventoryUpdatedNotice;
+import demo.inventory.api.message.OrderCompletedNotice;
+import demo.inventory.api.model.InventoryItemModel;
+import demo.inventory.persistence.BoundedDataSource;
+import demo.inventory.persistence.ReplicaRoutingDataSource;
+import demo.inventory.service.IInventoryService;
+import demo.inventory.service.StockView;
+
+/**
+ * Warms the service up once started, before it reports ready (see WarmupHealthIndicator, in
+ * the 'readiness' health group), so that the first requests after a scale-out are not the
+ * ones that open database connections, load classes and run in the interpreter:
+ *
+ * - pool: open each Hikari pool's minimum idle connections, the primary's and, when reads
+ *   are routed to a replica (see ReplicaDataSourceConfiguration), the replica's. They are
+ *   taken through the application DataSource, and so within its bound, if any (see
+ *   BoundedDataSource),
+ * - calls: repeat reads of a page of items, and of each item, through the inventory service,
+ *   and JSON writes and reads of items and order notices, through the application
+ *   ObjectMapper. No item is written.
+ * - cache: load the items listed in 'inventory.warmup.preload-items' into the item cache,
+ * - kafka: wait until each Kafka listener container has partitions assigned, for up to
+ *   'inventory.warmup.kafka-timeout'.
+ * - stock: wait until the stock view has been rebuilt from the stock snapshot topic, if
+ *   enabled (see StockView), for up to the same timeout.
+ *
+ * Progress is reported by /actuator/warmup. A failed step is logged, and warm-up goes on.
+ */
+@Component
+@ConditionalOnProperty(name = "inventory.warmup.enabled", havingValue = "true")
+public class WarmupRunner {
+  private static final Logger logger = LoggerFactory.getLogger(WarmupRunner.class);
+
+  private static final int PAGE_SIZE = 20;
+
+  private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
+  private final DataSource dataSource;
+
+  private final ObjectProvider<HikariDataSource> replicaPool;
+
+  private final IInventoryService inventoryService;
+
+  private final ObjectMapper objectMapper;
+
+  private final ObjectProvider<KafkaListenerEndpointRegistry> listenerRegistry;
+
+  private final StockView stockView;
+
+  private final int iterations;
+
+  private final Duration maxDuration;
+
+  private final Set<Long> preloadItemIds;
+
+  private final Duration kafkaTimeout;
+
+  private final Map<String, String> steps = new LinkedHashMap<>();
+
+  private volatile boolean complete;
+
+  public WarmupRunner(
+      DataSource dataSource,
+      @Qualifier("replicaDataSource") ObjectProvider<HikariDataSource> replicaPool,
+      IInventoryService inventoryService,
+      ObjectMapper objectMapper,
+      ObjectProvider<KafkaListenerEndpointRegistry> listenerRegistry,
+      StockView stockView,
+      @Value("${inventory.warmup.iterations}") int iterations,
+      @Value("${inventory.warmup.max-duration}") Duration maxDuration,
+      @Value("${inventory.warmup.preload-items}") Set<Long> preloadItemIds,
+      @Value("${inventory.warmup.kafka-timeout}") Duration kafkaTimeout) {
+
+    this.dataSource = dataSource;
+    this.replicaPool = replicaPool;
+    this.inventoryService = inventoryService;
+    this.objectMapper = objectMapper;
+    this.listenerRegistry = listenerRegistry;
+    this.stockView = stockView;
+    this.iterations = iterations;
+    this.maxDuration = maxDuration;
+    this.preloadItemIds = preloadItemIds;
+    this.kafkaTimeout = kafkaTimeout;
+
+    for (String step : new String[] { "pool", "calls", "cache", "kafka", "stock" })
+      steps.put(step, "pending");
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void start() {
+    Thread warmup = new Thread(this::run, "warmup");
+    warmup.setDaemon(true);
+    warmup.start();
+  }
+
+  /**
+   * @return whether every step has ended
+   */
+  public boolean isComplete() {
+    return complete;
+  }
+
+  /**
+   * @return the status of each step
+   */
+  public synchronized Map<String, String> getSteps() {
+    return new LinkedHashMap<>(steps);
+  }
+
+  private void run() {
+    long start = System.nanoTime();
+    step("pool", this::fillPool);
+    step("calls", this::callService);
+    step("cache", this::preloadItems);
+    step("kafka", this::awaitPartitions);
+    step("stock", this::awaitStockView);
+    complete = true;
+    logger.info("Warm-up complete in {}ms: {}", (System.nanoTime() - start) / 1000000, getSteps());
+  }
+
+  private void step(String step, Step action) {
+    setStep(step, "running");
+    long start = System.nanoTime();
+    try {
+      String result = action.run();
+      setStep(step, result + " in " + (System.nanoTime() - start) / 1000000 + "ms");
+    }
+    catch (Exception e) {
+      logger.warn("Warm-up step '" + step + "' failed", e);
+      setStep(step, "failed: " + e);
+    }
+  }
+
+  private synchronized void setStep(String step, String status) {
+    steps.put(step, status);
+  }
+
+  private String fillPool() throws SQLException {
+    if (!dataSource.isWrapperFor(HikariDataSource.class)) {
+      dataSource.getConnection().close();
+      return "opened 1 connection";
+    }
+    // on this thread, the application DataSource unwraps to the primary pool
+    String opened = "opened " + fillPool(dataSource.unwrap(HikariDataSource.class), false) + " connections";
+    HikariDataSource replica = replicaPool.getIfAvailable();
+    if (replica != null)
+      opened += ", and " + fillPool(replica, true) + " replica connections";
+    return opened;
+  }
+
+  /*
+   * Hold the pool's minimum idle connections at once, taken through the application
+   * DataSource, routed to the replica as a read-only transaction of a query request would
+   * be. A routed connection is only opened at its first use, so each is validated.
+   */
+  private int fillPool(HikariDataSource pool, boolean replica) throws SQLException {
+    int count = pool.getMinimumIdle();
+    if (dataSource.isWrapperFor(BoundedDataSource.class))
+      count = Math.min(count, dataSource.unwrap(BoundedDataSource.class).getMaxConnections());
+
+    List<Connection> connections = new ArrayList<>();
+    if (replica) {
+      ReplicaRoutingDataSource.setReplicaReadsAllowed(true);
+      TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    }
+    try {
+      while (connections.size() < count) {
+        Connection connection = dataSource.getConnection();
+        connections.add(connection);
+        connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+      }
+    }
+    finally {
+      for (Connection connection : connections)
+        connection.close();
+      if (replica) {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        ReplicaRoutingDataSource.setReplicaReadsAllowed(false);
+      }
+    }
+    return connections.size();
+  }
+
+  private String callService() throws IOException {
+    long deadline = System.nanoTime() + maxDuration.toNanos();
+    OrderCompletedNotice order = new OrderCompletedNotice("warmup", 0, 1);
+    InventoryUpdatedNotice notice = new InventoryUpdatedNotice(0, 1);
+    int count = 0;
+    for (; count < iterations && System.nanoTime() < deadline; count++) {
+      Page<InventoryItemModel> page = inventoryService.getInventory(PageRequest.of(0, PAGE_SIZE));
+      objectMapper.writeValueAsBytes(page);
+      for (InventoryItemModel item : page) {
+        inventoryService.getInventoryItem(item.getId());
+        objectMapper.readValue(objectMapper.writeValueAsBytes(item), InventoryItemModel.class);
+      }
+      inventoryService.getInventoryAfter(0, PAGE_SIZE);
+      objectMapper.readValue(objectMapper.writeValueAsBytes(order), OrderCompletedNotice.class);
+      objectMapper.readValue(objectMapper.writeValueAsBytes(notice), InventoryUpdatedNotice.class);
+    }
+    return "ran " + count + " iterations";
+  }
+
+  private String preloadItems() {
+    if (preloadItemIds.isEmpty())
+      return "skipped";
+    int loaded = 0;
+    for (long itemId : preloadItemIds)
+      if (inventoryService.getInventoryItem(itemId).isPresent())
+        loaded++;
+    return "loaded " + loaded + " items";
+  }
+
+  private String awaitPartitions() throws InterruptedException {
+    KafkaListenerEndpointRegistry registry = listenerRegistry.getIfAvailable();
+    if (registry == null || registry.getListenerContainers().isEmpty())
+      return "skipped";
+    long deadline = System.nanoTime() + kafkaTimeout.toNanos();
+    while (!partitionsAssigned(registry)) {
+      if (System.nanoTime() > deadline) {
+        logger.warn("No Kafka partitions assigned after " + kafkaTimeout + "; reporting ready without them");
+        return "timed out";
+      }
+      Thread.sleep(100);
+    }
+    return "assigned";
+  }
+
+  private String awaitStockView() throws InterruptedException {
+    if (!stockView.isEnabled())
+      return "skipped";
+    long deadline = System.nanoTime() + kafkaTimeout.toNanos();
+    while (!stockView.isReady()) {
+      if (System.nanoTime() > deadline) {
+        logger.warn("Stock view not rebuilt after " + kafkaTimeout + "; reporting ready, reading stock from the database");
+        return "timed out";
+      }
+      Thread.sleep(100);
+    }
+    return stockView.size() + " items";
+  }
+
+  private static boolean partitionsAssigned(KafkaListenerEndpointRegistry registry) {
+    for (MessageListenerContainer container : registry.getListenerContainers()) {
+      Collection<TopicPartition> partitions = container.getAssignedPartitions();
+      if (partitions == null || partitions.isEmpty())
+        return false;
+    }
+    return true;
+  }
+
+  @FunctionalInterface
+  private interface Step {
+    String run() throws Exception;
+  }
+}
@@ -0,0 +1,30 @@
+package demo.inventory;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+
+/**
+ * Run the service locally, self-contained: an in-memory H2 database loaded with the sample
+ * items ('test' profile), an embedded Kafka broker, and the utility endpoints ('dev'
+ * profile). Intended as a target for the load driver in inventory-client-test:
+ * 
+ *   mvn spring-boot:run -Dspring-boot.run.useTestClasspath=true \
+ *       -Dspring-boot.run.main-class=demo.inventory.LocalServiceMain
+ */
+public class LocalServiceMain {
+
+  public static void main(String[] args) {
+
+    EmbeddedKafkaBroker broker = new EmbeddedKafkaBroker(1, true, 2, "orders", "inventory");
+    broker.afterPropertiesSet();
+    Runtime.getRuntime().addShutdownHook(new Thread(broker::destroy));
+
+    new SpringApplicationBuilder(Main.class)
+        .profiles("test", "dev")
+        .properties(
+            EmbeddedKafkaBroker.SPRING_EMBEDDED_KAFKA_BROKERS + "=" + broker.getBrokersAsString(),
+            "logging.level.org.springframework=INFO",
+            "spring.jpa.show-sql=false")
+        .run(args);
+  }
+}
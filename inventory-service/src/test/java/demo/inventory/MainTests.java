@@ -45,6 +45,15 @@ public class MainTests {
                 .andExpect(content().string(containsString("UP")));
     }
 
+    @Test
+    public void testStartupEndpoint() throws Exception {
+        this.mockMvc.perform(get("/actuator/startup"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("\"refresh\"")))
+                .andExpect(content().string(containsString("\"ready\"")))
+                .andExpect(content().string(containsString("\"total\"")));
+    }
+
     @Test
     public void testMetricsEndpoint() throws Exception {
         // access a page
@@ -67,4 +76,12 @@ public class MainTests {
                 .andExpect(content().string(containsString("# TYPE jvm_buffer_count_buffers gauge")));
     }
 
+    @Test
+    public void testPrometheusEndpointHasItemCacheMetrics() throws Exception {
+        this.mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("cache_gets_total{cache=\"items\"")))
+                .andExpect(content().string(containsString("cache_evictions_total{cache=\"items\"")));
+    }
+
 }
@@ -0,0 +1,59 @@
+package demo.inventory;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.kafka.KafkaAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+
+import demo.inventory.setup.WarmupRunner;
+
+/**
+ * Readiness gated on warm-up. Without Kafka, the 'kafka' step is skipped.
+ */
+@SpringBootTest(properties = {
+    "inventory.warmup.enabled=true",
+    "inventory.warmup.iterations=20",
+    "inventory.warmup.preload-items=1,2"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles(profiles = "test")
+@ContextConfiguration(classes = {Main.class})
+@EnableAutoConfiguration(exclude={KafkaAutoConfiguration.class})
+public class WarmupTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private WarmupRunner warmupRunner;
+
+    @Test
+    public void whenWarmupComplete_thenReady() throws Exception {
+        long deadline = System.currentTimeMillis() + 30000;
+        while (!warmupRunner.isComplete() && System.currentTimeMillis() < deadline)
+            Thread.sleep(100);
+        assertTrue(warmupRunner.isComplete());
+
+        this.mockMvc.perform(get("/actuator/warmup"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("\"complete\":true")))
+                .andExpect(content().string(containsString("ran 20 iterations")))
+                .andExpect(content().string(containsString("\"kafka\":\"skipped")));
+
+        this.mockMvc.perform(get("/actuator/health/readiness"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("UP")));
+    }
+
+}
@@ -0,0 +1,128 @@
+package demo.inventory.api.kafka;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.support.AbstractApplicationContext;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.context.ActiveProfiles;
+
+import demo.inventory.api.message.OrderCompletedNotice;
+import demo.inventory.api.messaging.InventoryUpdatedEvent;
+import demo.inventory.persistence.InventoryJdbcRepo;
+import demo.inventory.service.HotStockLedger;
+import demo.inventory.service.IInventoryService;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/*
+ * Verify that orders for a write-behind item change stock in memory first, reach the
+ * database on flush, and are rejected beyond the available stock. Timed flushes are
+ * disabled, so that the test controls when stock is written.
+ */
+@ActiveProfiles(profiles = "test")
+@SpringBootTest(webEnvironment = WebEnvironment.NONE, properties = {
+    "inventory.write-behind.enabled=true",
+    "inventory.write-behind.items=7",
+    "inventory.write-behind.flush-interval=3600000"})
+@EmbeddedKafka(topics={"${events.api.orders.topic}","${events.api.inventory.topic}"}, partitions=1)
+public class HotStockWriteBehindTest {
+
+  private static final long itemId = 7;
+
+  @Autowired
+  private KafkaOperations<String, OrderCompletedNotice> kafkaOperations;
+
+  @Autowired
+  private IInventoryService inventoryService;
+
+  @Autowired
+  private InventoryJdbcRepo itemsJdbcRepo;
+
+  @Autowired
+  private HotStockLedger hotStock;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Value(value = "${events.api.orders.topic}")
+  private String ordersTopicName;
+
+  @Autowired
+  AbstractApplicationContext context;
+
+  static private Boolean isSubscribed = false;
+  static private BlockingQueue<Long> updatedStockUnits = new LinkedBlockingQueue<>();
+
+  @BeforeEach
+  public void setupApplicationEventListeners() {
+
+    synchronized (isSubscribed) {
+
+      if( isSubscribed )
+        return;
+
+      context.addApplicationListener(new ApplicationListener<InventoryUpdatedEvent>() {
+        @Override
+        public void onApplicationEvent(InventoryUpdatedEvent event) {
+          if( event.getItemId() == itemId )
+            updatedStockUnits.add(event.getCurrentStockUnits());
+        }});
+
+      isSubscribed = true;
+    }
+  }
+
+  @Test
+  public void whenHotItemOrdered_thenStockWrittenOnFlushAndExcessOrderRejected() throws InterruptedException {
+
+    hotStock.flush();
+    int initialStockUnits = writtenStock();
+
+    kafkaOperations.send(ordersTopicName, new OrderCompletedNotice(itemId, 3));
+    kafkaOperations.flush();
+
+    Long stockUnits = updatedStockUnits.poll(30, TimeUnit.SECONDS);
+    if( stockUnits == null )
+      fail("Timed out waiting on InventoryUpdated ApplicationEvent");
+
+    assertEquals(initialStockUnits - 3, stockUnits.longValue(), "wrong in-memory stock level");
+    assertEquals(initialStockUnits - 3, inventoryService.getInventoryItem(itemId).get().getStock(), "item does not show in-memory stock");
+    assertEquals(initialStockUnits, writtenStock(), "stock written before flush");
+
+    hotStock.flush();
+    assertEquals(initialStockUnits - 3, writtenStock(), "stock not written on flush");
+
+    // An order for more than the remaining stock is rejected, and changes nothing
+    double rejected = meterRegistry.counter("inventory.write-behind.rejected").count();
+    kafkaOperations.send(ordersTopicName, new OrderCompletedNotice(itemId, initialStockUnits));
+    kafkaOperations.flush();
+
+    long deadline = System.currentTimeMillis() + 30000;
+    while( meterRegistry.counter("inventory.write-behind.rejected").count() == rejected ) {
+      if( System.currentTimeMillis() > deadline )
+        fail("Timed out waiting on rejected order");
+      Thread.sleep(100);
+    }
+
+    hotStock.flush();
+    assertEquals(initialStockUnits - 3, writtenStock(), "rejected order changed stock");
+  }
+
+  private int writtenStock() {
+    return itemsJdbcRepo.findStock(Collections.singleton(itemId)).get(itemId);
+  }
+
+}
@@ -0,0 +1,89 @@
+package demo.inventory.api.kafka;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.Map;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.ActiveProfiles;
+
+import demo.inventory.api.message.InventoryUpdatedNotice;
+import demo.inventory.api.message.OrderCompletedNotice;
+import demo.inventory.api.messaging.NoticeOutboxRelay;
+import demo.inventory.service.IInventoryService;
+
+/*
+ * Verify that, with the outbox enabled, the 'inventory' reply to an order is published by
+ * the outbox relay, keyed by item id.
+ */
+@ActiveProfiles(profiles = "test")
+@SpringBootTest(webEnvironment = WebEnvironment.NONE, properties = "events.api.inventory.outbox.enabled=true")
+@EmbeddedKafka(topics={"${events.api.orders.topic}","${events.api.inventory.topic}"}, partitions=1)
+public class NoticeOutboxTest {
+
+  private static final long itemId = 6;
+
+  @Autowired
+  private KafkaOperations<String, OrderCompletedNotice> kafkaOperations;
+
+  @Autowired
+  private IInventoryService inventoryService;
+
+  @Autowired
+  private NoticeOutboxRelay relay;
+
+  @Autowired
+  private EmbeddedKafkaBroker embeddedKafka;
+
+  @Value(value = "${events.api.orders.topic}")
+  private String ordersTopicName;
+
+  @Value(value = "${events.api.inventory.topic}")
+  private String inventoryTopicName;
+
+  @Test
+  public void whenOrderCompletedSent_thenInventoryUpdatedNoticeRelayedFromOutbox() {
+
+    assertNotNull(relay, "Missing NoticeOutboxRelay bean");
+
+    long initialStockUnits = inventoryService.getInventoryItem(itemId).get().getStock();
+
+    Map<String, Object> consumerProps = KafkaTestUtils.consumerProps("outbox-test", "false", embeddedKafka);
+    consumerProps.put(JsonDeserializer.TRUSTED_PACKAGES, "demo.inventory.api.message");
+    Consumer<String, Object> consumer = new DefaultKafkaConsumerFactory<String, Object>(
+        consumerProps, new StringDeserializer(), new JsonDeserializer<>()).createConsumer();
+    embeddedKafka.consumeFromAnEmbeddedTopic(consumer, inventoryTopicName);
+
+    try {
+      kafkaOperations.send(ordersTopicName, new OrderCompletedNotice(itemId, 2));
+      kafkaOperations.flush();
+
+      ConsumerRecord<String, Object> record = KafkaTestUtils.getSingleRecord(consumer, inventoryTopicName, 30000);
+
+      assertEquals(String.valueOf(itemId), record.key(), "notice not keyed by item id");
+      if( !(record.value() instanceof InventoryUpdatedNotice) )
+        fail("Expected InventoryUpdatedNotice, received: " + record.value());
+      assertEquals(initialStockUnits - 2, ((InventoryUpdatedNotice) record.value()).getCurrentStockUnits(),
+          "wrong stock level in notice");
+    }
+    finally {
+      consumer.close();
+    }
+  }
+
+}
@@ -0,0 +1,146 @@
+package demo.inventory.api.kafka;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.support.AbstractApplicationContext;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.context.ActiveProfiles;
+
+import demo.inventory.api.message.OrderCompletedNotice;
+import demo.inventory.api.messaging.InvalidInventoryItemEvent;
+import demo.inventory.api.messaging.InventoryUpdatedEvent;
+import demo.inventory.api.messaging.OrderBatchListener;
+import demo.inventory.persistence.InventoryRepo;
+import demo.inventory.persistence.ItemVersion;
+import demo.inventory.service.IInventoryService;
+
+@ActiveProfiles(profiles = "test")
+@SpringBootTest(webEnvironment = WebEnvironment.NONE, properties = "events.api.orders.batch.enabled=true")
+@EmbeddedKafka(topics={"${events.api.orders.topic}","${events.api.inventory.topic}"}, partitions=1)
+public class OrderBatchListenerTest {
+  private static final Logger log = LoggerFactory.getLogger(OrderBatchListenerTest.class);
+
+  private static final long validItemId = 4;
+  private static final long invalidItemId = 1234;
+  private static final long taggedItemId = 10;
+
+  @Autowired
+  private KafkaOperations<String, OrderCompletedNotice> kafkaOperations;
+
+  @Autowired
+  private IInventoryService inventoryService;
+
+  @Autowired
+  private OrderBatchListener listener;
+
+  @Autowired
+  private InventoryRepo itemsRepo;
+
+  @Value(value = "${events.api.orders.topic}")
+  private String ordersTopicName;
+
+  @Autowired
+  AbstractApplicationContext context;
+
+  static private Boolean isSubscribed = false;
+  static private BlockingQueue<Long> updatedStockUnits = new LinkedBlockingQueue<>();
+  static private BlockingQueue<Long> invalidItemIds = new LinkedBlockingQueue<>();
+
+  /*
+   * These listeners will be notified when the KafkaListener under test posts a ApplicationEvent.
+   */
+  @BeforeEach
+  public void setupApplicationEventListeners() {
+
+    synchronized (isSubscribed) {
+
+      if( isSubscribed )
+        return;
+
+      context.addApplicationListener(new ApplicationListener<InventoryUpdatedEvent>() {
+        @Override
+        public void onApplicationEvent(InventoryUpdatedEvent event) {
+          log.info("Received InventoryUpdated ApplicationEvent");
+          if( event.getItemId() == validItemId )
+            updatedStockUnits.add(event.getCurrentStockUnits());
+        }});
+
+      context.addApplicationListener(new ApplicationListener<InvalidInventoryItemEvent>() {
+        @Override
+        public void onApplicationEvent(InvalidInventoryItemEvent event) {
+          log.info("Received InvalidInventoryItem ApplicationEvent");
+          invalidItemIds.add(event.getItemId());
+        }});
+
+      isSubscribed = true;
+    }
+  }
+
+  // Testcase: several orders for one item, and one order for an item not in inventory
+  @Test
+  public void whenOrdersCompletedSent_thenStockDecrementedByTotal() throws InterruptedException {
+
+    assertNotNull(listener, "Missing OrderBatchListener bean");
+
+    long initialStockUnits = inventoryService.getInventoryItem(validItemId).get().getStock();
+
+    for( int count : new int[] { 1, 2, 3 } )
+      kafkaOperations.send(ordersTopicName, new OrderCompletedNotice(validItemId, count));
+    kafkaOperations.send(ordersTopicName, new OrderCompletedNotice(invalidItemId, 10));
+    kafkaOperations.flush();
+
+    // The orders may arrive in one or several batches; wait for the final stock level
+    long expectedStockUnits = initialStockUnits - 6;
+    Long stockUnits;
+    do {
+      stockUnits = updatedStockUnits.poll(30, TimeUnit.SECONDS);
+      if( stockUnits == null )
+        fail("Timed out waiting on InventoryUpdated ApplicationEvent");
+    }
+    while( stockUnits != expectedStockUnits );
+
+    assertEquals(expectedStockUnits, inventoryService.getInventoryItem(validItemId).get().getStock(),
+        "wrong stock level after batch update");
+
+    Long itemId = invalidItemIds.poll(30, TimeUnit.SECONDS);
+    assertTrue(itemId != null && itemId == invalidItemId, "missing InvalidInventoryItem ApplicationEvent");
+  }
+
+  // Testcase: the tag of a cached item follows the version incremented by an order
+  @Test
+  public void whenOrderCompletedSent_thenCachedItemTagHasNewVersion() throws InterruptedException {
+
+    String initialTag = inventoryService.getInventoryItemTag(taggedItemId).get();  // caches the item
+
+    kafkaOperations.send(ordersTopicName, new OrderCompletedNotice(taggedItemId, 1));
+    kafkaOperations.flush();
+
+    long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+    while( inventoryService.getInventoryItemTag(taggedItemId).get().equals(initialTag) ) {
+      if( System.currentTimeMillis() > deadline )
+        fail("Timed out waiting on a changed item tag");
+      TimeUnit.MILLISECONDS.sleep(100);
+    }
+
+    ItemVersion version = itemsRepo.findVersionById(taggedItemId).get();
+    assertEquals(version.getVersion() + "." + version.getStock(), inventoryService.getInventoryItemTag(taggedItemId).get(),
+        "item tag behind the stored version");
+  }
+}
@@ -28,6 +28,8 @@ import org.springframework.test.context.ActiveProfiles;
 import demo.inventory.api.message.OrderCompletedNotice;
 import demo.inventory.api.messaging.InvalidInventoryItemEvent;
 import demo.inventory.api.messaging.InventoryUpdatedEvent;
+import demo.inventory.service.OrderMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
 
 @ActiveProfiles(profiles = "test")
 @SpringBootTest(webEnvironment = WebEnvironment.NONE, properties = "opentracing.spring.web.enabled=false")
@@ -52,6 +54,9 @@ public class OrderCompletionListenerTest {
   @Value(value = "${events.api.inventory.topic}")
   private String inventoryTopicName;
 
+  @Autowired
+  private MeterRegistry meterRegistry;
+
   @Autowired
   AbstractApplicationContext context;
   
@@ -136,6 +141,18 @@ public class OrderCompletionListenerTest {
     return;
   }
 
+
+  // Testcase: the orders above passed through each stage ahead of the listener's events
+  @Test
+  @Order(4)
+  public void whenOrdersHandled_thenStagesTimed() {
+
+    for (String stage : new String[] { "deserialize", "lookup", "update" }) {
+      long count = meterRegistry.get(OrderMetrics.STAGE_TIMER).tag("stage", stage).timer().count();
+      assertTrue(count >= 2, "Stage " + stage + " timed " + count + " times");
+    }
+  }
+
   
   private void onSendSuccess(SendResult<String, OrderCompletedNotice> result) {
     
@@ -0,0 +1,163 @@
+package demo.inventory.api.kafka;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.support.AbstractApplicationContext;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+
+import demo.inventory.api.message.OrderCompletedNotice;
+import demo.inventory.api.messaging.InventoryUpdatedEvent;
+import demo.inventory.service.IInventoryService;
+import demo.inventory.service.OrderMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/*
+ * Verify that an order notification delivered more than once changes inventory once.
+ * Redelivery is forced by publishing the same order (same order id) a second time, as a
+ * producer retry or an upstream replay would, and by failing the listener once the stock
+ * change is committed but before the record is acknowledged, so that the container's
+ * error handler seeks back and the same record is consumed again.
+ */
+@ActiveProfiles(profiles = "test")
+@SpringBootTest(webEnvironment = WebEnvironment.NONE, properties = "events.api.orders.listeners=2")
+@EmbeddedKafka(topics={"${events.api.orders.topic}","${events.api.inventory.topic}"}, partitions=2)
+public class OrderRedeliveryTest {
+  private static final Logger log = LoggerFactory.getLogger(OrderRedeliveryTest.class);
+
+  private static final long itemId = 5;
+
+  @Autowired
+  private KafkaOperations<String, OrderCompletedNotice> kafkaOperations;
+
+  @SpyBean
+  private IInventoryService inventoryService;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Value(value = "${events.api.orders.topic}")
+  private String ordersTopicName;
+
+  @Autowired
+  AbstractApplicationContext context;
+
+  static private Boolean isSubscribed = false;
+  static private BlockingQueue<Long> updatedStockUnits = new LinkedBlockingQueue<>();
+
+  @BeforeEach
+  public void setupApplicationEventListeners() {
+
+    synchronized (isSubscribed) {
+
+      if( isSubscribed )
+        return;
+
+      context.addApplicationListener(new ApplicationListener<InventoryUpdatedEvent>() {
+        @Override
+        public void onApplicationEvent(InventoryUpdatedEvent event) {
+          log.info("Received InventoryUpdated ApplicationEvent");
+          if( event.getItemId() == itemId )
+            updatedStockUnits.add(event.getCurrentStockUnits());
+        }});
+
+      isSubscribed = true;
+    }
+  }
+
+  @Test
+  public void whenOrderRedelivered_thenStockDecrementedOnce() throws InterruptedException {
+
+    long initialStockUnits = inventoryService.getInventoryItem(itemId).get().getStock();
+
+    // the same order, delivered three times (possibly to both listeners), then a second order
+    String orderId = UUID.randomUUID().toString();
+    for( int i = 0; i < 3; i++ ) {
+      kafkaOperations.send(ordersTopicName, new OrderCompletedNotice(orderId, itemId, 5));
+      kafkaOperations.flush();
+    }
+    kafkaOperations.send(ordersTopicName, new OrderCompletedNotice(UUID.randomUUID().toString(), itemId, 1));
+    kafkaOperations.flush();
+
+    long expectedStockUnits = initialStockUnits - 5 - 1;
+
+    int updateCount = 0;
+    Long stockUnits;
+    do {
+      stockUnits = updatedStockUnits.poll(30, TimeUnit.SECONDS);
+      if( stockUnits == null )
+        fail("Timed out waiting on InventoryUpdated ApplicationEvent");
+      updateCount++;
+    }
+    while( stockUnits != expectedStockUnits );
+
+    // allow any late duplicate to be (wrongly) applied before checking
+    assertEquals(null, updatedStockUnits.poll(2, TimeUnit.SECONDS), "unexpected inventory update");
+
+    assertEquals(2, updateCount, "wrong count of inventory updates");
+    assertEquals(expectedStockUnits, inventoryService.getInventoryItem(itemId).get().getStock(),
+        "wrong stock level after redelivery");
+  }
+
+  @Test
+  public void whenRecordConsumedAgainBeforeAck_thenStockDecrementedOnce() throws InterruptedException {
+
+    long initialStockUnits = inventoryService.getInventoryItem(itemId).get().getStock();
+    double duplicates = handledCount(OrderMetrics.DUPLICATE);
+
+    // the listener fails once, after applying the order and before acknowledging it
+    AtomicBoolean failNextAck = new AtomicBoolean(true);
+    doAnswer(invocation -> {
+        if( failNextAck.compareAndSet(true, false) )
+          throw new IllegalStateException("Simulated failure before acknowledgement");
+        return invocation.callRealMethod();
+      }).when((IInventoryService) AopTestUtils.getTargetObject(inventoryService)).whenDurable(any());
+
+    // without an order id, the record is recognized by its topic, partition and offset; the 
+    // second order, on the same partition, is only consumed once the first is consumed again
+    kafkaOperations.send(ordersTopicName, 0, null, new OrderCompletedNotice(itemId, 3));
+    kafkaOperations.send(ordersTopicName, 0, null, new OrderCompletedNotice(itemId, 1));
+    kafkaOperations.flush();
+
+    long expectedStockUnits = initialStockUnits - 3 - 1;
+
+    // the first order publishes no InventoryUpdated event: its first delivery fails, and its
+    // second is a duplicate
+    Long stockUnits = updatedStockUnits.poll(30, TimeUnit.SECONDS);
+    if( stockUnits == null )
+      fail("Timed out waiting on InventoryUpdated ApplicationEvent");
+    assertEquals(expectedStockUnits, stockUnits.longValue(), "wrong stock level after redelivery");
+
+    assertEquals(null, updatedStockUnits.poll(2, TimeUnit.SECONDS), "unexpected inventory update");
+
+    assertEquals(false, failNextAck.get(), "listener not failed before acknowledgement");
+    assertEquals(duplicates + 1, handledCount(OrderMetrics.DUPLICATE), "record not consumed again");
+    assertEquals(expectedStockUnits, inventoryService.getInventoryItem(itemId).get().getStock(),
+        "wrong stock level after redelivery");
+  }
+
+  private double handledCount(String outcome) {
+    return meterRegistry.get("inventory.orders.handled").tag("outcome", outcome).timer().count();
+  }
+}
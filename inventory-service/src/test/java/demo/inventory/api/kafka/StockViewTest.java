@@ -0,0 +1,146 @@
+package demo.inventory.api.kafka;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.OptionalLong;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.MethodOrderer.OrderAnnotation;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.context.ActiveProfiles;
+
+import demo.inventory.api.message.InventoryUpdatedNotice;
+import demo.inventory.api.message.OrderCompletedNotice;
+import demo.inventory.api.messaging.StockSnapshotTopic;
+import demo.inventory.api.model.InventoryItemModel;
+import demo.inventory.service.IInventoryService;
+import demo.inventory.service.StockView;
+
+/*
+ * Verify that stock changes are published to the stock snapshot topic, that the service's
+ * stock view follows them, and that a new view is rebuilt from the topic.
+ */
+@ActiveProfiles(profiles = "test")
+@SpringBootTest(webEnvironment = WebEnvironment.NONE, properties = "events.api.stock.enabled=true")
+@EmbeddedKafka(topics={"${events.api.orders.topic}","${events.api.inventory.topic}","${events.api.stock.topic}"}, partitions=1)
+@TestMethodOrder(OrderAnnotation.class)
+public class StockViewTest {
+
+  private static final long orderedItemId = 4;
+
+  private static long updatedItemId;
+
+  private static long deletedItemId;
+
+  @Autowired
+  private KafkaOperations<String, Object> kafkaOperations;
+
+  @Autowired
+  private KafkaProperties kafkaProperties;
+
+  @Autowired
+  private IInventoryService inventoryService;
+
+  @Autowired
+  private StockView stockView;
+
+  @Value(value = "${events.api.orders.topic}")
+  private String ordersTopicName;
+
+  @Value(value = "${events.api.stock.topic}")
+  private String stockTopicName;
+
+  @Test
+  @Order(1)
+  public void whenStarted_thenViewRebuilt() {
+    awaitTrue(stockView::isReady, "stock view not rebuilt");
+  }
+
+  @Test
+  @Order(2)
+  public void whenOrderCompletedSent_thenViewFollows() {
+    long initialStockUnits = inventoryService.getInventoryItem(orderedItemId).get().getStock();
+
+    kafkaOperations.send(ordersTopicName, new OrderCompletedNotice(orderedItemId, 2));
+
+    awaitTrue(() -> stockView.currentStock(orderedItemId).equals(OptionalLong.of(initialStockUnits - 2)),
+        "order not in stock view");
+  }
+
+  @Test
+  @Order(3)
+  public void whenItemUpdatedAndDeleted_thenViewFollows() {
+    InventoryItemModel item = inventoryService.createInventoryItem(testcaseItem());
+    updatedItemId = item.getId();
+    awaitTrue(() -> stockView.currentStock(updatedItemId).equals(OptionalLong.of(10)), "new item not in stock view");
+
+    item.setStock(42);
+    inventoryService.updateInventoryItem(item);
+
+    awaitTrue(() -> stockView.currentStock(updatedItemId).equals(OptionalLong.of(42)), "update not in stock view");
+
+    deletedItemId = inventoryService.createInventoryItem(testcaseItem()).getId();
+    awaitTrue(() -> stockView.currentStock(deletedItemId).isPresent(), "new item not in stock view");
+
+    inventoryService.deleteInventoryItem(deletedItemId);
+
+    awaitTrue(() -> !stockView.currentStock(deletedItemId).isPresent(), "deletion not in stock view");
+  }
+
+  @Test
+  @Order(4)
+  public void whenNewViewStarted_thenRebuiltFromTopic() {
+    kafkaOperations.send(stockTopicName, "1001", new InventoryUpdatedNotice(1001, 5));
+    kafkaOperations.send(stockTopicName, "1002", new InventoryUpdatedNotice(1002, 6));
+    kafkaOperations.send(stockTopicName, "1001", new InventoryUpdatedNotice(1001, 4));
+    kafkaOperations.send(stockTopicName, "1002", null);
+    kafkaOperations.flush();
+
+    StockView rebuiltView = new StockView(true);
+    StockSnapshotTopic snapshotTopic = new StockSnapshotTopic(stockTopicName, kafkaOperations, kafkaProperties, rebuiltView);
+    snapshotTopic.start();
+    try {
+      awaitTrue(rebuiltView::isReady, "new stock view not rebuilt");
+
+      assertEquals(OptionalLong.of(4), rebuiltView.currentStock(1001), "latest snapshot not in view");
+      assertFalse(rebuiltView.currentStock(1002).isPresent(), "tombstoned item in view");
+      assertEquals(OptionalLong.of(42), rebuiltView.currentStock(updatedItemId), "earlier update not in view");
+      assertFalse(rebuiltView.currentStock(deletedItemId).isPresent(), "deleted item in view");
+    }
+    finally {
+      snapshotTopic.stop();
+    }
+  }
+
+  private static InventoryItemModel testcaseItem() {
+    return new InventoryItemModel("Stock View Tabulator", "Tabulator for the stock view test",
+        new BigDecimal("12.50"), "Tabulator", "tabulator.jpg", 10);
+  }
+
+  private static void awaitTrue(BooleanSupplier condition, String message) {
+    long deadline = System.currentTimeMillis() + 30000;
+    while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+      try {
+        Thread.sleep(100);
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+    }
+    assertTrue(condition.getAsBoolean(), message);
+  }
+
+}
@@ -0,0 +1,36 @@
+package demo.inventory.api.messaging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+public class LogSamplerTest {
+
+    @Test
+    public void whenRateIsFraction_thenOneInIntervalSampled() {
+
+        LogSampler sampler = new LogSampler(0.01);
+
+        int sampled = 0;
+        for (int i = 0; i < 1000; i++)
+            if (sampler.sample())
+                sampled++;
+
+        assertEquals(100, sampler.getInterval(), "wrong interval");
+        assertEquals(10, sampled, "wrong count of events sampled");
+    }
+
+    @Test
+    public void whenRateIsZeroOrOne_thenNoneOrAllSampled() {
+
+        LogSampler none = new LogSampler(0);
+        LogSampler all = new LogSampler(1);
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(false, none.sample(), "event sampled at rate 0");
+            assertEquals(true, all.sample(), "event not sampled at rate 1");
+        }
+        assertThrows(IllegalArgumentException.class, () -> new LogSampler(2), "rate over 1 accepted");
+    }
+}
@@ -0,0 +1,47 @@
+package demo.inventory.api.messaging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+
+public class StripedExecutorTest {
+
+    @Test
+    public void whenTasksSubmittedForOneKey_thenRunInOrderOnOneThread() {
+
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        List<String> threadNames = Collections.synchronizedList(new ArrayList<>());
+
+        try (StripedExecutor executor = new StripedExecutor(4, "test-stripe-")) {
+            List<CompletableFuture<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                final int task = i;
+                results.add(executor.submit(13401L, () -> {
+                    order.add(task);
+                    threadNames.add(Thread.currentThread().getName());
+                    return task;
+                }));
+            }
+            results.forEach(CompletableFuture::join);
+        }
+
+        for (int i = 0; i < 100; i++)
+            assertEquals(i, order.get(i).intValue(), "tasks for one key ran out of order");
+        assertEquals(1, threadNames.stream().distinct().count(), "tasks for one key ran on several threads");
+    }
+
+    @Test
+    public void whenNoStripes_thenTasksRunInline() {
+
+        try (StripedExecutor executor = new StripedExecutor(0, "test-stripe-")) {
+            String threadName = executor.submit(1L, () -> Thread.currentThread().getName()).join();
+            assertEquals(Thread.currentThread().getName(), threadName, "task did not run inline");
+        }
+    }
+
+}
@@ -0,0 +1,108 @@
+package demo.inventory.api.rest;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.kafka.KafkaAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/*
+ * Verify that the export streams: heap retained while exporting a catalog much larger than
+ * a fixed ceiling stays below that ceiling. The database is an H2 database of its own, with
+ * lazy query execution, so that H2 itself does not hold the result in memory.
+ */
+@ActiveProfiles(profiles = "test")
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:exportdb;LAZY_QUERY_EXECUTION=1")
+@WebAppConfiguration
+@EnableAutoConfiguration(exclude={KafkaAutoConfiguration.class})
+public class ExportHeapTest {
+
+  private static final int itemCount = 200_000;
+
+  private static final String description = new String(new char[200]).replace('\0', 'd');
+
+  // heap retained while exporting, well below the size of the export
+  private static final long heapCeiling = 32L * 1024 * 1024;
+
+  // measure retained heap after each of these many bytes written
+  private static final long checkInterval = 8L * 1024 * 1024;
+
+  @Autowired
+  InventoryController controller;
+
+  @Autowired
+  JdbcTemplate jdbcTemplate;
+
+  @Test
+  public void whenExportLargeCatalog_thenHeapBounded() throws Exception {
+
+    for( int written = 0; written < itemCount; written += 1000 )
+      jdbcTemplate.batchUpdate("insert into items (name, description, price, img_alt, img, stock, version) "
+          + "values (?, ?, ?, null, 'export.jpg', 100, 0)", new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+              ps.setString(1, "Export Item " + i);
+              ps.setString(2, description);
+              ps.setBigDecimal(3, BigDecimal.TEN);
+            }
+            @Override
+            public int getBatchSize() {
+              return 1000;
+            }
+          });
+
+    StreamingResponseBody body = controller.exportInventory(null).getBody();
+
+    long baseline = retainedHeap();
+    HeapCheckingOutputStream output = new HeapCheckingOutputStream();
+    body.writeTo(output);
+
+    assertTrue(output.bytes > 3 * heapCeiling, "export too small to tell: " + output.bytes + " bytes");
+    assertTrue(output.maxRetained - baseline < heapCeiling,
+        "heap grew by " + (output.maxRetained - baseline) + " bytes exporting " + output.bytes + " bytes");
+  }
+
+  private static long retainedHeap() {
+    System.gc();
+    Runtime runtime = Runtime.getRuntime();
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  /*
+   * Discards what is written, measuring retained heap every checkInterval bytes
+   */
+  private static class HeapCheckingOutputStream extends OutputStream {
+
+    long bytes;
+
+    long maxRetained;
+
+    @Override
+    public void write(int b) {
+      count(1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      count(len);
+    }
+
+    private void count(int len) {
+      if( (bytes + len) / checkInterval > bytes / checkInterval )
+        maxRetained = Math.max(maxRetained, retainedHeap());
+      bytes += len;
+    }
+  }
+}
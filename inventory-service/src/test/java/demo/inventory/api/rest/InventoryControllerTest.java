@@ -3,12 +3,18 @@ package demo.inventory.api.rest;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
 
 import javax.validation.constraints.Positive;
 
@@ -29,7 +35,9 @@ import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
@@ -39,6 +47,8 @@ import com.fasterxml.jackson.databind.node.IntNode;
 
 import demo.inventory.api.model.ApiError;
 import demo.inventory.api.model.InventoryItemModel;
+import demo.inventory.api.model.ItemsPage;
+import demo.inventory.service.IInventoryService;
 
 // TODO: add test coverage for error cases
 
@@ -58,6 +68,9 @@ public class InventoryControllerTest {
   
   @Autowired
   InventoryController controller;
+
+  @Autowired
+  IInventoryService inventoryService;
   
   @Test
   public final void whenContextIsBootstrapped_thenOkReady() {
@@ -85,6 +98,69 @@ public class InventoryControllerTest {
   }
 
 
+  @Test
+  public void whenGetItemWithCurrentETag_thenNotModified() throws Exception {
+
+    String etag = mockMvc.perform(get(resourcePath+"/2"))
+        .andExpect(status().isOk()).andExpect(header().exists(HttpHeaders.ETAG))
+        .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+    MockHttpServletResponse response = mockMvc.perform(get(resourcePath+"/2").header(HttpHeaders.IF_NONE_MATCH, etag))
+        .andExpect(status().isNotModified()).andReturn().getResponse();
+
+    assertTrue(response.getContentAsString().isEmpty(), "304 response has a body");
+  }
+
+
+  @Test
+  public void whenGetPageWithCurrentETag_thenNotModified() throws Exception {
+
+    String etag = mockMvc.perform(get(resourcePath).param("page", "0").param("size", "3"))
+        .andExpect(status().isOk()).andExpect(header().exists(HttpHeaders.ETAG))
+        .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+    mockMvc.perform(get(resourcePath).param("page", "0").param("size", "3").header(HttpHeaders.IF_NONE_MATCH, etag))
+        .andExpect(status().isNotModified());
+
+    // the same items as summaries, or in a compact envelope, are another representation
+    String summaryEtag = mockMvc.perform(get(resourcePath).param("page", "0").param("size", "3").param("fields", "id,name"))
+        .andExpect(status().isOk()).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    String compactEtag = mockMvc.perform(get(resourcePath).param("page", "0").param("size", "3").param("envelope", "compact"))
+        .andExpect(status().isOk()).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    assertTrue(!etag.equals(summaryEtag) && !etag.equals(compactEtag) && !summaryEtag.equals(compactEtag),
+        "representations share an ETag");
+
+    mockMvc.perform(get(resourcePath).param("page", "0").param("size", "3").param("fields", "id,name")
+          .header(HttpHeaders.IF_NONE_MATCH, etag))
+        .andExpect(status().isOk());
+    mockMvc.perform(get(resourcePath).param("page", "0").param("size", "3").param("fields", "id,name")
+          .header(HttpHeaders.IF_NONE_MATCH, summaryEtag))
+        .andExpect(status().isNotModified());
+  }
+
+
+  @Test
+  public void whenUpdateItemWithStaleETag_thenPreconditionFailed() throws Exception {
+
+    long itemId = inventoryService.createInventoryItem(getTestcaseItem()).getId();
+    String body = new ObjectMapper().writeValueAsString(getTestcaseItem());
+
+    String etag = mockMvc.perform(get(resourcePath+"/"+itemId))
+        .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+    // the first update, at the current version, succeeds and changes the ETag
+    String updatedEtag = mockMvc.perform(put(resourcePath+"/"+itemId).header(HttpHeaders.IF_MATCH, etag)
+          .content(body).contentType(MediaType.APPLICATION_JSON_VALUE))
+        .andExpect(status().isOk()).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    assertTrue(!etag.equals(updatedEtag), "ETag not changed by update");
+
+    // a second update based on the same read does not clobber the first
+    mockMvc.perform(put(resourcePath+"/"+itemId).header(HttpHeaders.IF_MATCH, etag)
+          .content(body).contentType(MediaType.APPLICATION_JSON_VALUE))
+        .andExpect(status().isPreconditionFailed());
+  }
+
+
   @Test
   public void whenGetItemsPage_thenOkAndHasLink() throws Exception {
 
@@ -123,6 +199,120 @@ public class InventoryControllerTest {
     assertNotNull(node, "missing response node: " + label);
   }
 
+
+
+  @Test
+  public void whenGetItemsPageWithSummaryFields_thenSummariesWithoutDescription() throws Exception {
+
+    MockHttpServletResponse response = mockMvc
+        .perform(get(resourcePath+"?page=0&size=3&fields=id,name,price,stock").accept(MediaType.APPLICATION_JSON_VALUE))
+        .andExpect(status().isOk()).andReturn().getResponse();
+
+    JsonNode content = new ObjectMapper().readTree(response.getContentAsString()).get("content");
+    assertEquals(3, content.size(), "wrong count of items for page size");
+    for( JsonNode item : content ) {
+      assertNotNull(item.get("name"), "missing summary field: name");
+      assertTrue(item.get("description") == null, "summary has a description");
+    }
+
+    // the next page is requested with the same fields
+    assertTrue(response.getHeader(HttpHeaders.LINK).contains("fields="), "next link without fields");
+  }
+
+
+  @Test
+  public void whenGetItemWithUnknownField_thenBadRequest() throws Exception {
+
+    mockMvc.perform(get(resourcePath+"/2?fields=id,colour"))
+        .andExpect(status().isBadRequest());
+  }
+
+
+  @Test
+  public void whenDeleteMissingItem_thenNotFound() throws Exception {
+
+    mockMvc.perform(delete(resourcePath+"/999999"))
+        .andExpect(status().isNotFound());
+  }
+
+
+  @Test
+  public void whenSearchItemsByNameAndPrice_thenMatchingItemsOnly() throws Exception {
+
+    InventoryItemModel item = getTestcaseItem();
+    item.setName("Searchable Sorter");
+    item.setPrice(new BigDecimal("12.50"));
+    long itemId = inventoryService.createInventoryItem(item).getId();
+
+    JsonNode content = new ObjectMapper().readTree(mockMvc
+        .perform(get(resourcePath+"/search?name=ABLE sort&maxPrice=20"))
+        .andExpect(status().isOk()).andReturn().getResponse().getContentAsString()).get("content");
+    assertEquals(1, content.size(), "wrong count of matching items");
+    assertEquals(itemId, content.get(0).get("id").asLong(), "wrong matching item");
+
+    mockMvc.perform(get(resourcePath+"/search?name=able sort&maxPrice=10"))
+        .andExpect(status().isOk()).andExpect(result -> assertTrue(
+            result.getResponse().getContentAsString().contains("\"content\":[]"), "item above maxPrice matched"));
+
+    inventoryService.deleteInventoryItem(itemId);
+    mockMvc.perform(get(resourcePath+"/search?name=able sort"))
+        .andExpect(status().isOk()).andExpect(result -> assertTrue(
+            result.getResponse().getContentAsString().contains("\"content\":[]"), "deleted item matched"));
+
+    mockMvc.perform(get(resourcePath+"/search"))
+        .andExpect(status().isBadRequest());
+  }
+
+
+  @Test
+  public void whenGetItemsAfterId_thenOkAndHasKeysetLink() throws Exception {
+
+    MockHttpServletResponse response = mockMvc
+        .perform(get(resourcePath+"?after=1&size=2&total=true").accept(MediaType.APPLICATION_JSON_VALUE))
+        .andExpect(status().isOk()).andReturn().getResponse();
+
+    ObjectMapper mapper = new ObjectMapper();
+    JsonNode root = mapper.readTree(response.getContentAsString());
+
+    // verify the page starts after the indicated item
+    JsonNode node = root.get("content");
+    assertTrue(node instanceof ArrayNode, "ArrayNode expected for: content");
+    assertEquals(2, ((ArrayNode) node).size(), "Wrong items page response size");
+    assertEquals(2, node.get(0).get("id").asLong(), "Wrong first item for page");
+    long lastItemId = node.get(1).get("id").asLong();
+
+    // verify next link seeks from the last item of this page
+    String linkValue = response.getHeader(HttpHeaders.LINK);
+    assertNotNull(linkValue, "missing Link response header");
+    Link nextLink = Link.valueOf(linkValue);
+    assertTrue(IanaLinkRelations.NEXT.isSameAs(nextLink.getRel()), "wrong link relation: " + nextLink.getRel());
+    assertTrue(nextLink.getHref().contains("after="+lastItemId), "wrong next link: " + nextLink.getHref());
+
+    assertNotNull(response.getHeader(InventoryController.TOTAL_COUNT_HEADER), "missing total count header");
+  }
+  
+  @Test
+  public void whenGetItemsAfterIdCompact_thenItemsCursorAndNextOnly() throws Exception {
+
+    MockHttpServletResponse response = mockMvc
+        .perform(get(resourcePath+"?after=1&size=2&envelope=compact").accept(MediaType.APPLICATION_JSON_VALUE))
+        .andExpect(status().isOk()).andReturn().getResponse();
+
+    ObjectMapper mapper = new ObjectMapper();
+    JsonNode root = mapper.readTree(response.getContentAsString());
+    assertTrue(root.get("pageable") == null && root.get("total") == null, "page metadata in compact envelope");
+
+    ItemsPage<InventoryItemModel> page = mapper.readValue(response.getContentAsString(), 
+        new TypeReference<ItemsPage<InventoryItemModel>>() {});
+    assertEquals(2, page.getItems().size(), "Wrong items page response size");
+    assertEquals(2, page.getItems().get(0).getId(), "Wrong first item for page");
+
+    // verify the cursor and next link seek from the last item of this page
+    long lastItemId = page.getItems().get(1).getId();
+    assertEquals(lastItemId, page.getCursor().longValue(), "wrong cursor");
+    assertTrue(page.getNext().contains("after="+lastItemId) && page.getNext().contains("envelope=compact"), 
+        "wrong next link: " + page.getNext());
+  }
   
   @Test
   public void whenGetAllItems_thenOkResponseIsPage1() throws Exception {
@@ -160,6 +350,54 @@ public class InventoryControllerTest {
     assertEquals(expectedPageSize, ((IntNode) node).asInt(), "Wrong items page response size");
   }
 
+  @Test
+  public void whenExportItems_thenOkOneItemPerLine() throws Exception {
+
+    long expectedItemCount = inventoryService.countInventory();
+
+    MvcResult result = mockMvc.perform(get(resourcePath+"/export"))
+        .andExpect(request().asyncStarted()).andReturn();
+
+    MockHttpServletResponse response = mockMvc.perform(asyncDispatch(result))
+        .andExpect(status().isOk()).andReturn().getResponse();
+
+    assertTrue(response.getContentType().startsWith(InventoryController.NDJSON_VALUE), "wrong content type");
+
+    // verify each line is an item, in id order
+    ObjectReader reader = new ObjectMapper().readerFor(InventoryItemModel.class);
+    String[] lines = response.getContentAsString().split("\n");
+    assertEquals(expectedItemCount, lines.length, "wrong count of exported items");
+
+    long previousItemId = 0;
+    for( String line : lines ) {
+      InventoryItemModel item = reader.readValue(line);
+      assertTrue(item.getId() > previousItemId, "exported items not in id order");
+      previousItemId = item.getId();
+    }
+  }
+
+  @Test
+  public void whenExportItemsWithGzipRefused_thenNotCompressed() throws Exception {
+
+    MvcResult result = mockMvc.perform(get(resourcePath+"/export").header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, identity"))
+        .andExpect(request().asyncStarted()).andReturn();
+
+    MockHttpServletResponse response = mockMvc.perform(asyncDispatch(result))
+        .andExpect(status().isOk()).andReturn().getResponse();
+
+    assertEquals(null, response.getHeader(HttpHeaders.CONTENT_ENCODING), "refused encoding used");
+    assertTrue(response.getHeaders(HttpHeaders.VARY).contains(HttpHeaders.ACCEPT_ENCODING), "missing Vary header");
+
+    result = mockMvc.perform(get(resourcePath+"/export").header(HttpHeaders.ACCEPT_ENCODING, "br, gzip;q=0.5"))
+        .andExpect(request().asyncStarted()).andReturn();
+
+    response = mockMvc.perform(asyncDispatch(result))
+        .andExpect(status().isOk()).andReturn().getResponse();
+
+    assertEquals("gzip", response.getHeader(HttpHeaders.CONTENT_ENCODING), "accepted encoding not used");
+    assertTrue(response.getHeaders(HttpHeaders.VARY).contains(HttpHeaders.ACCEPT_ENCODING), "missing Vary header");
+  }
+
   @Test
   public void whenCreateItem_thenCreatedAndHasLocation() throws Exception {
 
@@ -205,6 +443,61 @@ public class InventoryControllerTest {
         "wrong api error message");
   }
 
+  @Test
+  public void whenCreateItemsBatch_thenCreatedWithIdsInOrder() throws Exception {
+
+    ObjectMapper mapper = new ObjectMapper();
+    List<InventoryItemModel> testItems = Arrays.asList(getTestcaseItem(), getTestcaseItem(), getTestcaseItem());
+    for( int i = 0; i < testItems.size(); i++ )
+      testItems.get(i).setName("Thinkpad "+i);
+
+    String body = mapper.writeValueAsString(testItems);
+
+    MockHttpServletResponse response = mockMvc
+        .perform(post(resourcePath+"/batch").content(body)
+            .contentType(MediaType.APPLICATION_JSON_VALUE).accept(MediaType.APPLICATION_JSON_VALUE))
+        .andExpect(status().isCreated())
+        .andReturn().getResponse();
+
+    List<Long> ids = mapper.readValue(response.getContentAsString(), new TypeReference<List<Long>>() {});
+    assertEquals(testItems.size(), ids.size(), "wrong count of new item ids");
+
+    // verify ids are returned in request order
+    for( int i = 0; i < ids.size(); i++ )
+      assertEquals("Thinkpad "+i, inventoryService.getInventoryItem(ids.get(i)).get().getName(), "wrong item for id");
+
+    // delete test data
+    mockMvc
+        .perform(delete(resourcePath+"/batch").param("ids", ids.stream().map(String::valueOf).toArray(String[]::new)))
+        .andExpect(status().isOk());
+
+    for( long id : ids )
+      assertTrue(!inventoryService.getInventoryItem(id).isPresent(), "item not deleted: "+id);
+  }
+
+  @Test
+  public void whenCreateItemsBatchWithInvalidItem_thenBadRequestAndItemError() throws Exception {
+
+    ObjectMapper mapper = new ObjectMapper();
+    List<InventoryItemModel> testItems = Arrays.asList(getTestcaseItem(), getTestcaseItem());
+
+    // violation of: @Positive InventoryItem.price, for the second item only
+    testItems.get(1).setPrice(new BigDecimal(0));
+
+    String body = mapper.writeValueAsString(testItems);
+
+    MockHttpServletResponse response = mockMvc
+        .perform(post(resourcePath+"/batch").content(body)
+            .contentType(MediaType.APPLICATION_JSON_VALUE).accept(MediaType.APPLICATION_JSON_VALUE))
+        .andExpect(status().isBadRequest())
+        .andReturn().getResponse();
+
+    List<ApiError> apiErrors = mapper.readValue(response.getContentAsString(), new TypeReference<List<ApiError>>() {});
+    assertEquals(1, apiErrors.size(), "wrong count of api errors");
+    assertEquals("\"price\" must be greater than 0", apiErrors.get(0).errorMessage, "wrong api error message");
+    assertEquals("item[1]", apiErrors.get(0).errorDetailMessage, "wrong api error item");
+  }
+
   // create a testcase item sans id
   private InventoryItemModel getTestcaseItem() {
     return new InventoryItemModel(
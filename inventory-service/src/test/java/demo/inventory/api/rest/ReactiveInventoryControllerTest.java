@@ -0,0 +1,113 @@
+package demo.inventory.api.rest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.kafka.KafkaAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import demo.inventory.api.model.InventoryItemModel;
+import demo.inventory.setup.ReactiveConfiguration;
+
+@ActiveProfiles(profiles = {"test", "reactive"})
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = "spring.webflux.base-path=")
+@AutoConfigureWebTestClient
+@EnableAutoConfiguration(exclude={KafkaAutoConfiguration.class})
+public class ReactiveInventoryControllerTest {
+
+  private static final String resourcePath = "/inventory/item";
+
+  @Autowired
+  WebTestClient webClient;
+
+  @Autowired
+  ReactiveInventoryController controller;
+
+  @Test
+  public void whenGetItemsPage_thenOkPageWithNextLink() throws Exception {
+
+    String body = webClient.get().uri(resourcePath+"?page=0&size=2")
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().exists(HttpHeaders.ETAG)
+        .expectHeader().valueMatches(HttpHeaders.LINK, ".*page=1.*rel=\"next\".*")
+        .expectBody(String.class).returnResult().getResponseBody();
+
+    JsonNode page = new ObjectMapper().readTree(body);
+    assertEquals(2, page.get("content").size(), "wrong items page size");
+    assertTrue(page.get("totalElements").asLong() > 2, "wrong total count of items");
+  }
+
+  @Test
+  public void whenGetItemWithCurrentETag_thenNotModified() {
+
+    InventoryItemModel item = webClient.get().uri(resourcePath+"/2")
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody(InventoryItemModel.class).returnResult().getResponseBody();
+    assertNotNull(item, "missing item");
+    assertEquals(2, item.getId(), "wrong item id");
+
+    String etag = webClient.get().uri(resourcePath+"/2")
+        .exchange()
+        .returnResult(String.class).getResponseHeaders().getETag();
+    assertNotNull(etag, "missing ETag");
+
+    webClient.get().uri(resourcePath+"/2").header(HttpHeaders.IF_NONE_MATCH, etag)
+        .exchange()
+        .expectStatus().isNotModified()
+        .expectBody().isEmpty();
+
+    webClient.get().uri(resourcePath+"/999999")
+        .exchange()
+        .expectStatus().isNotFound();
+  }
+
+  @Test
+  public void whenDeleteMissingItem_thenNotFound() {
+
+    webClient.delete().uri(resourcePath+"/999999")
+        .exchange()
+        .expectStatus().isNotFound();
+  }
+
+  @Test
+  public void whenExportItems_thenOkOneItemPerLine() throws Exception {
+
+    List<String> lines = webClient.get().uri(resourcePath+"/export")
+        .accept(ReactiveConfiguration.APPLICATION_NDJSON)
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().contentTypeCompatibleWith(MediaType.parseMediaType(InventoryController.NDJSON_VALUE))
+        .returnResult(String.class).getResponseBody()
+        .collectList().block();
+
+    // verify each line is an item, in id order
+    ObjectReader reader = new ObjectMapper().readerFor(InventoryItemModel.class);
+    assertNotNull(lines, "missing export");
+    assertTrue(!lines.isEmpty(), "no exported items");
+
+    long previousItemId = 0;
+    for( String line : lines ) {
+      InventoryItemModel item = reader.readValue(line);
+      assertTrue(item.getId() > previousItemId, "exported items not in id order");
+      previousItemId = item.getId();
+    }
+  }
+}
@@ -0,0 +1,86 @@
+package demo.inventory.api.rest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.kafka.KafkaAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import demo.inventory.api.model.InventoryItemModel;
+
+/**
+ * The replica is a second in-memory H2 database, holding an item that the primary does
+ * not, so that a read of it succeeds only if routed to the replica.
+ */
+@ActiveProfiles(profiles = "test")
+@SpringBootTest(properties = {
+    "inventory.replica.enabled=true",
+    "inventory.replica.url=" + ReplicaReadsTest.replicaUrl,
+    "inventory.replica.username=sa",
+    "inventory.replica.password=sa" })
+@WebAppConfiguration
+@AutoConfigureMockMvc
+@EnableAutoConfiguration(exclude={KafkaAutoConfiguration.class})
+public class ReplicaReadsTest {
+
+  static final String replicaUrl = "jdbc:h2:mem:replicadb;DB_CLOSE_DELAY=-1";
+
+  private static final String resourcePath = "/inventory/item";
+
+  private static final long replicaItemId = 999001;
+
+  @Autowired
+  MockMvc mockMvc;
+
+  @BeforeAll
+  public static void setUpReplica() {
+    JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(replicaUrl, "sa", "sa"));
+    replica.execute("create table if not exists items ("
+        + "id bigint not null primary key,"
+        + "stock int not null,"
+        + "name varchar(100) not null,"
+        + "description varchar(3072) not null,"
+        + "price decimal(8,2) not null,"
+        + "img_alt varchar(75),"
+        + "img varchar(50) not null,"
+        + "version bigint not null default 0)");
+    replica.update("delete from items where id = ?", replicaItemId);
+    replica.update("insert into items (id, stock, name, description, price, img_alt, img, version) "
+        + "values (?, 7, 'Replica Item', 'Held by the replica only', 1.00, null, 'replica.jpg', 0)", replicaItemId);
+  }
+
+  @Test
+  public void whenGetItem_thenReadFromReplica() throws Exception {
+
+    MockHttpServletResponse response = mockMvc.perform(
+          get(resourcePath+"/"+replicaItemId).accept(MediaType.APPLICATION_JSON_VALUE))
+        .andExpect(status().isOk()).andReturn().getResponse();
+
+    InventoryItemModel item = new ObjectMapper().readerFor(InventoryItemModel.class).readValue(response.getContentAsString());
+    assertEquals("Replica Item", item.getName(), "item not read from the replica");
+    assertEquals("\"0.7\"", response.getHeader(HttpHeaders.ETAG), "tag not read from the replica");
+  }
+
+  @Test
+  public void whenGetItemWithNoCache_thenReadFromPrimary() throws Exception {
+
+    mockMvc.perform(get(resourcePath+"/"+replicaItemId).header(HttpHeaders.CACHE_CONTROL, "no-cache"))
+        .andExpect(status().isNotFound());
+  }
+}
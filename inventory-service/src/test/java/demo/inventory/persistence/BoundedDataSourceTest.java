@@ -0,0 +1,50 @@
+package demo.inventory.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+
+public class BoundedDataSourceTest {
+
+    // Connections that do nothing
+    DataSource target = (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(), new Class<?>[] { DataSource.class },
+            (proxy, method, args) -> method.getName().equals("getConnection")
+                    ? Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, (c, m, a) -> null)
+                    : null);
+
+    @Test
+    public void whenAllConnectionsHeld_thenNextCallerTimesOut() throws Exception {
+
+        BoundedDataSource dataSource = new BoundedDataSource(target, 2, 50);
+
+        Connection first = dataSource.getConnection();
+        dataSource.getConnection();
+        assertEquals(2, dataSource.getActive(), "wrong count of connections held");
+
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection, "connection beyond the bound");
+
+        first.close();
+        dataSource.getConnection();
+        assertEquals(2, dataSource.getActive(), "closed connection not released");
+    }
+
+    @Test
+    public void whenConnectionClosedTwice_thenReleasedOnce() throws Exception {
+
+        BoundedDataSource dataSource = new BoundedDataSource(target, 2, 50);
+
+        Connection connection = dataSource.getConnection();
+        dataSource.getConnection();
+        connection.close();
+        connection.close();
+
+        assertEquals(1, dataSource.getActive(), "connection released more than once");
+    }
+}
@@ -0,0 +1,88 @@
+package demo.inventory.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Two in-memory H2 databases, each holding its own name in a 'source' table.
+ */
+public class ReplicaRoutingDataSourceTest {
+
+    JdbcTemplate jdbcTemplate;
+
+    TransactionTemplate readOnly;
+
+    TransactionTemplate readWrite;
+
+    @BeforeEach
+    public void setUp() {
+        DataSource routing = ReplicaRoutingDataSource.lazy(database("primary"), database("replica"));
+        jdbcTemplate = new JdbcTemplate(routing);
+
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(routing);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readWrite = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        ReplicaRoutingDataSource.setReplicaReadsAllowed(false);
+    }
+
+    private static DataSource database(String name) {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "sa");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table if not exists source (name varchar(20))");
+        jdbcTemplate.execute("delete from source");
+        jdbcTemplate.update("insert into source values (?)", name);
+        return dataSource;
+    }
+
+    private String source() {
+        return jdbcTemplate.queryForObject("select name from source", String.class);
+    }
+
+    @Test
+    public void whenReadOnlyTransactionWithReplicaReadsAllowed_thenReplica() {
+        ReplicaRoutingDataSource.setReplicaReadsAllowed(true);
+
+        assertEquals("replica", readOnly.execute(status -> source()));
+    }
+
+    @Test
+    public void whenReadOnlyTransactionWithoutReplicaReadsAllowed_thenPrimary() {
+        assertEquals("primary", readOnly.execute(status -> source()));
+    }
+
+    @Test
+    public void whenReadWriteTransaction_thenPrimary() {
+        ReplicaRoutingDataSource.setReplicaReadsAllowed(true);
+
+        assertEquals("primary", readWrite.execute(status -> source()));
+    }
+
+    @Test
+    public void whenNoTransaction_thenPrimary() {
+        ReplicaRoutingDataSource.setReplicaReadsAllowed(true);
+
+        assertEquals("primary", source());
+    }
+
+    @Test
+    public void whenReplicaReadsNoLongerAllowed_thenPrimary() {
+        ReplicaRoutingDataSource.setReplicaReadsAllowed(true);
+        ReplicaRoutingDataSource.setReplicaReadsAllowed(false);
+
+        assertEquals("primary", readOnly.execute(status -> source()));
+    }
+}
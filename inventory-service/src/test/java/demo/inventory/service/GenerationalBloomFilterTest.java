@@ -0,0 +1,44 @@
+package demo.inventory.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class GenerationalBloomFilterTest {
+
+    @Test
+    public void whenRotated_thenKeysKeptForPreviousGenerationsOnly() {
+
+        GenerationalBloomFilter filter = new GenerationalBloomFilter(1000, 0.01, 2);
+        filter.put("order:1");
+
+        filter.rotate();
+        filter.rotate();
+        assertTrue(filter.mightContain("order:1"), "key dropped within its generations");
+
+        filter.rotate();
+        assertFalse(filter.mightContain("order:1"), "key kept beyond its generations");
+    }
+
+    @Test
+    public void whenGenerationOverfilled_thenFiltersAdded() {
+
+        GenerationalBloomFilter filter = new GenerationalBloomFilter(1000, 0.01, 1);
+        for (int i = 0; i < 20000; i++)
+            filter.put("order:" + i);
+
+        for (int i = 0; i < 20000; i++)
+            assertTrue(filter.mightContain("order:" + i), "key not found");
+
+        int falsePositives = 0;
+        for (int i = 20000; i < 30000; i++)
+            if (filter.mightContain("order:" + i))
+                falsePositives++;
+        assertTrue(falsePositives < 10000 * 0.01 * 20 * 1.5, "saturated: " + falsePositives + " false positives");
+
+        filter.rotate();
+        assertArrayEquals(new long[] { 0, 20000 }, filter.entries(), "wrong entries per generation");
+    }
+}
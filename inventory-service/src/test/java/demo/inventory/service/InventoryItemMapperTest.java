@@ -0,0 +1,38 @@
+package demo.inventory.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+
+import demo.inventory.api.model.InventoryItemModel;
+import demo.inventory.persistence.InventoryItem;
+
+public class InventoryItemMapperTest {
+
+    InventoryItemMapper itemMapper = new InventoryItemMapper();
+
+    @Test
+    public void whenModelMappedToEntityAndBack_thenAllFieldsCopied() {
+
+        InventoryItemModel model = new InventoryItemModel(
+            "Thinkpad"              /*name*/,
+            "Laptop computer"       /*description*/,
+            new BigDecimal("1525.50") /*price*/,
+            "Thinkpad laptop"       /*img_alt*/,
+            "tp450.jpg"             /*img*/,
+            7                       /*stock*/);
+        model.setId(13401);
+        model.setVersion(3L);
+
+        InventoryItem entity = itemMapper.toEntity(model);
+
+        assertEquals(model.getId(), entity.getId(), "wrong id");
+        assertEquals(model.getImgAlt(), entity.getImgAlt(), "wrong img_alt");
+
+        // InventoryItemModel.equals covers every field
+        assertEquals(model, itemMapper.toModel(entity), "round trip mapping is not an identity");
+    }
+
+}
@@ -0,0 +1,48 @@
+package demo.inventory.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+
+public class ItemNameIndexTest {
+
+    ItemNameIndex nameIndex = new ItemNameIndex(null, true, 100);
+
+    @Test
+    public void whenSearchedByName_thenSubstringMatchesIgnoringCase() {
+
+        nameIndex.put(3, "Hollerith Tabulator", new BigDecimal("10599.99"));
+        nameIndex.put(1, "Computing Scale", new BigDecimal("699.99"));
+        nameIndex.put(2, "Dayton Meat Chopper", new BigDecimal("4599.99"));
+
+        assertArrayEquals(new long[] { 1 }, nameIndex.search("SCAL", null), "wrong matches for trigram query");
+        assertArrayEquals(new long[] { 2, 3 }, nameIndex.search("ER", null), "wrong matches for short query");
+        assertArrayEquals(new long[] { 1, 2, 3 }, nameIndex.search("o", null), "wrong matches for single character");
+        assertArrayEquals(new long[] { 3 }, nameIndex.search("ith tab", null), "wrong matches across words");
+        assertArrayEquals(new long[] { 1 }, nameIndex.search("t", new BigDecimal("699.99")), "wrong matches within price");
+        assertEquals(0, nameIndex.search("tabulators", null).length, "matched longer than name");
+    }
+
+    @Test
+    public void whenItemRenamedOrRemoved_thenIndexUpdated() {
+
+        nameIndex.put(1, "Computing Scale", new BigDecimal("699.99"));
+        nameIndex.put(1, "Electric Tabulator", new BigDecimal("699.99"));
+
+        assertEquals(0, nameIndex.search("scale", null).length, "old name still matched");
+        assertArrayEquals(new long[] { 1 }, nameIndex.search("tab", null), "new name not matched");
+
+        nameIndex.remove(1);
+        assertEquals(0, nameIndex.search("tab", null).length, "removed item still matched");
+    }
+
+    @Test
+    public void whenNameHasRepeatedTrigrams_thenGramsAreDistinct() {
+
+        assertEquals(2, ItemNameIndex.grams("aaaab").length, "wrong count of distinct trigrams");
+        assertEquals(0, ItemNameIndex.grams("ab").length, "trigrams of a short name");
+    }
+}
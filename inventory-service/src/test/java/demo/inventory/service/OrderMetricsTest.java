@@ -0,0 +1,32 @@
+package demo.inventory.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+
+public class OrderMetricsTest {
+
+    @Test
+    public void whenBatchOutcomeDerived_thenMostSignificantOrderWins() {
+
+        AppliedOrders updated = new AppliedOrders(Collections.singleton("order:1"),
+            Collections.singletonMap(4L, 10), Collections.singleton(1234L),
+            Collections.singletonMap(5L, 0), false);
+        assertEquals(OrderMetrics.UPDATED, OrderMetrics.outcomeOf(updated), "wrong outcome with stock changed");
+
+        AppliedOrders rejected = new AppliedOrders(Collections.emptySet(),
+            Collections.emptyMap(), Collections.singleton(1234L),
+            Collections.singletonMap(5L, 0), false);
+        assertEquals(OrderMetrics.REJECTED, OrderMetrics.outcomeOf(rejected), "wrong outcome with order rejected");
+
+        AppliedOrders invalid = new AppliedOrders(Collections.singleton("order:1"),
+            Collections.emptyMap(), Collections.singleton(1234L));
+        assertEquals(OrderMetrics.INVALID, OrderMetrics.outcomeOf(invalid), "wrong outcome with item not found");
+
+        AppliedOrders duplicate = new AppliedOrders(Collections.singleton("order:1"),
+            Collections.emptyMap(), Collections.emptySet());
+        assertEquals(OrderMetrics.DUPLICATE, OrderMetrics.outcomeOf(duplicate), "wrong outcome with order redelivered");
+    }
+}